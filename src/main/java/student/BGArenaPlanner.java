@@ -1,11 +1,27 @@
 package student;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+
 /**
  * Main entry point for the program.
  */
 public final class BGArenaPlanner {
     /** default location of collection - relative to the resources directory. */
     private static final String DEFAULT_COLLECTION = "/collection.csv";
+    /** where binary snapshots of loaded collections are kept between runs. */
+    private static final Path SNAPSHOT_DIR = Path.of(System.getProperty("java.io.tmpdir"),
+            "bg_arena_planner");
+    /** file extension of a collection snapshot. */
+    private static final String SNAPSHOT_EXTENSION = ".snapshot";
+    /** system property naming where games lists are kept, if not the default. */
+    private static final String LIST_DIR_PROPERTY = "bg_arena_planner.lists";
+    /** where the games list of each collection is kept between runs. */
+    private static final Path LIST_DIR = Path.of(System.getProperty(LIST_DIR_PROPERTY,
+            Path.of(System.getProperty("user.home"), ".bg_arena_planner").toString()));
+    /** file extension of the games list kept for a collection. */
+    private static final String LIST_EXTENSION = ".list";
 
     /** private constructor as static class. */
     private BGArenaPlanner() {
@@ -15,13 +31,89 @@ public final class BGArenaPlanner {
     /**
      * Main entry point for the program.
      * 
-     * @param args command line arguments - not used at this time.
+     * If a path to a csv file is passed in, that file is loaded (in parallel) from
+     * the file system instead of the default collection, and the load timings are
+     * printed.
+     * 
+     * Either way, a binary snapshot of the collection is kept in the temp directory,
+     * so later runs can skip parsing the csv as long as it has not changed. The
+     * games list of each collection is kept in a journal in .bg_arena_planner in
+     * the user's home directory (or the directory given by the
+     * bg_arena_planner.lists system property), so it is still there the next time
+     * the planner is started.
+     * 
+     * @param args command line arguments - optional path to a collection csv.
      */
     public static void main(String[] args) {
-        IPlanner planner = new Planner(GamesLoader.loadGamesFile(DEFAULT_COLLECTION));
-        IGameList list = new GameList();
+        GameCatalog catalog = new GameCatalog(loadGames(args));
+        IPlanner planner = new Planner(catalog);
+        ListJournal journal = openJournal(LIST_DIR.resolve(listName(args) + LIST_EXTENSION),
+                catalog);
+        IGameList list = journal == null ? new GameList(catalog) : new GameList(journal);
         ConsoleApp app = new ConsoleApp(list, planner);
         app.start();
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Error saving game list: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Loads the collection, from the csv given on the command line if there is one
+     * (printing the load timings), otherwise the default collection.
+     * 
+     * @param args command line arguments - optional path to a collection csv.
+     * @return the games
+     */
+    private static Set<BoardGame> loadGames(String[] args) {
+        if (args.length == 0) {
+            return GamesLoader.loadGamesFile(DEFAULT_COLLECTION,
+                    SNAPSHOT_DIR.resolve("collection" + SNAPSHOT_EXTENSION));
+        }
+        LoadTimings timings = new LoadTimings();
+        Path csv = Path.of(args[0]);
+        Set<BoardGame> games = GamesLoader.loadGamesFile(csv,
+                SNAPSHOT_DIR.resolve(csv.getFileName() + SNAPSHOT_EXTENSION), timings);
+        System.out.println("Loaded " + games.size() + " games"
+                + (timings.getRows() > 0 ? ": " + timings : " from snapshot"));
+        return games;
+    }
+
+    /**
+     * Get the name the games list of a collection is kept under: the csv's file
+     * name and a hash of its full path, so collections with the same file name in
+     * different directories each keep their own list.
+     * 
+     * @param args command line arguments - optional path to a collection csv.
+     * @return the name of the list
+     */
+    private static String listName(String[] args) {
+        if (args.length == 0) {
+            return "collection";
+        }
+        Path csv = Path.of(args[0]).toAbsolutePath().normalize();
+        return csv.getFileName() + "-" + Integer.toHexString(csv.toString().hashCode());
+    }
+
+    /**
+     * Opens the journal the games list is kept in, reporting (but not failing on)
+     * errors.
+     * 
+     * @param base    where the list is kept
+     * @param catalog the catalog the games come from
+     * @return the journal, or null if it cannot be opened, in which case the list
+     *         is not kept
+     */
+    private static ListJournal openJournal(Path base, GameCatalog catalog) {
+        try {
+            return new ListJournal(base, catalog);
+        } catch (IOException e) {
+            System.err.println("Error opening game list: " + e.getMessage());
+            return null;
+        }
     }
 
 }
@@ -0,0 +1,99 @@
+package student;
+
+/**
+ * One request in a batch of filters, see {@link Planner#filterBatch(java.util.List)}.
+ *
+ * Holds the filter, how to sort the matching games, and optionally which page of
+ * them to return. Queries are immutable, so a batch can be built once and run
+ * many times.
+ */
+public final class BatchQuery {
+    /** The filter, such as minplayers>4,name~=catan. */
+    private final String filter;
+    /** The column to sort the results on. */
+    private final GameData sortOn;
+    /** Whether to sort in ascending order. */
+    private final boolean ascending;
+    /** How many of the sorted results to skip. */
+    private final int offset;
+    /** The most results to return. */
+    private final int limit;
+
+    /**
+     * Builds a query that returns every matching game.
+     *
+     * @param filter    the filter to apply
+     * @param sortOn    the column to sort the results on
+     * @param ascending whether to sort in ascending order
+     */
+    public BatchQuery(String filter, GameData sortOn, boolean ascending) {
+        this(filter, sortOn, ascending, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Builds a query that returns one page of the matching games.
+     *
+     * @param filter    the filter to apply
+     * @param sortOn    the column to sort the results on
+     * @param ascending whether to sort in ascending order
+     * @param offset    how many of the sorted results to skip
+     * @param limit     the most results to return
+     * @throws IllegalArgumentException if offset or limit is negative
+     */
+    public BatchQuery(String filter, GameData sortOn, boolean ascending, int offset,
+            int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        this.filter = filter;
+        this.sortOn = sortOn;
+        this.ascending = ascending;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * Get the filter.
+     *
+     * @return the filter
+     */
+    public String getFilter() {
+        return filter;
+    }
+
+    /**
+     * Get the column to sort on.
+     *
+     * @return the column
+     */
+    public GameData getSortOn() {
+        return sortOn;
+    }
+
+    /**
+     * Get whether results are sorted in ascending order.
+     *
+     * @return true for ascending, false for descending
+     */
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * Get how many of the sorted results are skipped.
+     *
+     * @return the offset
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Get the most results returned.
+     *
+     * @return the limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+}
@@ -1,8 +1,6 @@
 package student;
 
-import java.util.List;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
+import java.util.Objects;
 
 /**
  * Data Class for the Board Game Object.
@@ -12,6 +10,10 @@ import org.apache.commons.lang3.builder.HashCodeBuilder;
  * through getters.
  */
 public class BoardGame {
+    /** Starting value of the hash code. */
+    private static final int HASH_SEED = 17;
+    /** Multiplier applied for each field in the hash code. */
+    private static final int HASH_MULTIPLIER = 37;
     /** Name of the board game. */
     private final String name;
     /** Unique identifier of the board game. */
@@ -211,9 +213,14 @@ public class BoardGame {
      */
     @Override
     public boolean equals(Object obj) {
-        return EqualsBuilder.reflectionEquals(this, obj, // exclude the following fields
-                List.of("minPlayers", "maxPlayers", "maxPlayTime", "minPlayTime", "difficulty",
-                        "rank", "averageRating", "yearPublished"));
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof BoardGame)) {
+            return false;
+        }
+        BoardGame other = (BoardGame) obj;
+        return id == other.id && Objects.equals(name, other.name);
     }
 
     /**
@@ -223,13 +230,15 @@ public class BoardGame {
      * - maxPlayers -
      * maxPlayTime - minPlayTime - difficulty - rank - averageRating - yearPublished
      * 
+     * Computed directly rather than by reflection, as it is called for every game
+     * added to a set. The value is the same one HashCodeBuilder.reflectionHashCode
+     * produces (fields id then name, 17 and 37 as the seeds).
+     * 
      * @return hash code of the object
      */
     @Override
     public int hashCode() {
-        return HashCodeBuilder.reflectionHashCode(this, // exclude the following fields
-                List.of("minPlayers", "maxPlayers", "maxPlayTime", "minPlayTime", "difficulty",
-                        "rank", "averageRating", "yearPublished"));
+        return (HASH_SEED * HASH_MULTIPLIER + id) * HASH_MULTIPLIER + Objects.hashCode(name);
     }
 
     /**
@@ -0,0 +1,214 @@
+package student;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact binary copy of a loaded collection, so it does not have to be parsed
+ * from csv on every start.
+ *
+ * The snapshot stores the ten GameData fields of every game, along with the size
+ * and checksum of the csv it was built from. A snapshot is only used when both
+ * still match the csv, otherwise the csv is parsed again and a new snapshot is
+ * written.
+ *
+ * Layout (big endian):
+ *
+ * <pre>
+ * int magic, int version, long csv size, long csv checksum, int game count
+ * per game: short name length, name (UTF-8), int id, int minPlayers,
+ *           int maxPlayers, int minPlayTime, int maxPlayTime, double difficulty,
+ *           int rank, double rating, int yearPublished
+ * </pre>
+ */
+public final class CatalogSnapshot {
+    /** Marks the file as a snapshot ("BGS1"). */
+    private static final int MAGIC = 0x42475331;
+    /** Format version, bump if the layout changes. */
+    private static final int VERSION = 1;
+    /** Size of the fixed header. */
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4;
+    /** Size of the fixed part of a game (everything but the name). */
+    private static final int GAME_BYTES = 2 + 7 * 4 + 2 * 8;
+    /** Size of the chunks the checksum reads a file in. */
+    private static final long CHECKSUM_CHUNK_BYTES = 1L << 28;
+
+    /** private constructor to prevent instantiation. */
+    private CatalogSnapshot() {
+    }
+
+    /**
+     * Computes the checksum used to tell if a snapshot is stale.
+     *
+     * @param bytes the contents of the csv
+     * @return the checksum of the contents
+     */
+    public static long checksum(byte[] bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+
+    /**
+     * Computes the checksum of a file, without reading it onto the heap.
+     *
+     * @param file the csv file
+     * @return the checksum of the contents
+     * @throws IOException if the file cannot be read
+     */
+    public static long checksum(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long pos = 0; pos < size; pos += CHECKSUM_CHUNK_BYTES) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, pos,
+                        Math.min(CHECKSUM_CHUNK_BYTES, size - pos)));
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Writes a snapshot of the games.
+     *
+     * The snapshot is written to a temporary file and then moved into place, so a
+     * crash part way through never leaves a half written snapshot behind.
+     *
+     * @param snapshot    where to write the snapshot
+     * @param csvSize     size of the csv the games were loaded from
+     * @param csvChecksum checksum of the csv the games were loaded from
+     * @param games       the games to store
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void write(Path snapshot, long csvSize, long csvChecksum,
+            Collection<BoardGame> games) throws IOException {
+        byte[][] names = new byte[games.size()][];
+        long size = HEADER_BYTES;
+        int i = 0;
+        for (BoardGame game : games) {
+            names[i] = game.getName().getBytes(StandardCharsets.UTF_8);
+            if (names[i].length > Short.MAX_VALUE) {
+                throw new IOException("Name too long for snapshot: " + game.getName());
+            }
+            size += GAME_BYTES + names[i].length;
+            i++;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(size));
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(csvSize).putLong(csvChecksum)
+                .putInt(games.size());
+        i = 0;
+        for (BoardGame game : games) {
+            buffer.putShort((short) names[i].length).put(names[i++]);
+            buffer.putInt(game.getId()).putInt(game.getMinPlayers()).putInt(game.getMaxPlayers())
+                    .putInt(game.getMinPlayTime()).putInt(game.getMaxPlayTime())
+                    .putDouble(game.getDifficulty()).putInt(game.getRank())
+                    .putDouble(game.getRating()).putInt(game.getYearPublished());
+        }
+        buffer.flip();
+        replace(snapshot, buffer);
+    }
+
+    /**
+     * Replaces a file with new contents.
+     *
+     * The contents are written to a temporary file next to it, forced to disk and
+     * then moved into place, so a crash part way through leaves either the old
+     * file or the new one, never a half written one.
+     *
+     * @param file     the file to replace, created if it does not exist
+     * @param contents the new contents, from its position to its limit
+     * @throws IOException if the file cannot be written
+     */
+    static void replace(Path file, ByteBuffer contents) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (contents.hasRemaining()) {
+                    channel.write(contents);
+                }
+                channel.force(false);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Reads a snapshot, if it is current.
+     *
+     * @param snapshot    the snapshot to read
+     * @param csvSize     size of the csv as it is now
+     * @param csvChecksum checksum of the csv as it is now
+     * @return the games, or null if there is no snapshot or it is stale or damaged
+     * @throws IOException if the snapshot exists but cannot be read
+     */
+    public static Set<BoardGame> read(Path snapshot, long csvSize, long csvChecksum)
+            throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return null;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                    || buffer.getLong() != csvSize || buffer.getLong() != csvChecksum) {
+                return null;
+            }
+            int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining() / GAME_BYTES) {
+                return null;
+            }
+            Set<BoardGame> games = new HashSet<>(Math.max(16, (int) (count / 0.75f) + 1));
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < count; i++) {
+                int length = buffer.getShort();
+                if (length > scratch.length) {
+                    scratch = new byte[Math.max(length, scratch.length * 2)];
+                }
+                buffer.get(scratch, 0, length);
+                String name = new String(scratch, 0, length, StandardCharsets.UTF_8);
+                int id = buffer.getInt();
+                int minPlayers = buffer.getInt();
+                int maxPlayers = buffer.getInt();
+                int minPlayTime = buffer.getInt();
+                int maxPlayTime = buffer.getInt();
+                double difficulty = buffer.getDouble();
+                int rank = buffer.getInt();
+                double rating = buffer.getDouble();
+                int year = buffer.getInt();
+                games.add(new BoardGame(name, id, minPlayers, maxPlayers, minPlayTime, maxPlayTime,
+                        difficulty, rank, rating, year));
+            }
+            return buffer.hasRemaining() ? null : games;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            return null; // truncated or damaged, treat as stale
+        }
+    }
+}
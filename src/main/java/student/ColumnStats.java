@@ -0,0 +1,185 @@
+package student;
+
+/**
+ * Statistics of one numeric column of a catalog, used to guess how many games a
+ * filter clause will keep.
+ *
+ * Holds the smallest and largest value, the number of distinct values, and an
+ * equal depth histogram: the column is cut into buckets that each hold the same
+ * number of games, and the values at the cuts are kept. The share of games below
+ * a value is then the number of whole buckets below it, plus a straight line
+ * guess inside the bucket it falls in.
+ *
+ * Statistics are built from the catalog's sorted order of the column, so they
+ * cost one pass over it. NaN values are left out.
+ */
+public final class ColumnStats {
+    /** Number of buckets in the histogram. */
+    static final int BUCKETS = 64;
+
+    /** Number of games with a (non NaN) value. */
+    private final int count;
+    /** Number of distinct values. */
+    private final int distinct;
+    /** Values at the bucket cuts, from the smallest value to the largest. */
+    private final double[] bounds;
+
+    /**
+     * Builds the statistics of a column.
+     *
+     * @param values the values to look at, in ascending order
+     */
+    ColumnStats(double[] values) {
+        count = values.length;
+        int changes = 0;
+        for (int i = 1; i < count; i++) {
+            if (values[i] != values[i - 1]) {
+                changes++;
+            }
+        }
+        distinct = count == 0 ? 0 : changes + 1;
+        int buckets = Math.min(BUCKETS, Math.max(count - 1, 0));
+        bounds = new double[count == 0 ? 0 : buckets + 1];
+        for (int b = 0; b < bounds.length; b++) {
+            bounds[b] = values[(int) ((long) b * (count - 1) / Math.max(buckets, 1))];
+        }
+    }
+
+    /**
+     * Get the number of games with a value.
+     *
+     * @return the number of games, not counting NaN
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Get the number of distinct values in the column.
+     *
+     * @return the number of distinct values
+     */
+    public int getDistinctCount() {
+        return distinct;
+    }
+
+    /**
+     * Get the smallest value.
+     *
+     * @return the smallest value, or NaN if the column is empty
+     */
+    public double getMin() {
+        return count == 0 ? Double.NaN : bounds[0];
+    }
+
+    /**
+     * Get the largest value.
+     *
+     * @return the largest value, or NaN if the column is empty
+     */
+    public double getMax() {
+        return count == 0 ? Double.NaN : bounds[bounds.length - 1];
+    }
+
+    /**
+     * Guesses the share of games whose value matches a comparison.
+     *
+     * @param operator the comparison
+     * @param value    the value compared with
+     * @return a share from 0 to 1
+     */
+    public double estimate(Operations operator, double value) {
+        if (count == 0 || Double.isNaN(value)) {
+            return operator == Operations.NOT_EQUALS ? 1 : 0;
+        }
+        switch (operator) {
+            case EQUALS:
+                return equalShare(value);
+            case NOT_EQUALS:
+                return 1 - equalShare(value);
+            case LESS_THAN:
+                return belowShare(value);
+            case LESS_THAN_EQUALS:
+                return Math.min(1, belowShare(value) + equalShare(value));
+            case GREATER_THAN:
+                return Math.max(0, 1 - belowShare(value) - equalShare(value));
+            case GREATER_THAN_EQUALS:
+                return 1 - belowShare(value);
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * Guesses the share of games equal to a value. A value that several cuts land
+     * on covers at least those buckets, otherwise values are assumed to be spread
+     * evenly.
+     *
+     * @param value the value
+     * @return a share from 0 to 1
+     */
+    private double equalShare(double value) {
+        if (value < getMin() || value > getMax()) {
+            return 0;
+        }
+        int first = lowerBound(value);
+        int cuts = 0;
+        while (first + cuts < bounds.length && bounds[first + cuts] == value) {
+            cuts++;
+        }
+        double spanned = cuts > 1 ? (cuts - 1) / (double) (bounds.length - 1) : 0;
+        return Math.max(spanned, 1.0 / distinct);
+    }
+
+    /**
+     * Guesses the share of games below a value, using the histogram.
+     *
+     * @param value the value
+     * @return a share from 0 to 1
+     */
+    private double belowShare(double value) {
+        if (value <= getMin()) {
+            return 0;
+        }
+        if (value > getMax()) {
+            return 1;
+        }
+        int buckets = bounds.length - 1;
+        int cut = lowerBound(value); // bounds[cut - 1] < value <= bounds[cut]
+        double low = bounds[cut - 1];
+        double high = bounds[cut];
+        double within = high > low ? (value - low) / (high - low) : 0;
+        return (cut - 1 + within) / buckets;
+    }
+
+    /**
+     * Finds the first cut that is not below a value.
+     *
+     * @param value the value
+     * @return the index of the first cut at or above the value
+     */
+    private int lowerBound(double value) {
+        int low = 0;
+        int high = bounds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (bounds[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Get the statistics written out, for inspection.
+     *
+     * @return count, distinct values, min and max
+     */
+    @Override
+    public String toString() {
+        return "count=" + count + ", distinct=" + distinct + ", min=" + getMin() + ", max="
+                + getMax();
+    }
+}
@@ -1,6 +1,6 @@
 package student;
 
-import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
 import java.util.Scanner;
@@ -22,6 +22,8 @@ public class ConsoleApp {
     private static final String DEFAULT_FILENAME = "games_list.txt";
     /** random number generator only needs to be built once. */
     private static final Random RND = new Random();
+    /** Number of similar games shown when none is given. */
+    private static final int DEFAULT_SIMILAR = 10;
     /** scanner to help with processing the command string. */
     private Scanner current;
     /** The game list to manage. */
@@ -60,6 +62,9 @@ public class ConsoleApp {
                 case CMD_LIST:
                     processListCommands();
                     break;
+                case CMD_SIMILAR:
+                    processSimilar();
+                    break;
                 case CMD_EASTER_EGG:
                     randomNumber();
                     break;
@@ -116,11 +121,11 @@ public class ConsoleApp {
     private void processFilter() {
         Stream<BoardGame> result = null;
         GameData sortON = GameData.NAME; // default
+        int[] page = null; // offset and limit, null for every game
+        QueryProfile profile = null; // only set for explain
 
         if (current.hasNext()) {
-            String filter = remainder();
-            filter = filter.replaceAll("\\s", ""); // remove spaces
-            filter = filter.toLowerCase(); // make it lower case
+            String filter = NameArena.lower(remainder()); // spaces are skipped when parsed
             if (filter.equalsIgnoreCase(ConsoleText.CMD_QUESTION.toString())) {
                 printOutput("%s%n", ConsoleText.FILTER_HELP);
                 return; // leave early. only doing ? as help could be a game name.
@@ -131,12 +136,36 @@ public class ConsoleApp {
                 printOutput("%s%n", ConsoleText.FILTERED_CLEAR);
                 return; // leave early.
             }
-            if (filter.contains(ConsoleText.CMD_SORT_OPTION.toString())) {
+            if (filter.equalsIgnoreCase(ConsoleText.CMD_UNDO.toString())) {
+                if (planner.undo()) {
+                    printOutput("%s%n", ConsoleText.FILTERED_UNDO);
+                } else {
+                    printOutput("%s%n", ConsoleText.NOTHING_TO_UNDO);
+                }
+                return; // leave early.
+            }
+            if (filter.startsWith(ConsoleText.CMD_EXPLAIN.toString())) {
+                profile = new QueryProfile();
+                filter = filter.substring(ConsoleText.CMD_EXPLAIN.toString().length()).trim();
+            }
+            int limitAt = filter.lastIndexOf(ConsoleText.CMD_LIMIT_OPTION.toString());
+            if (limitAt >= 0) {
+                page = parsePage(filter.substring(
+                        limitAt + ConsoleText.CMD_LIMIT_OPTION.toString().length()));
+                if (page == null) {
+                    printOutput("%s%n", ConsoleText.INVALID);
+                    return; // leave early.
+                }
+                filter = filter.substring(0, limitAt);
+            }
+            boolean ascending = true; // default
+            int sortAt = filter.indexOf(ConsoleText.CMD_SORT_OPTION.toString());
+            if (sortAt >= 0) {
                 // break it up, figure out sort
-                boolean ascending = true; // default
-                String[] parts = filter.split(ConsoleText.CMD_SORT_OPTION.toString());
-                if (parts.length == 2) {
-                    String sort = parts[1];
+                String sort = filter.substring(
+                        sortAt + ConsoleText.CMD_SORT_OPTION.toString().length()).trim();
+                filter = filter.substring(0, sortAt);
+                if (!sort.isEmpty()) {
                     if (sort.contains(ConsoleText.CMD_SORT_OPTION_DIRECTION_ASC.toString())) {
                         ascending = true;
                         sort = sort.substring(0,
@@ -148,21 +177,125 @@ public class ConsoleApp {
                                 .indexOf(ConsoleText.CMD_SORT_OPTION_DIRECTION_DESC.toString()));
                     }
                     try {
-                        sortON = GameData.fromString(sort);
+                        sortON = GameData.fromString(sort.trim());
                     } catch (IllegalArgumentException e) {
                         printOutput("%s%n", ConsoleText.INVALID);
                         return; // leave early.
                     }
                 }
-                result = planner.filter(parts[0], sortON, ascending); // NOTICE: sortON and ascending are used here.
-            } else {
+            }
+            if (sortAt < 0 && page == null && profile == null) {
                 result = planner.filter(filter); // default sort
+            } else {
+                result = runFilter(filter, sortON, ascending, page, profile); // NOTICE: sortON and ascending are used here.
             }
+            printIgnored(filter);
         } else {
             printOutput("%s%n", ConsoleText.NO_FILTER);
             result = planner.filter("");
         }
-        printFilterStream(result, sortON);
+        if (profile == null) {
+            printFilterStream(result, sortON, page == null ? 0 : page[0]);
+        } else {
+            long start = System.nanoTime();
+            printFilterStream(result, sortON, page == null ? 0 : page[0]);
+            profile.setRenderNanos(System.nanoTime() - start);
+            printOutput("%s", profile);
+        }
+    }
+
+    /**
+     * Print why any parts of a filter were ignored, with where they start. The
+     * reasons come with the planner's last result, from the plan it ran, so the
+     * filter is not compiled again. A planner without results has it compiled.
+     * 
+     * @param filter the filter that was just run.
+     */
+    private void printIgnored(String filter) {
+        ResultSnapshot last = planner.lastResult();
+        List<String> errors = last != null ? last.getErrors()
+                : FilterPlan.compile(filter).getErrors();
+        for (String error : errors) {
+            printOutput("%s%s%n", ConsoleText.FILTER_IGNORED, error);
+        }
+    }
+
+    /**
+     * Run a filter, either for one page of the games or all of them, and
+     * optionally profile it. When profiling, the whole filter is profiled and the
+     * page is taken from the result, so the profile shows the full query.
+     * 
+     * @param filter    the filter to apply.
+     * @param sortON    the column to sort on.
+     * @param ascending whether to sort ascending.
+     * @param page      the offset and limit, or null for every game.
+     * @param profile   the profile to fill in, or null to not profile.
+     * @return the games to print.
+     */
+    private Stream<BoardGame> runFilter(String filter, GameData sortON, boolean ascending,
+            int[] page, QueryProfile profile) {
+        if (profile != null) {
+            Stream<BoardGame> games = planner.filter(filter, sortON, ascending, profile);
+            return page == null ? games : games.skip(page[0]).limit(page[1]);
+        }
+        if (page == null) {
+            return planner.filter(filter, sortON, ascending);
+        }
+        return planner.filter(filter, sortON, ascending, page[0], page[1]);
+    }
+
+    /**
+     * Process the similar command: similar game name [k]. A last word that is a
+     * number is taken as k, the number of games to show, when there are other
+     * words before it.
+     */
+    private void processSimilar() {
+        String name = remainder();
+        int k = DEFAULT_SIMILAR;
+        int lastSpace = name.lastIndexOf(' ');
+        if (lastSpace > 0) {
+            try {
+                k = Integer.parseInt(name.substring(lastSpace + 1));
+                name = name.substring(0, lastSpace).trim();
+            } catch (NumberFormatException e) {
+                // part of the name
+            }
+        }
+        if (name.isEmpty() || k < 0) {
+            printOutput("%s%n", ConsoleText.INVALID);
+            return;
+        }
+        List<BoardGame> games = planner.similar(name, k).toList();
+        if (games.isEmpty()) {
+            printOutput("%s%n", ConsoleText.NO_SIMILAR);
+            return;
+        }
+        printFilterStream(games.stream(), GameData.RATING, 0);
+    }
+
+    /**
+     * Parse the value of the limit option, either a count (limit:20 shows the
+     * first 20 games) or a range of positions (limit:21-40 shows games 21 to 40).
+     * 
+     * @param value the text after limit:
+     * @return the offset and limit to pass to the planner, or null if not valid.
+     */
+    private static int[] parsePage(String value) {
+        try {
+            String[] range = value.split("-");
+            if (range.length == 1) {
+                int count = Integer.parseInt(range[0].trim());
+                return count < 0 ? null : new int[] {0, count};
+            }
+            if (range.length == 2) {
+                int from = Integer.parseInt(range[0].trim());
+                int to = Integer.parseInt(range[1].trim());
+                return from < 1 || to < from ? null : new int[] {from - 1, to - from + 1};
+            }
+        } catch (NumberFormatException e) {
+            // fall through, not valid
+        }
+        return null;
     }
 
     /**
@@ -171,12 +304,16 @@ public class ConsoleApp {
      * @param games  the stream of games to print.
      * @param sortON also is the column used for 'extra info' based on the sort
      *               type.
+     * @param offset the number of games before the first one printed.
      */
-    private static void printFilterStream(Stream<BoardGame> games, GameData sortON) {
-        int counter = 1;
-        List<BoardGame> gameList = games != null ? games.toList() : Collections.emptyList();
-        for (BoardGame game : gameList) {
-            printOutput("%d: %s%n", counter++, game.toStringWithInfo(sortON));
+    private static void printFilterStream(Stream<BoardGame> games, GameData sortON, int offset) {
+        if (games == null) {
+            return;
+        }
+        int counter = offset + 1;
+        // printed as they come, so the games are never all held in a list
+        for (Iterator<BoardGame> it = games.iterator(); it.hasNext(); counter++) {
+            printOutput("%d: %s%n", counter, it.next().toStringWithInfo(sortON));
         }
     }
 
@@ -196,18 +333,23 @@ public class ConsoleApp {
                     gameList.clear();
                     break;
                 case CMD_ADD:
-                    String toAdd = remainder().toLowerCase();
+                    String toAdd = NameArena.lower(remainder());
                     if (toAdd.isEmpty()) {
                         break;
                     }
                     try {
-                        gameList.addToList(toAdd, planner.filter(""));
+                        ResultSnapshot shown = planner.lastResult();
+                        if (shown != null) {
+                            gameList.addToList(toAdd, shown);
+                        } else {
+                            gameList.addToList(toAdd, planner.filter(""));
+                        }
                     } catch (IllegalArgumentException e) {
                         printOutput("%s %s%n", ConsoleText.INVALID_LIST, toAdd);
                     }
                     break;
                 case CMD_REMOVE:
-                    String remove = remainder().toLowerCase();
+                    String remove = NameArena.lower(remainder());
                     if (remove.isEmpty()) {
                         break;
                     }
@@ -225,6 +367,20 @@ public class ConsoleApp {
                     }
                     gameList.saveGame(filename);
                     break;
+                case CMD_LOAD:
+                    String toLoad = remainder().trim();
+                    if (toLoad.isEmpty()) {
+                        toLoad = DEFAULT_FILENAME;
+                    }
+                    try {
+                        int missing = gameList.loadGame(toLoad);
+                        if (missing > 0) {
+                            printOutput("%s%d%n", ConsoleText.LIST_MISSING, missing);
+                        }
+                    } catch (IllegalArgumentException e) {
+                        printOutput("%s%s%n", ConsoleText.LIST_NOT_LOADED, e.getMessage());
+                    }
+                    break;
                 case CMD_QUESTION:
                 case CMD_HELP:
                     printOutput("%s%n", ConsoleText.LIST_HELP);
@@ -325,13 +481,21 @@ public class ConsoleApp {
         /** various commands and text. */
         WELCOME, HELP, INVALID, GOODBYE, PROMPT, NO_FILTER, NO_GAMES_LIST, FILTERED_CLEAR, LIST_HELP, FILTER_HELP,
         /** commands continued. */
-        INVALID_LIST, EASTER_EGG, CMD_EASTER_EGG,
+        INVALID_LIST, EASTER_EGG, CMD_EASTER_EGG, FILTERED_UNDO, NOTHING_TO_UNDO,
         /** commands general. */
         CMD_EXIT, CMD_HELP, CMD_QUESTION, CMD_FILTER, CMD_LIST,
         /** commands specific to lists and filters. */
-        CMD_SHOW, CMD_ADD, CMD_REMOVE, CMD_CLEAR, CMD_SAVE,
+        CMD_SHOW, CMD_ADD, CMD_REMOVE, CMD_CLEAR, CMD_SAVE, CMD_LOAD, CMD_UNDO,
         /** more options on commands. */
-        CMD_OPTION_ALL, CMD_SORT_OPTION, CMD_SORT_OPTION_DIRECTION_ASC, CMD_SORT_OPTION_DIRECTION_DESC;
+        CMD_OPTION_ALL, CMD_SORT_OPTION, CMD_SORT_OPTION_DIRECTION_ASC, CMD_SORT_OPTION_DIRECTION_DESC,
+        /** paging option on filters. */
+        CMD_LIMIT_OPTION, CMD_EXPLAIN,
+        /** similar games. */
+        CMD_SIMILAR, NO_SIMILAR,
+        /** parts of a filter that were not used. */
+        FILTER_IGNORED,
+        /** loading a saved list. */
+        LIST_NOT_LOADED, LIST_MISSING;
 
         /** load the files on class load. */
         private static final Properties CTEXT = new Properties();
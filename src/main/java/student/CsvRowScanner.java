@@ -0,0 +1,309 @@
+package student;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Turns raw UTF-8 csv rows into BoardGame objects without splitting them.
+ *
+ * The collection has far more columns than the ones in GameData, so rather than
+ * building a String for every field, the scanner walks the bytes of a row once,
+ * jumping over the fields it does not need, and parses the numbers in place.
+ * Only the name is turned into a String.
+ *
+ * The parsing rules match Integer.parseInt and Double.parseDouble. Numbers the
+ * fast path cannot handle exactly (very long mantissas, large exponents, NaN,
+ * hex, etc) are handed to Double.parseDouble, so results are always the same.
+ *
+ * A scanner keeps a scratch buffer for the name, so it is not thread safe. Use
+ * one per thread (or per chunk).
+ */
+final class CsvRowScanner {
+    /** Field delimiter. */
+    private static final byte DELIMITER = ',';
+    /** Largest mantissa that is exactly representable as a double. */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    /** Powers of ten that are exactly representable as a double. */
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8,
+        1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    /** Field index of each wanted column, in the order they appear in a row. */
+    private final int[] fieldIndexes;
+    /** The column found at the matching position of fieldIndexes. */
+    private final GameData[] fieldColumns;
+    /** Parsed int values of the current row, indexed by GameData ordinal. */
+    private final int[] ints = new int[GameData.values().length];
+    /** Parsed double values of the current row, indexed by GameData ordinal. */
+    private final double[] doubles = new double[GameData.values().length];
+    /** Scratch space used to decode the name. */
+    private byte[] scratch = new byte[256];
+    /** Name of the current row. */
+    private String name;
+
+    /**
+     * Builds a scanner for the given header mapping.
+     *
+     * @param columnMap the map of columns to field index, from the header
+     * @throws IllegalArgumentException if any GameData column is missing
+     */
+    CsvRowScanner(Map<GameData, Integer> columnMap) {
+        GameData[] columns = GameData.values();
+        for (GameData col : columns) {
+            if (!columnMap.containsKey(col)) {
+                throw new IllegalArgumentException("Missing column " + col.getColumnName());
+            }
+        }
+        GameData[] ordered = Arrays.copyOf(columns, columns.length);
+        Arrays.sort(ordered, (a, b) -> Integer.compare(columnMap.get(a), columnMap.get(b)));
+        fieldColumns = ordered;
+        fieldIndexes = new int[ordered.length];
+        for (int i = 0; i < ordered.length; i++) {
+            fieldIndexes[i] = columnMap.get(ordered[i]);
+        }
+    }
+
+    /**
+     * Scans a single row.
+     *
+     * @param row   buffer holding the row
+     * @param start index of the first byte of the row
+     * @param end   index just past the last byte of the row (no line ending)
+     * @return the game, or null if the row is short or a number does not parse
+     */
+    BoardGame scan(ByteBuffer row, int start, int end) {
+        int field = 0;
+        int pos = start;
+        for (int i = 0; i < fieldIndexes.length; i++) {
+            // jump over the fields we do not need
+            while (field < fieldIndexes[i]) {
+                while (pos < end && row.get(pos) != DELIMITER) {
+                    pos++;
+                }
+                if (pos >= end) {
+                    return null; // row is shorter than the header
+                }
+                pos++;
+                field++;
+            }
+            int fieldEnd = pos;
+            while (fieldEnd < end && row.get(fieldEnd) != DELIMITER) {
+                fieldEnd++;
+            }
+            if (!readField(row, pos, fieldEnd, fieldColumns[i])) {
+                return null;
+            }
+            pos = fieldEnd + 1;
+            field++;
+        }
+
+        return new BoardGame(name, ints[GameData.ID.ordinal()],
+                ints[GameData.MIN_PLAYERS.ordinal()], ints[GameData.MAX_PLAYERS.ordinal()],
+                ints[GameData.MIN_TIME.ordinal()], ints[GameData.MAX_TIME.ordinal()],
+                doubles[GameData.DIFFICULTY.ordinal()], ints[GameData.RANK.ordinal()],
+                doubles[GameData.RATING.ordinal()], ints[GameData.YEAR.ordinal()]);
+    }
+
+    /**
+     * Parses a single field into the value store for its column.
+     *
+     * @param row    buffer holding the row
+     * @param start  first byte of the field
+     * @param end    index just past the field
+     * @param column the column the field belongs to
+     * @return false if the field is not a valid value for the column
+     */
+    private boolean readField(ByteBuffer row, int start, int end, GameData column) {
+        switch (column) {
+            case NAME:
+                name = decode(row, start, end);
+                return true;
+            case RATING:
+            case DIFFICULTY:
+                double value = parseDouble(row, start, end);
+                if (Double.isNaN(value) && !isNaNLiteral(row, start, end)) {
+                    return false;
+                }
+                doubles[column.ordinal()] = value;
+                return true;
+            default:
+                long number = parseInt(row, start, end);
+                if (number == Long.MIN_VALUE) {
+                    return false;
+                }
+                ints[column.ordinal()] = (int) number;
+                return true;
+        }
+    }
+
+    /**
+     * Decodes a UTF-8 field into a String.
+     *
+     * @param row   buffer holding the row
+     * @param start first byte of the field
+     * @param end   index just past the field
+     * @return the decoded field
+     */
+    private String decode(ByteBuffer row, int start, int end) {
+        int length = end - start;
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        row.get(start, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses an int the same way Integer.parseInt does.
+     *
+     * @param row   buffer holding the row
+     * @param start first byte of the field
+     * @param end   index just past the field
+     * @return the value, or Long.MIN_VALUE if the field is not a valid int
+     */
+    static long parseInt(ByteBuffer row, int start, int end) {
+        if (start >= end) {
+            return Long.MIN_VALUE;
+        }
+        boolean negative = false;
+        int pos = start;
+        byte first = row.get(pos);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            pos++;
+            if (pos == end) {
+                return Long.MIN_VALUE;
+            }
+        }
+        long value = 0;
+        for (; pos < end; pos++) {
+            int digit = row.get(pos) - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return Long.MIN_VALUE;
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+            return Long.MIN_VALUE;
+        }
+        return value;
+    }
+
+    /**
+     * Parses a double the same way Double.parseDouble does.
+     *
+     * Plain decimals with up to 15 or so significant digits are parsed in place.
+     * This is exact, as both the mantissa and the power of ten are exact doubles, so
+     * the single multiply or divide is correctly rounded. Anything else falls back to
+     * Double.parseDouble.
+     *
+     * @param row   buffer holding the row
+     * @param start first byte of the field
+     * @param end   index just past the field
+     * @return the value, or NaN if the field is not a valid double
+     */
+    static double parseDouble(ByteBuffer row, int start, int end) {
+        int pos = start;
+        boolean negative = false;
+        if (pos < end && (row.get(pos) == '-' || row.get(pos) == '+')) {
+            negative = row.get(pos) == '-';
+            pos++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean exact = true;
+        for (; pos < end; pos++) {
+            int digit = row.get(pos) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            mantissa = mantissa * 10 + digit;
+            digits++;
+            exact &= mantissa < MAX_EXACT_MANTISSA;
+        }
+        if (pos < end && row.get(pos) == '.') {
+            pos++;
+            for (; pos < end; pos++) {
+                int digit = row.get(pos) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                mantissa = mantissa * 10 + digit;
+                exponent--;
+                digits++;
+                exact &= mantissa < MAX_EXACT_MANTISSA;
+            }
+        }
+        if (pos < end && (row.get(pos) == 'e' || row.get(pos) == 'E') && digits > 0) {
+            pos++;
+            boolean negativeExp = false;
+            if (pos < end && (row.get(pos) == '-' || row.get(pos) == '+')) {
+                negativeExp = row.get(pos) == '-';
+                pos++;
+            }
+            int exp = 0;
+            int expDigits = 0;
+            for (; pos < end; pos++) {
+                int digit = row.get(pos) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                exp = Math.min(exp * 10 + digit, 100000);
+                expDigits++;
+            }
+            exact &= expDigits > 0;
+            exponent += negativeExp ? -exp : exp;
+        }
+        if (!exact || digits == 0 || pos != end || exponent < -22 || exponent > 22) {
+            return slowParseDouble(row, start, end);
+        }
+        double value = mantissa;
+        if (exponent < 0) {
+            value /= POWERS_OF_TEN[-exponent];
+        } else if (exponent > 0) {
+            value *= POWERS_OF_TEN[exponent];
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Hands a field to Double.parseDouble.
+     *
+     * @param row   buffer holding the row
+     * @param start first byte of the field
+     * @param end   index just past the field
+     * @return the value, or NaN if the field is not a valid double
+     */
+    private static double slowParseDouble(ByteBuffer row, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        row.get(start, bytes, 0, bytes.length);
+        try {
+            return Double.parseDouble(new String(bytes, StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Checks if a field really spells out NaN, rather than failing to parse.
+     *
+     * @param row   buffer holding the row
+     * @param start first byte of the field
+     * @param end   index just past the field
+     * @return true if the field contains the text NaN
+     */
+    private static boolean isNaNLiteral(ByteBuffer row, int start, int end) {
+        for (int i = start; i + 2 < end; i++) {
+            if (row.get(i) == 'N' && row.get(i + 1) == 'a' && row.get(i + 2) == 'N') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,485 @@
+package student;
+
+import java.util.BitSet;
+
+/**
+ * A single parsed filter condition, such as minplayers>4.
+ *
+ * The column, operator and value are worked out once when the clause is parsed,
+ * so applying it is just a loop over the catalog column, or a binary search of
+ * the column's sorted order when only a few games can match. Clauses are
+ * immutable and can be shared between plans and planners.
+ */
+final class FilterClause implements FilterTerm {
+    /**
+     * How many selected games a scan can test in the time the range index takes
+     * for one game of its slice (random reads of the selection and the result).
+     */
+    private static final int INDEX_COST = 4;
+    /** Share of games a clause keeps when there is nothing better to go on. */
+    private static final double UNKNOWN_SHARE = 0.5;
+    /** Cost of comparing a name, next to a whole number. */
+    private static final double NAME_COMPARE_COST = 4;
+    /** Cost of scanning a name for a short piece of text, next to a whole number. */
+    private static final double CONTAINS_SCAN_COST = 8;
+
+    /** The column to filter on. */
+    private final GameData column;
+    /** The operator to compare with. */
+    private final Operations operator;
+    /** The value as written in the filter (trimmed). */
+    private final String value;
+    /** The value in lower case, as the names are searched, only used for the name column. */
+    private final String lowerValue;
+    /** The value as a number, only used for numeric columns. */
+    private final double number;
+
+    /**
+     * Builds a clause.
+     *
+     * @param column   the column to filter on
+     * @param operator the operator to compare with
+     * @param value    the value as written in the filter
+     * @param number   the value as a number, for numeric columns
+     */
+    private FilterClause(GameData column, Operations operator, String value, double number) {
+        this.column = column;
+        this.operator = operator;
+        this.value = value;
+        this.lowerValue = NameArena.lower(value);
+        this.number = number;
+    }
+
+    /**
+     * Parses a single filter condition.
+     *
+     * A condition that could never filter anything is treated as not being there,
+     * the same as the planner always has. That is when:
+     * - operator is not valid
+     * - format is not valid
+     * - column is not valid
+     * - the value of a numeric column is not a number
+     * - the column is not one that can be filtered on (id)
+     *
+     * @param filter the condition, such as minplayers>4
+     * @return the clause, or null if the condition should be ignored
+     */
+    static FilterClause parse(String filter) {
+        FilterLexer lexer = new FilterLexer(filter);
+        if (lexer.next() != FilterLexer.Token.COLUMN) {
+            return null;
+        }
+        GameData column = lexer.column();
+        if (column == null || !isFilterable(column)
+                || lexer.next() != FilterLexer.Token.OPERATOR || lexer.operator() == null) {
+            return null;
+        }
+        Operations operator = lexer.operator();
+        if (lexer.next() != FilterLexer.Token.VALUE) {
+            return null;
+        }
+        FilterClause clause = of(column, operator, lexer);
+        return lexer.next() == FilterLexer.Token.END ? clause : null;
+    }
+
+    /**
+     * Builds a clause from the value token of a lexer.
+     *
+     * @param column   the column to filter on, one that can be filtered on
+     * @param operator the operator to compare with
+     * @param lexer    the lexer, on the value token
+     * @return the clause, or null if the column is numeric and the value is not a
+     *         number
+     */
+    static FilterClause of(GameData column, Operations operator, FilterLexer lexer) {
+        if (isNumericColumn(column)) {
+            try {
+                return new FilterClause(column, operator, lexer.text(), lexer.number());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return new FilterClause(column, operator, lexer.text(), Double.NaN);
+    }
+
+    /**
+     * Checks if a column can be filtered on: every numeric column and the name.
+     *
+     * @param column The column to check
+     * @return True if clauses can use the column
+     */
+    static boolean isFilterable(GameData column) {
+        return column == GameData.NAME || isNumericColumn(column);
+    }
+
+    /**
+     * Checks if a column is numeric.
+     *
+     * @param column The column to check
+     * @return True if the column is numeric, false otherwise
+     */
+    static boolean isNumericColumn(GameData column) {
+        switch (column) {
+            case RATING:
+            case DIFFICULTY:
+            case RANK:
+            case MIN_PLAYERS:
+            case MAX_PLAYERS:
+            case MIN_TIME:
+            case MAX_TIME:
+            case YEAR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Get the column this clause filters on.
+     *
+     * @return the column
+     */
+    GameData getColumn() {
+        return column;
+    }
+
+    /**
+     * Get the operator of this clause.
+     *
+     * @return the operator
+     */
+    Operations getOperator() {
+        return operator;
+    }
+
+    /**
+     * Guesses the share of games the clause keeps.
+     *
+     * Numeric clauses use the column histogram. Contains uses the shortest posting
+     * list of the trigram index, other name comparisons assume names are distinct
+     * (equals) or split the games evenly.
+     *
+     * @param catalog the catalog the clause will be applied to
+     * @return a share from 0 to 1
+     */
+    @Override
+    public double estimate(GameCatalog catalog) {
+        ColumnStats columnStats = catalog.stats(column);
+        if (columnStats != null) {
+            return columnStats.estimate(operator, number);
+        }
+        int size = Math.max(catalog.size(), 1);
+        switch (operator) {
+            case EQUALS:
+                return 1.0 / size;
+            case NOT_EQUALS:
+                return 1 - 1.0 / size;
+            case CONTAINS:
+                int most = catalog.estimateNameMatches(lowerValue);
+                return most < 0 ? UNKNOWN_SHARE : (double) most / size;
+            default:
+                return UNKNOWN_SHARE;
+        }
+    }
+
+    /**
+     * Guesses the cost of testing one game against the clause, next to testing a
+     * whole number (1).
+     *
+     * @return the relative cost
+     */
+    @Override
+    public double cost() {
+        if (isNumericColumn(column)) {
+            return 1;
+        }
+        if (operator == Operations.CONTAINS) {
+            // the index does most of the work when the text is long enough
+            return lowerValue.length() < TrigramIndex.GRAM ? CONTAINS_SCAN_COST : 1;
+        }
+        return NAME_COMPARE_COST;
+    }
+
+    /**
+     * Applies the clause to a selection of games.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @param games   the games to filter, as a set of ordinals
+     * @return a new set with the games that match, the given set is not changed
+     */
+    @Override
+    public BitSet apply(GameCatalog catalog, BitSet games) {
+        BitSet indexed = applyIndex(catalog, games);
+        return indexed != null ? indexed : scan(catalog, games);
+    }
+
+    /**
+     * Applies the clause by testing every selected game.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @param games   the games to filter, as a set of ordinals
+     * @return a new set with the games that match, the given set is not changed
+     */
+    BitSet scan(GameCatalog catalog, BitSet games) {
+        PackedColumn values = catalog.column(column);
+        if (values != null) {
+            return applyNumericFilter(games, values, operator, number);
+        }
+        return applyStringFilter(catalog, games);
+    }
+
+    /**
+     * Applies the clause through one of the catalog's indexes, if that is cheaper
+     * than scanning the selection.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @param games   the games to filter, as a set of ordinals
+     * @return a new set with the games that match, or null if the clause should be
+     *         applied by scanning
+     */
+    BitSet applyIndex(GameCatalog catalog, BitSet games) {
+        if (operator == Operations.CONTAINS) {
+            return applyNameIndex(catalog, games);
+        }
+        return applyRangeIndex(catalog, games);
+    }
+
+    /**
+     * Get the name of the index applyIndex uses for this clause.
+     *
+     * @return the name of the index
+     */
+    String indexName() {
+        return operator == Operations.CONTAINS ? "trigram index" : "range index";
+    }
+
+    /**
+     * Checks a numeric value against the clause.
+     *
+     * @param found the value of the game
+     * @return true if the value matches
+     */
+    boolean test(double found) {
+        switch (operator) {
+            case EQUALS:
+                return found == number;
+            case NOT_EQUALS:
+                return found != number;
+            case GREATER_THAN:
+                return found > number;
+            case LESS_THAN:
+                return found < number;
+            case GREATER_THAN_EQUALS:
+                return found >= number;
+            case LESS_THAN_EQUALS:
+                return found <= number;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Checks a name against the clause, reading it from the arena, ignoring case.
+     *
+     * @param names the names of the games
+     * @param game  the ordinal of the game
+     * @return true if the name matches
+     */
+    boolean test(NameArena names, int game) {
+        switch (operator) {
+            case EQUALS:
+                return names.compareIgnoreCase(game, value) == 0;
+            case NOT_EQUALS:
+                return names.compareIgnoreCase(game, value) != 0;
+            case GREATER_THAN:
+                return names.compareIgnoreCase(game, value) > 0;
+            case LESS_THAN:
+                return names.compareIgnoreCase(game, value) < 0;
+            case GREATER_THAN_EQUALS:
+                return names.compareIgnoreCase(game, value) >= 0;
+            case LESS_THAN_EQUALS:
+                return names.compareIgnoreCase(game, value) <= 0;
+            case CONTAINS:
+                return names.containsLower(game, lowerValue);
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Applies a numeric clause through the catalog's sorted order of the column.
+     *
+     * Every operator but != matches a contiguous slice of the sorted order, found
+     * by binary search, so only the games in the slice are looked at. That only
+     * pays off when the slice is small next to the selection being filtered, so
+     * otherwise nothing is done and the caller scans the selection instead.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @param games   the games to filter, as a set of ordinals
+     * @return a new set with the games that match, or null if the clause should be
+     *         applied by scanning
+     */
+    private BitSet applyRangeIndex(GameCatalog catalog, BitSet games) {
+        if (!isNumericColumn(column) || Double.isNaN(number)) {
+            return null;
+        }
+        int from;
+        int to;
+        switch (operator) {
+            case EQUALS:
+                from = catalog.countBelow(column, number, false);
+                to = catalog.countBelow(column, number, true);
+                break;
+            case GREATER_THAN:
+                from = catalog.countBelow(column, number, true);
+                to = catalog.countOrdered(column);
+                break;
+            case GREATER_THAN_EQUALS:
+                from = catalog.countBelow(column, number, false);
+                to = catalog.countOrdered(column);
+                break;
+            case LESS_THAN:
+                from = 0;
+                to = catalog.countBelow(column, number, false);
+                break;
+            case LESS_THAN_EQUALS:
+                from = 0;
+                to = catalog.countBelow(column, number, true);
+                break;
+            default:
+                return null;
+        }
+        if ((long) (to - from) * INDEX_COST > games.cardinality()) {
+            return null;
+        }
+
+        int[] order = catalog.sortOrder(column);
+        BitSet matches = new BitSet(catalog.size());
+        for (int k = from; k < to; k++) {
+            if (games.get(order[k])) {
+                matches.set(order[k]);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Applies a numeric filter to a column.
+     *
+     * @param games        The games to filter, as a set of ordinals
+     * @param values       The column values, indexed by ordinal
+     * @param operator     The operator to use
+     * @param numericValue The value to filter with
+     * @return The games that match the filter
+     */
+    private static BitSet applyNumericFilter(BitSet games, PackedColumn values,
+            Operations operator, double numericValue) {
+        BitSet matches = new BitSet(values.size());
+        switch (operator) {
+            case EQUALS:
+                for (int game = games.nextSetBit(0); game >= 0;
+                        game = games.nextSetBit(game + 1)) {
+                    if (values.get(game) == numericValue) {
+                        matches.set(game);
+                    }
+                }
+                break;
+            case NOT_EQUALS:
+                for (int game = games.nextSetBit(0); game >= 0;
+                        game = games.nextSetBit(game + 1)) {
+                    if (values.get(game) != numericValue) {
+                        matches.set(game);
+                    }
+                }
+                break;
+            case GREATER_THAN:
+                for (int game = games.nextSetBit(0); game >= 0;
+                        game = games.nextSetBit(game + 1)) {
+                    if (values.get(game) > numericValue) {
+                        matches.set(game);
+                    }
+                }
+                break;
+            case LESS_THAN:
+                for (int game = games.nextSetBit(0); game >= 0;
+                        game = games.nextSetBit(game + 1)) {
+                    if (values.get(game) < numericValue) {
+                        matches.set(game);
+                    }
+                }
+                break;
+            case GREATER_THAN_EQUALS:
+                for (int game = games.nextSetBit(0); game >= 0;
+                        game = games.nextSetBit(game + 1)) {
+                    if (values.get(game) >= numericValue) {
+                        matches.set(game);
+                    }
+                }
+                break;
+            case LESS_THAN_EQUALS:
+                for (int game = games.nextSetBit(0); game >= 0;
+                        game = games.nextSetBit(game + 1)) {
+                    if (values.get(game) <= numericValue) {
+                        matches.set(game);
+                    }
+                }
+                break;
+            default:
+                return (BitSet) games.clone();
+        }
+        return matches;
+    }
+
+    /**
+     * Applies a contains clause through the trigram index of the names, checking
+     * only the games the index gives back. That is not done when there are fewer
+     * games selected than that, or the text is too short for the index.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @param games   the games to filter, as a set of ordinals
+     * @return a new set with the games that match, or null if the clause should be
+     *         applied by scanning
+     */
+    private BitSet applyNameIndex(GameCatalog catalog, BitSet games) {
+        int[] candidates = catalog.nameCandidates(lowerValue);
+        if (candidates == null || candidates.length > games.cardinality()) {
+            return null;
+        }
+        NameArena names = catalog.names();
+        BitSet matches = new BitSet(catalog.size());
+        for (int game : candidates) {
+            if (games.get(game) && names.containsLower(game, lowerValue)) {
+                matches.set(game);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Applies a string filter to the names of a selection of games.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @param games   The games to filter, as a set of ordinals
+     * @return The games that match the filter
+     */
+    private BitSet applyStringFilter(GameCatalog catalog, BitSet games) {
+        NameArena names = catalog.names();
+        BitSet matches = new BitSet(catalog.size());
+        for (int game = games.nextSetBit(0); game >= 0; game = games.nextSetBit(game + 1)) {
+            if (test(names, game)) {
+                matches.set(game);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Get the clause written out as a filter, such as minplayers>4.
+     *
+     * @return the clause as a filter
+     */
+    @Override
+    public String toString() {
+        return column.getColumnName() + operator.getOperator() + value;
+    }
+}
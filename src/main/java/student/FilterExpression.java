@@ -0,0 +1,444 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A boolean expression over filter terms: all of them (and), any of them (or), or
+ * not one of them.
+ *
+ * The filter language writes and as a comma, or as a bar and not as a leading
+ * exclamation mark, and parentheses group. Or binds tighter than the comma, so
+ * each comma still separates one filter from the next:
+ *
+ * <pre>
+ * maxplayers==1 | minplayers&lt;=2, !difficulty&gt;3.5
+ * !(name~=catan | name~=ticket), year&gt;=2015
+ * </pre>
+ *
+ * An expression works on sets of games, so it is worked out in one go over the
+ * selection, and each part only looks at the games it can still change: the terms
+ * of an and only see the games that passed the ones before, and the terms of an
+ * or only see the games no earlier term matched. Both stop as soon as there is
+ * nothing left to look at.
+ *
+ * A part that is ignored (a bad clause, or nothing between the separators) puts
+ * no constraint on the games. In an and it is simply left out. An or with an
+ * ignored part would match every game, and so would a not of an ignored part,
+ * so the whole or, or the whole not, is ignored too rather than narrowed to the
+ * parts that are left. Each is noted in the errors with where it starts.
+ *
+ * Expressions are immutable, and can be shared between plans and planners.
+ */
+final class FilterExpression implements FilterTerm {
+    /** The kinds of expression. */
+    enum Kind {
+        /** Games matching every term. */
+        ALL_OF,
+        /** Games matching at least one term. */
+        ANY_OF,
+        /** Games not matching the one term. */
+        NOT
+    }
+
+    /** Character for or. */
+    static final char OR = '|';
+    /** Character for and, the same as between filters. */
+    static final char AND = ',';
+    /** Character for not, when it starts a term. */
+    static final char NOT = '!';
+
+    /** What kind of expression this is. */
+    private final Kind kind;
+    /** The terms, in the order they are worked out. */
+    private final List<FilterTerm> terms;
+
+    /**
+     * Builds an expression.
+     *
+     * @param kind  what kind of expression
+     * @param terms the terms, only one for not
+     */
+    private FilterExpression(Kind kind, List<FilterTerm> terms) {
+        this.kind = kind;
+        this.terms = Collections.unmodifiableList(terms);
+    }
+
+    /**
+     * Parses a filter into the terms that must all match.
+     *
+     * Parts that would be ignored (bad clauses, empty parentheses) are dropped, the
+     * same as a bad clause always has been, so a term is never empty. An or or a
+     * not with an ignored part is dropped as a whole, as it no longer constrains
+     * anything. Why each part was dropped is added to the errors, with where it
+     * starts. A missing
+     * closing parenthesis is taken to be at the end, and a stray one is skipped.
+     *
+     * @param filter the normalized filter
+     * @param errors where to add why parts were ignored
+     * @return the terms that must all match, empty if there is nothing to filter on
+     */
+    static List<FilterTerm> parse(String filter, List<String> errors) {
+        Parser parser = new Parser(filter, errors);
+        List<FilterTerm> terms = new ArrayList<>();
+        while (true) {
+            FilterTerm term = parser.allOf();
+            if (term instanceof FilterExpression expression && expression.kind == Kind.ALL_OF) {
+                terms.addAll(expression.terms);
+            } else if (term != null) {
+                terms.add(term);
+            }
+            if (!parser.skip(FilterLexer.Token.CLOSE)) {
+                parser.expectEnd();
+                return terms;
+            }
+            parser.skip(FilterLexer.Token.AND); // after a stray parenthesis
+        }
+    }
+
+    /**
+     * Builds an expression of a kind, leaving out terms that were ignored and
+     * joining nested expressions of the same kind. Only the terms of an and are
+     * ever left out, the parser drops an or or a not with an ignored term.
+     *
+     * @param kind  what kind of expression
+     * @param terms the terms, with null for ignored ones
+     * @return the expression, the one term if there is only one, or null if there
+     *         are none
+     */
+    private static FilterTerm of(Kind kind, List<FilterTerm> terms) {
+        List<FilterTerm> kept = new ArrayList<>(terms.size());
+        for (FilterTerm term : terms) {
+            if (term instanceof FilterExpression expression && expression.kind == kind
+                    && kind != Kind.NOT) {
+                kept.addAll(expression.terms);
+            } else if (term != null) {
+                kept.add(term);
+            }
+        }
+        if (kept.isEmpty()) {
+            return null;
+        }
+        if (kept.size() == 1 && kind != Kind.NOT) {
+            return kept.get(0);
+        }
+        return new FilterExpression(kind, kept);
+    }
+
+    @Override
+    public BitSet apply(GameCatalog catalog, BitSet games) {
+        switch (kind) {
+            case ALL_OF:
+                BitSet selected = games;
+                for (FilterTerm term : terms) {
+                    if (selected.isEmpty()) {
+                        break;
+                    }
+                    selected = term.apply(catalog, selected);
+                }
+                return selected == games ? (BitSet) games.clone() : selected;
+            case ANY_OF:
+                BitSet matches = new BitSet(catalog.size());
+                BitSet left = games;
+                for (FilterTerm term : terms) {
+                    if (left.isEmpty()) {
+                        break;
+                    }
+                    BitSet found = term.apply(catalog, left);
+                    matches.or(found);
+                    if (left == games) {
+                        left = (BitSet) games.clone();
+                    }
+                    left.andNot(found);
+                }
+                return matches;
+            default:
+                BitSet rest = (BitSet) games.clone();
+                rest.andNot(terms.get(0).apply(catalog, games));
+                return rest;
+        }
+    }
+
+    @Override
+    public double estimate(GameCatalog catalog) {
+        double share;
+        switch (kind) {
+            case ALL_OF:
+                share = 1;
+                for (FilterTerm term : terms) {
+                    share *= term.estimate(catalog);
+                }
+                return share;
+            case ANY_OF:
+                double missed = 1;
+                for (FilterTerm term : terms) {
+                    missed *= 1 - term.estimate(catalog);
+                }
+                return 1 - missed;
+            default:
+                return 1 - terms.get(0).estimate(catalog);
+        }
+    }
+
+    @Override
+    public double cost() {
+        return terms.stream().mapToDouble(FilterTerm::cost).sum();
+    }
+
+    @Override
+    public FilterTerm orderFor(GameCatalog catalog) {
+        List<FilterTerm> ordered = new ArrayList<>(terms.size());
+        for (FilterTerm term : terms) {
+            ordered.add(term.orderFor(catalog));
+        }
+        if (kind != Kind.NOT) {
+            ordered = order(ordered, catalog, kind == Kind.ALL_OF);
+        }
+        return new FilterExpression(kind, ordered);
+    }
+
+    /**
+     * Orders terms so the total cost of working them out is lowest, using the
+     * catalog's statistics.
+     *
+     * The terms of an and each only look at the games the ones before kept, so they
+     * are sorted on cost / (1 - share kept). The terms of an or each only look at
+     * the games the ones before did not match, so they are sorted on cost / share
+     * matched. Terms that are guessed the same keep the order they were typed in.
+     *
+     * @param terms   the terms
+     * @param catalog the catalog the terms will be applied to
+     * @param allOf   true for the terms of an and, false for an or
+     * @return the terms in the chosen order
+     */
+    static List<FilterTerm> order(List<FilterTerm> terms, GameCatalog catalog, boolean allOf) {
+        if (terms.size() < 2) {
+            return terms;
+        }
+        double[] rank = new double[terms.size()];
+        Integer[] order = new Integer[terms.size()];
+        for (int i = 0; i < rank.length; i++) {
+            FilterTerm term = terms.get(i);
+            double removed = allOf ? 1 - term.estimate(catalog) : term.estimate(catalog);
+            rank[i] = removed <= 0 ? Double.POSITIVE_INFINITY : term.cost() / removed;
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> rank[i]));
+        List<FilterTerm> ordered = new ArrayList<>(terms.size());
+        for (int i : order) {
+            ordered.add(terms.get(i));
+        }
+        return ordered;
+    }
+
+    /**
+     * Get the expression written out as a filter, in parentheses so it can be put
+     * anywhere in another filter.
+     *
+     * @return the expression
+     */
+    @Override
+    public String toString() {
+        if (kind == Kind.NOT) {
+            return NOT + terms.get(0).toString();
+        }
+        StringBuilder out = new StringBuilder("(");
+        for (int i = 0; i < terms.size(); i++) {
+            if (i > 0) {
+                out.append(kind == Kind.ALL_OF ? AND : OR);
+            }
+            out.append(terms.get(i));
+        }
+        return out.append(')').toString();
+    }
+
+    /**
+     * Recursive descent parser of the filter language, over the tokens of a
+     * {@link FilterLexer}.
+     *
+     * <pre>
+     * allOf  = anyOf { "," anyOf }
+     * anyOf  = term { "|" term }
+     * term   = "!" term | "(" allOf ")" | clause
+     * clause = column operator value
+     * </pre>
+     *
+     * A clause on players or time with == or overlaps is an interval clause, any
+     * other is a column clause.
+     */
+    private static final class Parser {
+        /** The tokens of the filter. */
+        private final FilterLexer lexer;
+        /** Where to add why parts were ignored. */
+        private final List<String> errors;
+        /** The next token, not yet used. */
+        private FilterLexer.Token token;
+
+        /**
+         * Builds a parser.
+         *
+         * @param text   the filter to parse
+         * @param errors where to add why parts were ignored
+         */
+        Parser(String text, List<String> errors) {
+            this.lexer = new FilterLexer(text);
+            this.errors = errors;
+            token = lexer.next();
+        }
+
+        /**
+         * Parses terms that must all match.
+         *
+         * @return the term, or null if every part was ignored
+         */
+        FilterTerm allOf() {
+            List<FilterTerm> terms = new ArrayList<>();
+            terms.add(anyOf());
+            while (skip(FilterLexer.Token.AND)) {
+                terms.add(anyOf());
+            }
+            return of(Kind.ALL_OF, terms);
+        }
+
+        /**
+         * Parses terms of which any must match.
+         *
+         * @return the term, or null if it was ignored: when there is only one part
+         *         and it was ignored, or any part of an or was
+         */
+        FilterTerm anyOf() {
+            int at = lexer.position();
+            List<FilterTerm> terms = new ArrayList<>();
+            terms.add(term());
+            while (skip(FilterLexer.Token.OR)) {
+                terms.add(term());
+            }
+            if (terms.size() > 1 && terms.contains(null)) {
+                errors.add("| with an ignored part at " + at);
+                return null;
+            }
+            return of(Kind.ANY_OF, terms);
+        }
+
+        /**
+         * Parses a single term.
+         *
+         * @return the term, or null if it was ignored or empty
+         */
+        FilterTerm term() {
+            switch (token) {
+                case NOT:
+                    int at = lexer.position();
+                    token = lexer.next();
+                    FilterTerm negated = term();
+                    if (negated == null) {
+                        errors.add("! of an ignored part at " + at);
+                        return null;
+                    }
+                    return of(Kind.NOT, Collections.singletonList(negated));
+                case OPEN:
+                    token = lexer.next();
+                    FilterTerm group = allOf();
+                    skip(FilterLexer.Token.CLOSE); // missing at the end is fine
+                    return group;
+                case COLUMN:
+                    return clause();
+                case ERROR:
+                    return ignore("expected " + lexer.expected());
+                default:
+                    return null; // nothing between two commas, or at the end
+            }
+        }
+
+        /**
+         * Parses a clause, starting at its column.
+         *
+         * @return the clause, or null if it was ignored
+         */
+        private FilterTerm clause() {
+            int columnAt = lexer.position();
+            String name = lexer.text();
+            IntervalClause.Interval interval = IntervalClause.Interval.fromToken(lexer);
+            GameData column = interval == null ? lexer.column() : null;
+            if ((token = lexer.next()) != FilterLexer.Token.OPERATOR) {
+                return ignore("expected " + lexer.expected());
+            }
+            Operations operator = lexer.operator();
+            int operatorAt = lexer.position();
+            if ((token = lexer.next()) != FilterLexer.Token.VALUE) {
+                return ignore("expected " + lexer.expected());
+            }
+            FilterTerm clause;
+            String error;
+            if (interval != null && (operator == null || operator == Operations.EQUALS)) {
+                clause = IntervalClause.of(interval, operator == null, lexer);
+                error = "not a number or range";
+            } else if (operator == null) {
+                return ignore("overlaps is only for players and time", operatorAt);
+            } else if (column == null || !FilterClause.isFilterable(column)) {
+                return ignore((column == null ? "unknown column " : "cannot filter on ")
+                        + name, columnAt);
+            } else {
+                clause = FilterClause.of(column, operator, lexer);
+                error = "not a number";
+            }
+            if (clause == null) {
+                return ignore(error);
+            }
+            token = lexer.next();
+            return clause;
+        }
+
+        /**
+         * Notes why the current token was ignored, and moves past it.
+         *
+         * @param why why it was ignored
+         * @return null, as the part is ignored
+         */
+        private FilterTerm ignore(String why) {
+            return ignore(why, lexer.position());
+        }
+
+        /**
+         * Notes why part of a clause was ignored, and moves past the current token.
+         *
+         * @param why      why it was ignored
+         * @param position where the ignored part starts, from 1
+         * @return null, as the part is ignored
+         */
+        private FilterTerm ignore(String why, int position) {
+            errors.add(why + " at " + position);
+            if (token != FilterLexer.Token.END) {
+                token = lexer.next();
+            }
+            return null;
+        }
+
+        /**
+         * Notes anything left over after the last term, which is ignored.
+         */
+        void expectEnd() {
+            if (token != FilterLexer.Token.END) {
+                errors.add("expected , or | at " + lexer.position());
+            }
+        }
+
+        /**
+         * Skips a token if it is next.
+         *
+         * @param kind the kind of token
+         * @return true if it was skipped
+         */
+        boolean skip(FilterLexer.Token kind) {
+            if (token == kind) {
+                token = lexer.next();
+                return true;
+            }
+            return false;
+        }
+    }
+}
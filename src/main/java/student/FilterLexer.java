@@ -0,0 +1,384 @@
+package student;
+
+/**
+ * Single pass tokenizer of the filter language.
+ *
+ * The filter is read left to right once, one token at a time: a column, an
+ * operator, a value, or one of the characters that join clauses (, | ! and
+ * parentheses). Tokens are not objects. The lexer holds the kind, start and end
+ * of the current token, so reading a filter allocates nothing. Values are only
+ * copied out when a clause keeps them, and numbers are read straight from the
+ * text.
+ *
+ * What a token is depends on what came before it, the same as in the filter
+ * language: after a column comes an operator, and after an operator the value
+ * runs to the next comma, bar or closing parenthesis (parentheses inside a value,
+ * such as name~=catan (2nd), stay part of it). Text that cannot be read is given
+ * back as an error token covering the rest of the clause, with its position and
+ * what was expected there, so the clauses after it are still read.
+ *
+ * A lexer reads one filter, and is not thread safe.
+ */
+final class FilterLexer {
+    /** The kinds of token. */
+    enum Token {
+        /** A column or interval name, such as minplayers. */
+        COLUMN,
+        /** An operator, such as &gt;= or overlaps. */
+        OPERATOR,
+        /** The value a column is compared with, spaces around it left out. */
+        VALUE,
+        /** The comma between terms that must all match. */
+        AND,
+        /** The bar between terms of which any must match. */
+        OR,
+        /** The exclamation mark in front of a term. */
+        NOT,
+        /** An opening parenthesis. */
+        OPEN,
+        /** A closing parenthesis. */
+        CLOSE,
+        /** Text that could not be read, up to the end of the clause. */
+        ERROR,
+        /** The end of the filter. */
+        END
+    }
+
+    /** What the lexer reads next. */
+    private enum Mode {
+        /** A term, or what joins terms. */
+        TERM,
+        /** The operator after a column. */
+        OPERATOR,
+        /** The value after an operator. */
+        VALUE
+    }
+
+    /** Most digits read by hand, any more could not be held exactly in a double. */
+    private static final int MAX_EXACT_DIGITS = 15;
+    /** Powers of ten that are exact as doubles, indexed by the power. */
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7,
+        1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21,
+        1e22};
+    /** The columns, kept so looking one up does not copy values(). */
+    private static final GameData[] COLUMNS = GameData.values();
+
+    /** The filter being read. */
+    private final String text;
+    /** Position of the next character to read. */
+    private int at;
+    /** What is read next. */
+    private Mode mode = Mode.TERM;
+    /** The current token. */
+    private Token token;
+    /** Position of the first character of the current token. */
+    private int start;
+    /** Position after the last character of the current token. */
+    private int end;
+    /** The operator of an operator token, null for overlaps. */
+    private Operations operator;
+    /** What was expected, for an error token. */
+    private String expected;
+
+    /**
+     * Builds a lexer.
+     *
+     * @param text the filter to read
+     */
+    FilterLexer(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Reads the next token.
+     *
+     * @return the kind of token, END once the filter has been read
+     */
+    Token next() {
+        switch (mode) {
+            case OPERATOR:
+                return readOperator();
+            case VALUE:
+                return readValue();
+            default:
+                return readTerm();
+        }
+    }
+
+    /**
+     * Get the filter being read.
+     *
+     * @return the filter
+     */
+    String source() {
+        return text;
+    }
+
+    /**
+     * Get where the current token starts.
+     *
+     * @return the position of its first character, from 0
+     */
+    int start() {
+        return start;
+    }
+
+    /**
+     * Get where the current token ends.
+     *
+     * @return the position after its last character
+     */
+    int end() {
+        return end;
+    }
+
+    /**
+     * Get where the current token starts, counted the way people do.
+     *
+     * @return the position of its first character, from 1
+     */
+    int position() {
+        return start + 1;
+    }
+
+    /**
+     * Get the text of the current token. This copies it, so is only used for text
+     * that is kept or shown.
+     *
+     * @return the text
+     */
+    String text() {
+        return text.substring(start, end);
+    }
+
+    /**
+     * Get the operator of the current operator token.
+     *
+     * @return the operator, or null for overlaps
+     */
+    Operations operator() {
+        return operator;
+    }
+
+    /**
+     * Get what was expected where the current error token starts.
+     *
+     * @return what was expected, such as "an operator"
+     */
+    String expected() {
+        return expected;
+    }
+
+    /**
+     * Checks if the current token is a word, ignoring case.
+     *
+     * @param word the word
+     * @return true if the token is exactly that word
+     */
+    boolean is(String word) {
+        int length = end - start;
+        return length == word.length() && text.regionMatches(true, start, word, 0, length);
+    }
+
+    /**
+     * Looks up the column the current token names, by enum name (min_players) or
+     * column name (minplayers), ignoring case.
+     *
+     * @return the column, or null if there is none with that name
+     */
+    GameData column() {
+        for (GameData column : COLUMNS) {
+            if (is(column.name()) || is(column.getColumnName())) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the current token as a number.
+     *
+     * Plain decimals with up to 15 digits, which is nearly every value typed, are
+     * read by hand: the digits and the power of ten are both exact as doubles, so
+     * dividing one by the other rounds the same as Double.parseDouble. Anything
+     * else is handed to Double.parseDouble.
+     *
+     * @return the number
+     * @throws NumberFormatException if the token is not a number
+     */
+    double number() {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+        long digits = 0;
+        int count = 0;
+        int scale = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9' && count < MAX_EXACT_DIGITS) {
+                digits = digits * 10 + (c - '0');
+                count++;
+                scale += point ? 1 : 0;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                return Double.parseDouble(text()); // exponents, long numbers, not numbers
+            }
+        }
+        if (count == 0) {
+            return Double.parseDouble(text());
+        }
+        double value = digits / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Reads a term, or what joins terms.
+     *
+     * @return the kind of token
+     */
+    private Token readTerm() {
+        skipSpaces();
+        start = at;
+        if (at >= text.length()) {
+            end = at;
+            return token = Token.END;
+        }
+        char c = text.charAt(at);
+        if (c == FilterExpression.AND) {
+            return single(Token.AND);
+        }
+        if (c == FilterExpression.OR) {
+            return single(Token.OR);
+        }
+        if (c == '(') {
+            return single(Token.OPEN);
+        }
+        if (c == ')') {
+            return single(Token.CLOSE);
+        }
+        if (c == FilterExpression.NOT && !text.startsWith("=", at + 1)) {
+            return single(Token.NOT);
+        }
+        if (!isWordChar(c)) {
+            return fail("a column");
+        }
+        while (at < text.length() && isWordChar(text.charAt(at))) {
+            at++;
+        }
+        end = at;
+        String overlaps = IntervalClause.OVERLAPS;
+        if (end - start > overlaps.length() && text.startsWith(overlaps, end - overlaps.length())) {
+            end -= overlaps.length(); // written without spaces, such as timeoverlaps30-60
+            at = end;
+        }
+        mode = Mode.OPERATOR;
+        return token = Token.COLUMN;
+    }
+
+    /**
+     * Reads the operator after a column.
+     *
+     * @return the kind of token
+     */
+    private Token readOperator() {
+        skipSpaces();
+        start = at;
+        operator = at < text.length() ? Operations.startingAt(text, at) : null;
+        if (operator != null) {
+            at += operator.getOperator().length();
+        } else if (text.startsWith(IntervalClause.OVERLAPS, at)) {
+            at += IntervalClause.OVERLAPS.length();
+        } else {
+            return fail("an operator");
+        }
+        end = at;
+        mode = Mode.VALUE;
+        return token = Token.OPERATOR;
+    }
+
+    /**
+     * Reads the value after an operator, up to the end of the clause.
+     *
+     * @return the kind of token
+     */
+    private Token readValue() {
+        skipSpaces();
+        start = at;
+        skipClause();
+        end = at;
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        mode = Mode.TERM;
+        if (end == start) {
+            expected = "a value";
+            return token = Token.ERROR;
+        }
+        return token = Token.VALUE;
+    }
+
+    /**
+     * Makes the next character a token.
+     *
+     * @param single the kind of token
+     * @return the kind of token
+     */
+    private Token single(Token single) {
+        end = ++at;
+        return token = single;
+    }
+
+    /**
+     * Makes the rest of the clause an error token.
+     *
+     * @param what what was expected
+     * @return the kind of token, always ERROR
+     */
+    private Token fail(String what) {
+        expected = what;
+        skipClause();
+        end = at;
+        mode = Mode.TERM;
+        return token = Token.ERROR;
+    }
+
+    /**
+     * Skips to the next comma, bar or closing parenthesis that is not part of the
+     * clause, or the end.
+     */
+    private void skipClause() {
+        int depth = 0;
+        while (at < text.length()) {
+            char c = text.charAt(at);
+            if (c == FilterExpression.AND || c == FilterExpression.OR || (c == ')' && depth == 0)) {
+                return;
+            }
+            depth += c == '(' ? 1 : c == ')' ? -1 : 0;
+            at++;
+        }
+    }
+
+    /**
+     * Skips any spaces.
+     */
+    private void skipSpaces() {
+        while (at < text.length() && Character.isWhitespace(text.charAt(at))) {
+            at++;
+        }
+    }
+
+    /**
+     * Checks if a character can be part of a column name.
+     *
+     * @param c the character
+     * @return true for letters and underscores
+     */
+    private static boolean isWordChar(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+}
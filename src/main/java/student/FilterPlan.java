@@ -0,0 +1,303 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compiled filter, ready to be applied to a catalog as many times as needed.
+ *
+ * Compiling reads the filter once with a {@link FilterLexer} and parses every
+ * clause once. Clauses that would be ignored (bad column, operator or value) are
+ * dropped at this point, so applying the plan only runs the clauses that do
+ * something, and why each was dropped is kept to show the user. Parts using or,
+ * not and parentheses are compiled to a {@link FilterExpression}, and take one
+ * place in the plan like a clause does.
+ *
+ * Plans are immutable, and are not tied to any catalog or planner.
+ */
+public final class FilterPlan {
+    /** The clauses and expressions to apply, in order. */
+    private final List<FilterTerm> clauses;
+    /** Why parts of the filter were ignored, in the order they were found. */
+    private final List<String> errors;
+
+    /**
+     * Builds a plan from parsed clauses.
+     *
+     * @param clauses the clauses and expressions to apply, in order
+     * @param errors  why parts of the filter were ignored
+     */
+    private FilterPlan(List<FilterTerm> clauses, List<String> errors) {
+        this.clauses = Collections.unmodifiableList(clauses);
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Normalizes a filter, so the same filter typed slightly differently shares a
+     * plan.
+     *
+     * Filters on strings are case insensitive, as are column names, so lower
+     * casing does not change what the filter matches. The filter is lower cased
+     * a character at a time, the same way the catalog's names are, so it matches
+     * them whatever the default locale is.
+     *
+     * @param filter the filter as typed
+     * @return the normalized filter
+     * @see NameArena#lower(String)
+     */
+    public static String normalize(String filter) {
+        return filter == null ? "" : NameArena.lower(filter.trim());
+    }
+
+    /**
+     * Compiles a filter.
+     *
+     * @param filter the filter, such as minplayers>4,name~=catan|name~=ticket
+     * @return the compiled plan
+     * @see IPlanner#filter(String, GameData, boolean)
+     */
+    public static FilterPlan compile(String filter) {
+        String normalized = normalize(filter);
+        if (normalized.isEmpty()) {
+            return new FilterPlan(new ArrayList<>(), new ArrayList<>());
+        }
+        List<String> errors = new ArrayList<>();
+        return new FilterPlan(FilterExpression.parse(normalized, errors), errors);
+    }
+
+    /**
+     * Orders the clauses so the ones that are cheap and throw away the most games
+     * run first, using the catalog's statistics.
+     *
+     * As each clause only looks at the games left by the ones before it, the total
+     * cost is lowest when clauses are sorted on cost / (1 - share kept). Clauses
+     * that are guessed the same keep the order they were typed in. The result is
+     * the same in any order, only the time taken changes. The parts of each
+     * expression are ordered the same way.
+     *
+     * @param catalog the catalog the plan will be applied to
+     * @return a plan with the same clauses in the chosen order
+     */
+    public FilterPlan orderFor(GameCatalog catalog) {
+        if (clauses.size() < 2 && clauses.stream().allMatch(FilterClause.class::isInstance)) {
+            return this;
+        }
+        List<FilterTerm> ordered = new ArrayList<>(clauses.size());
+        for (FilterTerm clause : clauses) {
+            ordered.add(clause.orderFor(catalog));
+        }
+        return new FilterPlan(FilterExpression.order(ordered, catalog, true), errors);
+    }
+
+    /**
+     * Guesses the share of games each clause keeps, from the catalog statistics.
+     *
+     * @param catalog the catalog the plan will be applied to
+     * @return the guessed share kept (0 to 1) of each clause, in plan order
+     */
+    public List<Double> estimate(GameCatalog catalog) {
+        return clauses.stream().map(clause -> clause.estimate(catalog)).toList();
+    }
+
+    /**
+     * Checks if the plan has nothing to filter on.
+     *
+     * @return true if applying the plan leaves the games as they are
+     */
+    public boolean isEmpty() {
+        return clauses.isEmpty();
+    }
+
+    /**
+     * Get why parts of the filter were ignored, such as "unknown column foo at 1".
+     * Positions count from 1, in the filter with the spaces around it trimmed.
+     *
+     * @return the reasons, empty if the whole filter was used
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Get the clauses of the plan, written out as filters.
+     *
+     * @return the clauses in the order they are applied
+     */
+    public List<String> getClauses() {
+        return clauses.stream().map(FilterTerm::toString).toList();
+    }
+
+    /**
+     * Applies the plan to a selection of games.
+     *
+     * Each clause only looks at the games that passed the clauses before it, and
+     * once no games are left the rest are not run.
+     * 
+     * @param catalog the catalog the ordinals belong to
+     * @param games   the games to filter, as a set of ordinals
+     * @return the games that match every clause, the given set is not changed
+     */
+    BitSet apply(GameCatalog catalog, BitSet games) {
+        BitSet selected = games;
+        for (FilterTerm clause : clauses) {
+            if (selected.isEmpty()) {
+                break;
+            }
+            selected = clause.apply(catalog, selected);
+        }
+        return selected;
+    }
+
+    /**
+     * Applies the plan to a selection of games, recording each clause in a profile.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @param games   the games to filter, as a set of ordinals
+     * @param profile where to record each clause, or null to not profile
+     * @return the games that match every clause, the given set is not changed
+     */
+    BitSet apply(GameCatalog catalog, BitSet games, QueryProfile profile) {
+        if (profile == null) {
+            return apply(catalog, games);
+        }
+        BitSet selected = games;
+        for (FilterTerm term : clauses) {
+            long start = System.nanoTime();
+            String path = "expression";
+            if (term instanceof FilterClause clause) {
+                BitSet indexed = clause.applyIndex(catalog, selected);
+                selected = indexed != null ? indexed : clause.scan(catalog, selected);
+                path = indexed != null ? clause.indexName() : "scan";
+            } else {
+                if (term instanceof IntervalClause interval) {
+                    path = interval.usesIndex(catalog, selected) ? "interval index" : "scan";
+                }
+                selected = term.apply(catalog, selected);
+            }
+            long nanos = System.nanoTime() - start;
+            profile.addClause(term.toString(), path, selected.cardinality(), nanos);
+        }
+        return selected;
+    }
+
+    /**
+     * Applies many plans to the same selection of games, sharing the work.
+     *
+     * A clause that is in more than one plan is only worked out once. Clauses that
+     * can use one of the catalog's indexes do; the rest are grouped by column, and
+     * each column is scanned once, testing every clause on it against each value.
+     * Expressions are worked out on their own, once each. Each plan's result is
+     * then the intersection of its clauses.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @param games   the games to filter, as a set of ordinals
+     * @param plans   the plans to apply
+     * @return the games matching each plan, in the same order as the plans. Results
+     *         may share sets with each other and with games, so must not be changed
+     */
+    static List<BitSet> applyAll(GameCatalog catalog, BitSet games, List<FilterPlan> plans) {
+        // clause results by clause, null until the scans have run
+        Map<String, BitSet> clauseMatches = new HashMap<>();
+        Map<GameData, List<FilterClause>> scans = new EnumMap<>(GameData.class);
+        for (FilterPlan plan : plans) {
+            for (FilterTerm term : plan.clauses) {
+                String key = term.toString();
+                if (clauseMatches.containsKey(key)) {
+                    continue;
+                }
+                if (term instanceof FilterClause clause) {
+                    BitSet indexed = clause.applyIndex(catalog, games);
+                    clauseMatches.put(key, indexed);
+                    if (indexed == null) {
+                        scans.computeIfAbsent(clause.getColumn(), c -> new ArrayList<>())
+                                .add(clause);
+                    }
+                } else {
+                    clauseMatches.put(key, term.apply(catalog, games));
+                }
+            }
+        }
+
+        for (Map.Entry<GameData, List<FilterClause>> scan : scans.entrySet()) {
+            List<FilterClause> group = scan.getValue();
+            BitSet[] matches = new BitSet[group.size()];
+            for (int i = 0; i < matches.length; i++) {
+                matches[i] = new BitSet(catalog.size());
+            }
+            scanColumn(catalog, games, scan.getKey(), group, matches);
+            for (int i = 0; i < matches.length; i++) {
+                clauseMatches.put(group.get(i).toString(), matches[i]);
+            }
+        }
+
+        List<BitSet> results = new ArrayList<>(plans.size());
+        for (FilterPlan plan : plans) {
+            BitSet selected = games;
+            boolean copied = false;
+            for (FilterTerm clause : plan.clauses) {
+                BitSet matches = clauseMatches.get(clause.toString());
+                if (selected == games) {
+                    selected = matches; // already only holds selected games
+                } else {
+                    if (!copied) {
+                        selected = (BitSet) selected.clone(); // do not change a shared set
+                        copied = true;
+                    }
+                    selected.and(matches);
+                }
+            }
+            results.add(selected);
+        }
+        return results;
+    }
+
+    /**
+     * Tests every game of a selection against a group of clauses on one column,
+     * reading each value only once.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @param games   the games to test, as a set of ordinals
+     * @param column  the column all the clauses are on
+     * @param group   the clauses
+     * @param matches where to set the games matching each clause, same order as group
+     */
+    private static void scanColumn(GameCatalog catalog, BitSet games, GameData column,
+            List<FilterClause> group, BitSet[] matches) {
+        FilterClause[] clauses = group.toArray(new FilterClause[0]);
+        PackedColumn values = catalog.column(column);
+        if (values == null) {
+            NameArena names = catalog.names();
+            for (int game = games.nextSetBit(0); game >= 0; game = games.nextSetBit(game + 1)) {
+                for (int i = 0; i < clauses.length; i++) {
+                    if (clauses[i].test(names, game)) {
+                        matches[i].set(game);
+                    }
+                }
+            }
+            return;
+        }
+        for (int game = games.nextSetBit(0); game >= 0; game = games.nextSetBit(game + 1)) {
+            double found = values.get(game);
+            for (int i = 0; i < clauses.length; i++) {
+                if (clauses[i].test(found)) {
+                    matches[i].set(game);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the plan written out as a filter.
+     *
+     * @return the clauses, separated by commas
+     */
+    @Override
+    public String toString() {
+        return String.join(",", getClauses());
+    }
+}
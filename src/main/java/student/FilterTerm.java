@@ -0,0 +1,47 @@
+package student;
+
+import java.util.BitSet;
+
+/**
+ * One part of a compiled filter that selects games: either a single clause, such
+ * as minplayers>4, or a boolean expression of other terms.
+ *
+ * Terms are immutable, and can be shared between plans and planners.
+ */
+interface FilterTerm {
+    /**
+     * Applies the term to a selection of games.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @param games   the games to filter, as a set of ordinals
+     * @return a new set with the games that match, the given set is not changed
+     */
+    BitSet apply(GameCatalog catalog, BitSet games);
+
+    /**
+     * Guesses the share of games the term keeps, from the catalog statistics.
+     *
+     * @param catalog the catalog the term will be applied to
+     * @return a share from 0 to 1
+     */
+    double estimate(GameCatalog catalog);
+
+    /**
+     * Guesses the cost of testing one game against the term, next to testing a
+     * whole number (1).
+     *
+     * @return the relative cost
+     */
+    double cost();
+
+    /**
+     * Orders the parts of the term so the cheapest way of working it out goes
+     * first. A single clause has nothing to order.
+     *
+     * @param catalog the catalog the term will be applied to
+     * @return a term that matches the same games
+     */
+    default FilterTerm orderFor(GameCatalog catalog) {
+        return this;
+    }
+}
@@ -0,0 +1,625 @@
+package student;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Column based copy of a game collection.
+ *
+ * Every game is given a dense ordinal (0 to size - 1), and each GameData column
+ * is stored in its own array indexed by that ordinal. Filters can then run as
+ * tight loops over primitive arrays, instead of calling getNumericValue on each
+ * BoardGame. The BoardGame objects themselves are not kept: the names are packed
+ * into one NameArena and a BoardGame is built from the columns when a game is
+ * asked for, which takes a fraction of the heap of holding every game as an
+ * object. The numeric columns (other than id) are PackedColumns, as narrow as
+ * their values allow, with ratings and difficulties stored as fixed point.
+ *
+ * For every column the catalog also keeps the ordinals sorted on that column (the
+ * same order BoardGameSortStrategy gives), so sorted results can be produced by
+ * walking that order instead of sorting. Numeric orders are built with the
+ * catalog; the name orders are built the first time they are asked for, as
+ * sorting strings is much slower and not every session sorts on name. Names
+ * have a trigram index of their lower case, for contains searches, names and
+ * ids are hashed so a game can be looked up by either, and statistics of each
+ * numeric column are gathered to guess how selective a filter is. Minimum to
+ * maximum players and play time are indexed as intervals, so games that support
+ * a player count or fit a time slot are found without a scan, and the numeric
+ * features of every game are kept in a KD-tree to find similar games.
+ *
+ * The catalog is never changed after it is built (the lazily built name orders
+ * are published through an AtomicReferenceArray), so it can be shared by any
+ * number of threads and Planner sessions without locking.
+ */
+public final class GameCatalog {
+    /** Number of buckets in each radix sort pass (one byte). */
+    private static final int RADIX = 256;
+
+    /** Number of games. */
+    private final int size;
+    /** Game names, indexed by ordinal. */
+    private final NameArena names;
+    /** Game ids, indexed by ordinal. */
+    private final int[] ids;
+    /** Ranks, indexed by ordinal. */
+    private final PackedColumn ranks;
+    /** Minimum players, indexed by ordinal. */
+    private final PackedColumn minPlayers;
+    /** Maximum players, indexed by ordinal. */
+    private final PackedColumn maxPlayers;
+    /** Minimum play times, indexed by ordinal. */
+    private final PackedColumn minTimes;
+    /** Maximum play times, indexed by ordinal. */
+    private final PackedColumn maxTimes;
+    /** Years published, indexed by ordinal. */
+    private final PackedColumn years;
+    /** Average ratings, indexed by ordinal. */
+    private final PackedColumn ratings;
+    /** Average difficulties, indexed by ordinal. */
+    private final PackedColumn difficulties;
+    /** Ordinals in ascending order of each column, indexed by GameData ordinal. */
+    private final AtomicReferenceArray<int[]> sortOrders;
+    /** Trigram index of the names, in lower case. */
+    private final TrigramIndex nameIndex;
+    /** Hash index of the names, ignoring case, and the ids. */
+    private final KeyIndex keyIndex;
+    /** Every ordinal, the filter state with no filters applied. */
+    private final BitSet allGames;
+    /** Statistics of the numeric columns, indexed by GameData ordinal. */
+    private final ColumnStats[] stats;
+    /** Interval index of minimum to maximum players. */
+    private final IntervalIndex playerIntervals;
+    /** Interval index of minimum to maximum play time. */
+    private final IntervalIndex timeIntervals;
+    /** KD-tree of the numeric features, for finding similar games. */
+    private final SimilarityIndex similarity;
+    /** Hash of the ids and names of the games, see fingerprint. */
+    private final long fingerprint;
+
+    /**
+     * Builds the catalog from a collection of games.
+     *
+     * Ordinals are given out in the iteration order of the collection.
+     *
+     * @param collection the games to store
+     */
+    public GameCatalog(Collection<BoardGame> collection) {
+        BoardGame[] games = collection.toArray(new BoardGame[0]);
+        size = games.length;
+        String[] gameNames = new String[size];
+        ids = new int[size];
+        int[] gameRanks = new int[size];
+        int[] gameMinPlayers = new int[size];
+        int[] gameMaxPlayers = new int[size];
+        int[] gameMinTimes = new int[size];
+        int[] gameMaxTimes = new int[size];
+        int[] gameYears = new int[size];
+        double[] gameRatings = new double[size];
+        double[] gameDifficulties = new double[size];
+        long hash = size;
+        for (int i = 0; i < size; i++) {
+            BoardGame game = games[i];
+            gameNames[i] = game.getName();
+            ids[i] = game.getId();
+            gameRanks[i] = game.getRank();
+            gameMinPlayers[i] = game.getMinPlayers();
+            gameMaxPlayers[i] = game.getMaxPlayers();
+            gameMinTimes[i] = game.getMinPlayTime();
+            gameMaxTimes[i] = game.getMaxPlayTime();
+            gameYears[i] = game.getYearPublished();
+            gameRatings[i] = game.getRating();
+            gameDifficulties[i] = game.getDifficulty();
+            hash += mix(((long) ids[i] << 32) ^ (gameNames[i].hashCode() & 0xFFFFFFFFL));
+        }
+        fingerprint = hash;
+        names = new NameArena(gameNames);
+        ranks = PackedColumn.ofInts(gameRanks);
+        minPlayers = PackedColumn.ofInts(gameMinPlayers);
+        maxPlayers = PackedColumn.ofInts(gameMaxPlayers);
+        minTimes = PackedColumn.ofInts(gameMinTimes);
+        maxTimes = PackedColumn.ofInts(gameMaxTimes);
+        years = PackedColumn.ofInts(gameYears);
+        ratings = PackedColumn.ofDecimals(gameRatings);
+        difficulties = PackedColumn.ofDecimals(gameDifficulties);
+
+        sortOrders = new AtomicReferenceArray<>(GameData.values().length);
+        for (GameData col : GameData.values()) {
+            if (column(col) != null) {
+                sortOrders.set(col.ordinal(), buildNumericSortOrder(col));
+            }
+        }
+        nameIndex = new TrigramIndex(names);
+        keyIndex = new KeyIndex(names, ids);
+        playerIntervals = new IntervalIndex(sortOrder(GameData.MIN_PLAYERS), minPlayers,
+                maxPlayers);
+        timeIntervals = new IntervalIndex(sortOrder(GameData.MIN_TIME), minTimes, maxTimes);
+        similarity = new SimilarityIndex(size, ratings::get, difficulties::get,
+                minPlayers::get, maxPlayers::get, minTimes::get, maxTimes::get, years::get);
+        allGames = new BitSet(size);
+        allGames.set(0, size);
+
+        stats = new ColumnStats[GameData.values().length];
+        for (GameData col : GameData.values()) {
+            if (FilterClause.isNumericColumn(col)) {
+                stats[col.ordinal()] = buildStats(col);
+            }
+        }
+    }
+
+    /**
+     * Builds the statistics of a numeric column from its sorted order.
+     *
+     * @param col a numeric column other than id
+     * @return the statistics
+     */
+    private ColumnStats buildStats(GameData col) {
+        int[] order = sortOrder(col);
+        PackedColumn values = column(col);
+        double[] sorted = new double[countOrdered(col)];
+        for (int k = 0; k < sorted.length; k++) {
+            sorted[k] = values.get(order[k]);
+        }
+        return new ColumnStats(sorted);
+    }
+
+    /**
+     * Sorts the ordinals on a numeric column.
+     *
+     * Each value is turned into a long that sorts the same way as the column's
+     * comparator, then the ordinals are radix sorted on those keys, so no comparator
+     * is called. The sort is stable, so ties stay in ordinal order.
+     *
+     * @param col the column to sort on
+     * @return the ordinals in ascending order of the column
+     */
+    private int[] buildNumericSortOrder(GameData col) {
+        long[] keys = new long[size];
+        PackedColumn values = column(col);
+        if (!values.isDecimal()) {
+            for (int i = 0; i < size; i++) {
+                keys[i] = values.getInt(i);
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                // flip the magnitude of negatives so the bits order like Double.compare
+                long bits = Double.doubleToLongBits(values.get(i));
+                keys[i] = bits ^ ((bits >> (Long.SIZE - 1)) & Long.MAX_VALUE);
+            }
+        }
+        int[] order = new int[size];
+        Arrays.setAll(order, i -> i);
+        radixSort(keys, order);
+        return order;
+    }
+
+    /**
+     * Sorts the ordinals on a string column (and id, which BoardGameSortStrategy
+     * sorts by name), comparing the names in the arena the same way its comparator
+     * does.
+     *
+     * @param col the column to sort on
+     * @return the ordinals in ascending order of the column
+     */
+    private int[] buildSortOrder(GameData col) {
+        Integer[] boxed = new Integer[size];
+        Arrays.setAll(boxed, i -> i);
+        Arrays.sort(boxed, (a, b) -> compare(col, a, b));
+        return Arrays.stream(boxed).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Stable least significant byte radix sort of signed keys, moving the ordinals
+     * along with them. Passes where every key has the same byte are skipped, so
+     * small whole numbers only take a few passes.
+     *
+     * @param keys  the keys, sorted in place
+     * @param order the ordinals, moved the same way as the keys
+     */
+    private static void radixSort(long[] keys, int[] order) {
+        int size = keys.length;
+        long[] keyBuffer = new long[size];
+        int[] orderBuffer = new int[size];
+        int[] counts = new int[RADIX];
+        for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+            Arrays.fill(counts, 0);
+            for (long key : keys) {
+                counts[digit(key, shift)]++;
+            }
+            if (size == 0 || counts[digit(keys[0], shift)] == size) {
+                continue;
+            }
+            for (int d = 0, total = 0; d < RADIX; d++) {
+                int count = counts[d];
+                counts[d] = total;
+                total += count;
+            }
+            for (int i = 0; i < size; i++) {
+                int at = counts[digit(keys[i], shift)]++;
+                keyBuffer[at] = keys[i];
+                orderBuffer[at] = order[i];
+            }
+            System.arraycopy(keyBuffer, 0, keys, 0, size);
+            System.arraycopy(orderBuffer, 0, order, 0, size);
+        }
+    }
+
+    /**
+     * Get one byte of a key for the radix sort, with the sign bit flipped so
+     * negative keys come first.
+     *
+     * @param key   the key
+     * @param shift which byte, in bits
+     * @return the byte, 0 to 255
+     */
+    private static int digit(long key, int shift) {
+        return (int) (((key ^ Long.MIN_VALUE) >>> shift) & (RADIX - 1));
+    }
+
+    /**
+     * Get the number of games in the catalog.
+     *
+     * @return number of games
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get a fingerprint of the games in the catalog: a hash of the id and name of
+     * each one, which does not depend on the order they are in. Saved lists carry
+     * it, so a list can tell whether it is loaded into the catalog it came from.
+     *
+     * @return the fingerprint
+     */
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Get the game with the given ordinal, built from the columns. Each call gives
+     * a new BoardGame, equal to the one the catalog was built from.
+     *
+     * @param ordinal the ordinal of the game
+     * @return the game
+     */
+    public BoardGame game(int ordinal) {
+        return new BoardGame(names.get(ordinal), ids[ordinal], minPlayers.getInt(ordinal),
+                maxPlayers.getInt(ordinal), minTimes.getInt(ordinal), maxTimes.getInt(ordinal),
+                difficulties.get(ordinal), ranks.getInt(ordinal), ratings.get(ordinal),
+                years.getInt(ordinal));
+    }
+
+    /**
+     * Get the name of the game with the given ordinal, unpacked as a new String.
+     *
+     * @param ordinal the ordinal of the game
+     * @return the name of the game
+     */
+    public String name(int ordinal) {
+        return names.get(ordinal);
+    }
+
+    /**
+     * Compares two games on a column, the same way BoardGameSortStrategy's
+     * comparator for the column does, without building either game or unpacking
+     * either name.
+     *
+     * @param col the column to compare on
+     * @param a   the ordinal of one game
+     * @param b   the ordinal of the other
+     * @return negative, zero or positive as a comes before, with or after b
+     */
+    public int compare(GameData col, int a, int b) {
+        PackedColumn values = column(col);
+        if (values != null) {
+            return values.isDecimal() ? Double.compare(values.get(a), values.get(b))
+                    : Integer.compare(values.getInt(a), values.getInt(b));
+        }
+        if (col == GameData.NAME) {
+            return names.compareIgnoreCase(a, b);
+        }
+        return names.compare(a, b);
+    }
+
+    /**
+     * Get the statistics of a column, gathered when the catalog was built.
+     *
+     * @param col the column
+     * @return the statistics, or null if the column is not a numeric one that can
+     *         be filtered on
+     */
+    public ColumnStats stats(GameData col) {
+        return stats[col.ordinal()];
+    }
+
+    /**
+     * Guesses how many games have a name containing a piece of text, from the
+     * trigram index. Cheap, as no posting lists are intersected.
+     *
+     * @param lowerNeedle the text to search for, in lower case
+     * @return the most games that can match, or -1 if the text is too short to
+     *         tell
+     */
+    int estimateNameMatches(String lowerNeedle) {
+        return nameIndex.estimate(lowerNeedle);
+    }
+
+    /**
+     * Finds the selected games whose players or play time interval starts at or
+     * before one value and ends at or after another.
+     *
+     * The interval index walks the games that start early enough. When fewer games
+     * end late enough than that, those are walked instead, from the sorted order of
+     * the end column, checking each one's start.
+     *
+     * @param start    the column the interval starts at, MIN_PLAYERS or MIN_TIME
+     * @param startsBy the latest start
+     * @param endsBy   the earliest end
+     * @param games    the games to look in, as a set of ordinals
+     * @return a new set with the games that match
+     * @throws IllegalArgumentException if the column does not start an interval
+     * @see IntervalIndex#find(int, int, BitSet)
+     */
+    BitSet findIntervals(GameData start, int startsBy, int endsBy, BitSet games) {
+        IntervalIndex index;
+        GameData end;
+        switch (start) {
+            case MIN_PLAYERS:
+                index = playerIntervals;
+                end = GameData.MAX_PLAYERS;
+                break;
+            case MIN_TIME:
+                index = timeIntervals;
+                end = GameData.MAX_TIME;
+                break;
+            default:
+                throw new IllegalArgumentException("Not the start of an interval: " + start);
+        }
+        int endingFrom = countBelow(end, endsBy, false);
+        if (size() - endingFrom >= index.countStartingBy(startsBy)) {
+            return index.find(startsBy, endsBy, games);
+        }
+        int[] order = sortOrder(end);
+        PackedColumn starts = column(start);
+        BitSet matches = new BitSet(size());
+        for (int k = endingFrom; k < order.length; k++) {
+            int game = order[k];
+            if (starts.getInt(game) <= startsBy && games.get(game)) {
+                matches.set(game);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Finds the ordinal of the game with a name, ignoring case, through the hash
+     * index of the names.
+     *
+     * @param name the name of the game
+     * @return the lowest ordinal of a game with that name, or -1 if there is none
+     */
+    int ordinalOf(String name) {
+        return keyIndex.firstNamed(NameArena.lower(name));
+    }
+
+    /**
+     * Finds the next game with the same name as a game, ignoring case, so every
+     * game with a name can be gone through starting from ordinalOf.
+     *
+     * @param ordinal the ordinal of a game
+     * @return the next higher ordinal of a game with that name, or -1 if there is
+     *         none
+     */
+    int nextWithSameName(int ordinal) {
+        return keyIndex.nextNamed(ordinal);
+    }
+
+    /**
+     * Finds the ordinal of the game with an id (objectid), through the hash index
+     * of the ids.
+     *
+     * @param id the id of the game
+     * @return the lowest ordinal of a game with that id, or -1 if there is none
+     */
+    int ordinalOfId(int id) {
+        return keyIndex.withId(id);
+    }
+
+    /**
+     * Finds the selected games most like a game: nearest on rating, difficulty,
+     * players, play time and year.
+     *
+     * @param ordinal the game to compare with, which is never in the result
+     * @param k       the most games to find
+     * @param games   the games to look in, as a set of ordinals
+     * @return the ordinals of the nearest games, nearest first
+     * @see SimilarityIndex
+     */
+    public int[] nearest(int ordinal, int k, BitSet games) {
+        return similarity.nearest(ordinal, k, games);
+    }
+
+    /**
+     * Finds the selected games most like a game by comparing with every one of
+     * them, the way {@link #nearest(int, int, BitSet)} would without the KD-tree.
+     *
+     * @param ordinal the game to compare with, which is never in the result
+     * @param k       the most games to find
+     * @param games   the games to look in, as a set of ordinals
+     * @return the ordinals of the nearest games, nearest first
+     */
+    public int[] nearestByScan(int ordinal, int k, BitSet games) {
+        return similarity.nearestByScan(ordinal, k, games);
+    }
+
+    /**
+     * Get the set of every ordinal in the catalog.
+     *
+     * The set is shared, not copied, so it must not be changed. Filters always
+     * build a new set, so it can be used as a starting state by every session.
+     *
+     * @return every ordinal
+     */
+    BitSet allGames() {
+        return allGames;
+    }
+
+    /**
+     * Get the names of the games, to compare or search without unpacking them.
+     *
+     * @return the names, indexed by ordinal
+     */
+    NameArena names() {
+        return names;
+    }
+
+    /**
+     * Finds the games whose name might contain a piece of text, using the trigram
+     * index of the names.
+     *
+     * @param lowerNeedle the text to search for, in lower case
+     * @return the ordinals of the games to check with contains, in ascending order,
+     *         or null if the text is too short for the index and every name must
+     *         be checked
+     * @see TrigramIndex#candidates(String)
+     */
+    int[] nameCandidates(String lowerNeedle) {
+        return nameIndex.candidates(lowerNeedle);
+    }
+
+    /**
+     * Get the ordinals sorted on a column, in ascending order.
+     *
+     * The array is shared, not copied, so it must not be changed. Walk it
+     * backwards for descending order.
+     *
+     * @param col the column
+     * @return the ordinals in ascending order of the column
+     * @see BoardGameSortStrategy#getComparatorForColumn(GameData)
+     */
+    int[] sortOrder(GameData col) {
+        int[] order = sortOrders.get(col.ordinal());
+        if (order == null) {
+            // two threads may both build it, but they build the same thing
+            order = buildSortOrder(col);
+            sortOrders.set(col.ordinal(), order);
+        }
+        return order;
+    }
+
+    /**
+     * Counts the games whose value on a numeric column comes before a value in the
+     * column's sorted order, by binary search. Those games are the start of
+     * sortOrder(col).
+     *
+     * @param col       a numeric column other than id
+     * @param value     the value to compare with
+     * @param inclusive whether games equal to the value are counted too
+     * @return the number of games below (or at) the value, not counting NaN
+     * @throws IllegalArgumentException if the column is not numeric or is id
+     */
+    int countBelow(GameData col, double value, boolean inclusive) {
+        int[] order = numericSortOrder(col);
+        PackedColumn values = column(col);
+        int low = 0;
+        int high = countOrdered(col);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            double found = values.get(order[mid]);
+            if (found < value || inclusive && found == value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Counts the games with a real value on a numeric column. NaN sorts after every
+     * number but never matches a comparison, so range lookups have to stop before it.
+     *
+     * @param col a numeric column other than id
+     * @return the number of games whose value is not NaN
+     * @throws IllegalArgumentException if the column is not numeric or is id
+     */
+    int countOrdered(GameData col) {
+        int[] order = numericSortOrder(col);
+        PackedColumn values = column(col);
+        if (!values.isDecimal()) {
+            return order.length;
+        }
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Double.isNaN(values.get(order[mid]))) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Get the sort order of a column that is sorted on its own values.
+     *
+     * @param col the column
+     * @return the ordinals in ascending order of the column
+     * @throws IllegalArgumentException if the column is not numeric or is id
+     */
+    private int[] numericSortOrder(GameData col) {
+        if (column(col) == null) {
+            throw new IllegalArgumentException("Not a sorted numeric column: " + col);
+        }
+        return sortOrder(col);
+    }
+
+    /**
+     * Get the values of a numeric column.
+     *
+     * The column is shared, never changed.
+     *
+     * @param col the column
+     * @return the values indexed by ordinal, or null if the column is not a numeric
+     *         one other than id
+     */
+    PackedColumn column(GameData col) {
+        switch (col) {
+            case RANK:
+                return ranks;
+            case MIN_PLAYERS:
+                return minPlayers;
+            case MAX_PLAYERS:
+                return maxPlayers;
+            case MIN_TIME:
+                return minTimes;
+            case MAX_TIME:
+                return maxTimes;
+            case YEAR:
+                return years;
+            case RATING:
+                return ratings;
+            case DIFFICULTY:
+                return difficulties;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Spreads the bits of a hash, so summing the hashes of games gives a
+     * fingerprint that any change to a game is likely to change.
+     *
+     * @param hash the hash
+     * @return the mixed hash
+     */
+    private static long mix(long hash) {
+        long h = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
@@ -0,0 +1,122 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A game asked for by name or by id, as typed after list add or list remove:
+ * a name, which is matched ignoring case, or id: and the objectid, such as
+ * id:174430. Several can be given at once, separated by commas, but text that
+ * names a game whole is taken as that one name, as names can have commas in them.
+ *
+ * @param text the key as typed, trimmed
+ * @param name the name asked for, or null for an id
+ * @param id   the id asked for, only used when name is null
+ */
+record GameKey(String text, String name, int id) {
+    /** What an id starts with. */
+    static final String ID_PREFIX = "id:";
+    /** Separates keys given at once. */
+    static final char SEPARATOR = ',';
+
+    /**
+     * Parses a key. Text starting with id: that is not followed by a number is
+     * taken as a name.
+     *
+     * @param text the key as typed
+     * @return the key
+     */
+    static GameKey parse(String text) {
+        String key = text.trim();
+        if (key.regionMatches(true, 0, ID_PREFIX, 0, ID_PREFIX.length())) {
+            try {
+                int id = Integer.parseInt(key.substring(ID_PREFIX.length()).trim());
+                return new GameKey(key, null, id);
+            } catch (NumberFormatException e) {
+                // a name that starts with id:
+            }
+        }
+        return new GameKey(key, key, 0);
+    }
+
+    /**
+     * Parses keys separated by commas, leaving out empty ones.
+     *
+     * @param text the keys as typed
+     * @return the keys, in the order typed
+     */
+    static List<GameKey> parseAll(String text) {
+        List<GameKey> keys = new ArrayList<>();
+        int start = 0;
+        while (start <= text.length()) {
+            int end = text.indexOf(SEPARATOR, start);
+            if (end < 0) {
+                end = text.length();
+            }
+            GameKey key = parse(text.substring(start, end));
+            if (!key.text().isEmpty()) {
+                keys.add(key);
+            }
+            start = end + 1;
+        }
+        return keys;
+    }
+
+    /**
+     * Gets every key text could stand for: the whole text, then each part between
+     * commas if it has any, so they can all be looked for in one pass.
+     *
+     * @param text the keys as typed
+     * @return the keys
+     */
+    static List<GameKey> candidates(String text) {
+        List<GameKey> keys = new ArrayList<>();
+        keys.add(parse(text));
+        if (text.indexOf(SEPARATOR) >= 0) {
+            keys.addAll(parseAll(text));
+        }
+        return keys;
+    }
+
+    /**
+     * Finds the games text asks for. If the whole text is a name or id that is
+     * found, that game is the only one. Otherwise every part between commas must
+     * be found, or none are returned.
+     *
+     * @param text   the keys as typed
+     * @param lookup finds the game of a key, null if there is none
+     * @return the games, in the order asked for
+     * @throws IllegalArgumentException if a game is not found
+     */
+    static List<BoardGame> resolve(String text, Function<GameKey, BoardGame> lookup) {
+        BoardGame whole = lookup.apply(parse(text));
+        if (whole != null) {
+            return List.of(whole);
+        }
+        if (text.indexOf(SEPARATOR) < 0) {
+            throw new IllegalArgumentException("Invalid input format: " + text);
+        }
+        List<BoardGame> found = new ArrayList<>();
+        for (GameKey key : parseAll(text)) {
+            BoardGame game = lookup.apply(key);
+            if (game == null) {
+                throw new IllegalArgumentException("No game found for " + key.text());
+            }
+            found.add(game);
+        }
+        if (found.isEmpty()) {
+            throw new IllegalArgumentException("Invalid input format: " + text);
+        }
+        return found;
+    }
+
+    /**
+     * Checks whether the key is an id.
+     *
+     * @return true for an id, false for a name
+     */
+    boolean isId() {
+        return name == null;
+    }
+}
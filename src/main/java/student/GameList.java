@@ -2,38 +2,88 @@ package student;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
 import java.util.stream.Stream;
 
 public class GameList implements IGameList {
+    /** Order games are numbered in when added from a filtered list. */
+    private static final Comparator<BoardGame> BY_NAME =
+            Comparator.comparing(BoardGame::getName, String.CASE_INSENSITIVE_ORDER);
 
-    /** Set of board games. */
-    private Set<BoardGame> games;
+    /**
+     * Loaded lists holding at least this share of the catalog are put in order by
+     * walking the catalog's name order, rather than by sorting them.
+     */
+    private static final int NAME_ORDER_SHARE = 64;
+
+    /** Set of board games, kept in name order. */
+    private RankedGameSet games;
+    /** Where changes are recorded, null if the list is not kept on disk. */
+    private final ListJournal journal;
+    /** The catalog games are loaded from, null if lists cannot be loaded. */
+    private final GameCatalog catalog;
 
     /**
      * Constructor for the GameList.
      */
     public GameList() {
-        this.games = new HashSet<>();
+        this.games = new RankedGameSet();
+        this.journal = null;
+        this.catalog = null;
+    }
+
+    /**
+     * Constructor for a GameList that can load saved lists, finding their games in
+     * a catalog.
+     *
+     * @param catalog the catalog the games come from
+     */
+    public GameList(GameCatalog catalog) {
+        this.games = new RankedGameSet();
+        this.journal = null;
+        this.catalog = catalog;
+    }
+
+    /**
+     * Constructor for a GameList kept on disk. The list starts with the games
+     * restored from the journal, and every change is recorded in it.
+     *
+     * @param journal the journal of the list
+     */
+    public GameList(ListJournal journal) {
+        this.games = new RankedGameSet();
+        this.journal = journal;
+        this.catalog = journal.catalog();
+        List<BoardGame> restored = new ArrayList<>(journal.restored());
+        restored.sort(RankedGameSet.ORDER);
+        games.addAllSorted(restored);
     }
 
     /**
      * {@inheritDoc}
+     * 
+     * The games are kept in this order, so nothing is sorted.
      */
     @Override
     public List<String> getGameNames() {
-        List<String> gameNames = games.stream()
-                .map(BoardGame::getName)
-                .sorted(String.CASE_INSENSITIVE_ORDER)
-                .toList();
-        return gameNames;
+        List<String> gameNames = new ArrayList<>(games.size());
+        for (BoardGame game : games) {
+            gameNames.add(game.getName());
+        }
+        return Collections.unmodifiableList(gameNames);
     }
 
     /**
@@ -42,6 +92,10 @@ public class GameList implements IGameList {
     @Override
     public void clear() {
         games.clear();
+        if (journal != null) {
+            journal.cleared();
+            commit();
+        }
     }
 
     /**
@@ -54,10 +108,18 @@ public class GameList implements IGameList {
 
     /**
      * {@inheritDoc}
+     * 
+     * A file name ending in .bgl saves the list in a compact binary form instead,
+     * which only holds the ids of the games, see loadGame.
      */
     @Override
     public void saveGame(String filename) {
         try {
+            if (ListExport.isBinary(filename)) {
+                ListExport.write(Path.of(filename), games, games.size(),
+                        catalog == null ? 0 : catalog.fingerprint());
+                return;
+            }
             List<String> gameNames = getGameNames();
             Files.write(Path.of(filename), gameNames, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
         } catch (IOException e) {
@@ -65,17 +127,93 @@ public class GameList implements IGameList {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * A .bgl file is read in one pass, each game found by id in the catalog's hash
+     * index. A text file has a name on each line, each found by name. Either way
+     * the list has to have been given a catalog to find the games in.
+     */
+    @Override
+    public int loadGame(String filename) throws IllegalArgumentException {
+        if (catalog == null) {
+            throw new IllegalArgumentException("No collection to find the games of "
+                    + filename + " in");
+        }
+        ListExport.Imported imported;
+        try {
+            imported = ListExport.isBinary(filename)
+                    ? ListExport.read(Path.of(filename), catalog)
+                    : ListExport.readText(Path.of(filename), catalog);
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("No such file: " + filename, e);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+        if (!imported.sameCatalog()) {
+            System.err.println("Games list was saved from a different collection: " + filename);
+        }
+
+        BitSet ordinals = imported.games();
+        int count = ordinals.cardinality();
+        List<BoardGame> loaded = new ArrayList<>(count);
+        if (count >= catalog.size() / NAME_ORDER_SHARE) {
+            // picked out of the catalog's name order, which leaves only games
+            // with the same name ignoring case to be put in order below
+            for (int game : catalog.sortOrder(GameData.NAME)) {
+                if (ordinals.get(game)) {
+                    loaded.add(catalog.game(game));
+                }
+            }
+        } else {
+            ordinals.stream().forEach(game -> loaded.add(catalog.game(game)));
+        }
+        loaded.sort(RankedGameSet.ORDER);
+        games.clear();
+        games.addAllSorted(loaded);
+        if (journal != null) {
+            journal.cleared();
+            loaded.forEach(journal::added);
+        }
+        commit();
+        return imported.missing();
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void addToList(String str, Stream<BoardGame> filtered) throws IllegalArgumentException {
-        List<BoardGame> gamesList = filtered
-                .sorted(Comparator.comparing(BoardGame::getName, String.CASE_INSENSITIVE_ORDER)).toList();
+        try {
+            addGames(str, new FilteredPicks(filtered));
+        } finally {
+            commit();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addToList(String str, ResultSnapshot result) throws IllegalArgumentException {
+        try {
+            addGames(str, new ResultPicks(result));
+        } finally {
+            commit();
+        }
+    }
 
+    /**
+     * Adds games to the list, see addToList.
+     * 
+     * @param str   the string to parse and add games to the list.
+     * @param picks the games to pick from.
+     * @throws IllegalArgumentException if the string is not valid.
+     */
+    private void addGames(String str, Picks picks) {
         // check if str is all
         if (str.equalsIgnoreCase("all")) {
-            games.addAll(gamesList);
+            picks.all().forEach(this::add);
             return;
         }
 
@@ -83,54 +221,95 @@ public class GameList implements IGameList {
         if (str.matches("^\\d+-\\d+$")) {
             String[] parts = str.split("-");
             int start = Integer.parseInt(parts[0]) - 1;
-            int end = Math.min(Integer.parseInt(parts[1]) - 1, gamesList.size() - 1);
+            int end = Integer.parseInt(parts[1]) - 1;
 
             // Validate range
             if (start < 0) {
                 throw new IllegalArgumentException("Must start from 1 or greater");
             }
 
-            for (int i = start; i <= end; i++) {
-                games.add(gamesList.get(i));
-            }
+            picks.range(start, end + 1).forEach(this::add);
             return;
         }
 
         // check if str is a single number
         if (str.matches("^\\d+$")) {
             int index = Integer.parseInt(str) - 1;
+            if (index < 0) {
+                throw new IllegalArgumentException("Index " + index + " out of bounds");
+            }
 
-            if (index < 0 || index >= gamesList.size()) {
+            List<BoardGame> picked = picks.range(index, index + 1);
+            if (picked.isEmpty()) {
                 throw new IllegalArgumentException(
-                        "Index " + index + " out of bounds: list size is " + gamesList.size());
+                        "Index " + index + " out of bounds: list size is " + picks.size());
             }
-            games.add(gamesList.get(index));
+            add(picked.get(0));
             return;
         }
 
-        // check if str is a single name
-        Optional<BoardGame> gameByName = gamesList.stream()
-                .filter(game -> game.getName().equalsIgnoreCase(str))
-                .findFirst();
+        // check if str is a name or id, or several separated by commas
+        picks.find(str).forEach(this::add);
+    }
 
-        if (gameByName.isPresent()) {
-            games.add(gameByName.get());
-            return;
+    /**
+     * Finds games in a stream by name or id, or several separated by commas,
+     * looking for all of them in one pass.
+     * 
+     * @param str      the names or ids.
+     * @param filtered the games to look in.
+     * @return the games found, see GameKey.resolve.
+     * @throws IllegalArgumentException if any of them is not found.
+     */
+    private static List<BoardGame> findAll(String str, Stream<BoardGame> filtered) {
+        Map<String, BoardGame> byName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        Map<Integer, BoardGame> byId = new HashMap<>();
+        BitSet nameLengths = new BitSet(); // most names are passed over on length alone
+        for (GameKey key : GameKey.candidates(str)) {
+            if (key.isId()) {
+                byId.put(key.id(), null);
+            } else {
+                byName.put(key.name(), null);
+                nameLengths.set(key.name().length());
+            }
         }
-
-        // If we reach here, the input didn't match any valid format
-        throw new IllegalArgumentException("Invalid input format: " + str);
-
+        boolean anyId = !byId.isEmpty();
+        filtered.forEach(game -> { // the first game found for each is kept
+            if (nameLengths.get(game.getName().length())) {
+                byName.replace(game.getName(), null, game);
+            }
+            if (anyId) {
+                byId.replace(game.getId(), null, game);
+            }
+        });
+        return GameKey.resolve(str,
+                key -> key.isId() ? byId.get(key.id()) : byName.get(key.name()));
     }
 
     /**
      * {@inheritDoc}
+     * 
+     * Numbers are positions in name order, as getGameNames lists the games. The
+     * games are kept in that order, so nothing is copied or sorted: a position is
+     * found, and a range cut out, in log n time. Names are found in log n time
+     * too, and ids straight from a hash index.
      */
     @Override
     public void removeFromList(String str) throws IllegalArgumentException {
-        List<BoardGame> gamesList = new ArrayList<>(games);
-        gamesList.sort(Comparator.comparing(BoardGame::getName));
+        try {
+            removeGames(str);
+        } finally {
+            commit();
+        }
+    }
 
+    /**
+     * Removes games from the list, see removeFromList.
+     * 
+     * @param str The string to parse and remove games from the list.
+     * @throws IllegalArgumentException If the string is not valid.
+     */
+    private void removeGames(String str) {
         // check if str is all
         if (str.equalsIgnoreCase("all")) {
             clear();
@@ -141,16 +320,14 @@ public class GameList implements IGameList {
         if (str.matches("^\\d+-\\d+$")) {
             String[] parts = str.split("-");
             int start = Integer.parseInt(parts[0]) - 1;
-            int end = Math.min(Integer.parseInt(parts[1]) - 1, games.size() - 1);
+            int end = Integer.parseInt(parts[1]) - 1;
 
             // Validate range
             if (start < 0) {
                 throw new IllegalArgumentException("Must start from 1 or greater");
             }
 
-            for (int i = start; i <= end; i++) {
-                games.remove(gamesList.get(i));
-            }
+            removed(games.removeRange(start, end + 1));
             return;
         }
 
@@ -158,26 +335,219 @@ public class GameList implements IGameList {
         if (str.matches("^\\d+$")) {
             int index = Integer.parseInt(str) - 1;
 
-            if (index < 0 || index >= gamesList.size()) {
+            if (index < 0 || index >= games.size()) {
                 throw new IllegalArgumentException(
-                        "Index " + index + " out of bounds: list size is " + gamesList.size());
+                        "Index " + index + " out of bounds: list size is " + games.size());
             }
-            games.remove(gamesList.get(index));
+            removed(games.removeRange(index, index + 1));
             return;
         }
 
-        // check if str is a single name
-        Optional<BoardGame> gameByName = gamesList.stream()
-                .filter(game -> game.getName().equalsIgnoreCase(str))
-                .findFirst();
+        // check if str is a name or id, or several separated by commas
+        for (BoardGame game : GameKey.resolve(str,
+                key -> key.isId() ? games.findById(key.id()) : games.findByName(key.name()))) {
+            if (games.remove(game)) {
+                removed(List.of(game));
+            }
+        }
+    }
+
+    /**
+     * Adds a game, recording it in the journal if it was not in the list.
+     * 
+     * @param game the game
+     */
+    private void add(BoardGame game) {
+        if (games.add(game) && journal != null) {
+            journal.added(game);
+        }
+    }
+
+    /**
+     * Records games taken out of the list in the journal.
+     * 
+     * @param removed the games
+     */
+    private void removed(List<BoardGame> removed) {
+        if (journal != null) {
+            for (BoardGame game : removed) {
+                journal.removed(game);
+            }
+        }
+    }
 
-        if (gameByName.isPresent()) {
-            games.remove(gameByName.get());
+    /**
+     * Writes the changes of a command to the journal, reporting (but not failing
+     * on) errors, as saveGame does.
+     */
+    private void commit() {
+        if (journal == null) {
             return;
         }
+        try {
+            journal.commit(games, games.size());
+        } catch (IOException e) {
+            System.err.println("Error saving game list: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the first games of a stream in name order, without sorting the rest.
+     * 
+     * A heap keeps the first count games seen so far, so the stream is read once
+     * and only count games are ever held. Games with the same name stay in the
+     * order they came in, as a stable sort would leave them.
+     * 
+     * @param filtered the games
+     * @param count    the most games to get
+     * @return up to count games, in name order
+     */
+    private static List<BoardGame> firstByName(Stream<BoardGame> filtered, int count) {
+        Comparator<Numbered> order = Comparator.comparing(Numbered::game, BY_NAME)
+                .thenComparingLong(Numbered::position);
+        PriorityQueue<Numbered> first = new PriorityQueue<>(order.reversed()); // last on top
+        long position = 0;
+        for (Iterator<BoardGame> it = filtered.iterator(); it.hasNext() && count > 0;) {
+            Numbered next = new Numbered(it.next(), position++);
+            if (first.size() < count) {
+                first.add(next);
+            } else if (order.compare(next, first.peek()) < 0) {
+                first.poll();
+                first.add(next);
+            }
+        }
+        BoardGame[] result = new BoardGame[first.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = first.poll().game();
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * The games addToList picks from, numbered from 0.
+     */
+    private interface Picks {
+        /**
+         * Get every game.
+         * 
+         * @return the games
+         */
+        Stream<BoardGame> all();
+
+        /**
+         * Get the games at a range of positions.
+         * 
+         * @param from the first position
+         * @param to   the position after the last, past the end gives fewer games
+         * @return the games, in order
+         */
+        List<BoardGame> range(int from, int to);
+
+        /**
+         * Get the number of games, only asked for once range has come back short.
+         * 
+         * @return the number of games
+         */
+        int size();
+
+        /**
+         * Finds games by name or id, or several separated by commas.
+         * 
+         * @param str the names or ids
+         * @return the games found
+         * @throws IllegalArgumentException if any of them is not found
+         */
+        List<BoardGame> find(String str);
+    }
+
+    /**
+     * Games picked from a filtered stream, numbered in name order. Only the games
+     * up to the position asked for are ever put in order, and the stream is read
+     * once.
+     */
+    private static final class FilteredPicks implements Picks {
+        /** The games, not read yet. */
+        private final Stream<BoardGame> filtered;
+        /** Number of games, known once range has read them all. */
+        private int size;
+
+        /**
+         * Builds the picks.
+         * 
+         * @param filtered the games
+         */
+        FilteredPicks(Stream<BoardGame> filtered) {
+            this.filtered = filtered;
+        }
+
+        @Override
+        public Stream<BoardGame> all() {
+            return filtered;
+        }
+
+        @Override
+        public List<BoardGame> range(int from, int to) {
+            List<BoardGame> first = firstByName(filtered, to);
+            size = first.size();
+            return first.subList(Math.min(from, size), size);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
 
-        // If we reach here, the input didn't match any valid format
-        throw new IllegalArgumentException("Invalid input format: " + str);
+        @Override
+        public List<BoardGame> find(String str) {
+            return findAll(str, filtered);
+        }
     }
 
+    /**
+     * Games picked from a planner's last result, numbered in the order it was
+     * shown. Positions are looked up straight from the result, and names and ids
+     * in the catalog's hash index.
+     */
+    private static final class ResultPicks implements Picks {
+        /** The result. */
+        private final ResultSnapshot result;
+
+        /**
+         * Builds the picks.
+         * 
+         * @param result the result
+         */
+        ResultPicks(ResultSnapshot result) {
+            this.result = result;
+        }
+
+        @Override
+        public Stream<BoardGame> all() {
+            return result.games();
+        }
+
+        @Override
+        public List<BoardGame> range(int from, int to) {
+            return result.range(from, to);
+        }
+
+        @Override
+        public int size() {
+            return result.size();
+        }
+
+        @Override
+        public List<BoardGame> find(String str) {
+            return GameKey.resolve(str, result::find);
+        }
+    }
+
+    /**
+     * A game and its position in the stream it came from.
+     * 
+     * @param game     the game
+     * @param position how many games came before it
+     */
+    private record Numbered(BoardGame game, long position) {
+    }
 }
@@ -1,15 +1,24 @@
 package student;
 
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Loads the games from the csv file into a set of BoardGame objects.
@@ -23,6 +32,14 @@ import java.util.stream.Collectors;
 public final class GamesLoader {
     /** Standard csv delim. */
     private static final String DELIMITER = ",";
+    /** Smallest chunk handed to a single parse task. */
+    private static final long MIN_CHUNK_BYTES = 1L << 20;
+    /** Largest chunk, keeps every mapping well under the 2GB mapping limit. */
+    private static final long MAX_CHUNK_BYTES = 1L << 28;
+    /** How many chunks to aim for per worker thread, so uneven chunks balance out. */
+    private static final int CHUNKS_PER_THREAD = 4;
+    /** Size of the reads used when looking for line ends. */
+    private static final int SCAN_BUFFER_BYTES = 8192;
 
     /** private constructor to prevent instantiation. */
     private GamesLoader() {
@@ -38,59 +55,360 @@ public final class GamesLoader {
 
         Set<BoardGame> games = new HashSet<>();
 
-        List<String> lines;
-        try {
+        byte[] bytes;
+        try (InputStream is = GamesLoader.class.getResourceAsStream(filename)) {
             // this is so we can store the files in the resources folder
-            InputStream is = GamesLoader.class.getResourceAsStream(filename);
-            InputStreamReader isr = new InputStreamReader(is, StandardCharsets.UTF_8);
-            BufferedReader reader = new BufferedReader(isr);
-            lines = reader.lines().collect(Collectors.toList());
+            bytes = is.readAllBytes();
         } catch (Exception e) {
             System.err.println("Error reading file: " + e.getMessage());
             return games;
         }
-        if (lines == null || lines.isEmpty()) {
+        return parseCsv(bytes);
+
+    }
+
+    /**
+     * Loads the games from the csv file, using a binary snapshot when it is current.
+     * 
+     * The csv is still read to check its size and checksum against the snapshot,
+     * but it is only parsed if the snapshot is missing or stale. In that case a new
+     * snapshot is written for next time.
+     * 
+     * @param filename the name of the file to load
+     * @param snapshot where the snapshot of this file is kept
+     * @return a set of BoardGame objects
+     * @see CatalogSnapshot
+     */
+    public static Set<BoardGame> loadGamesFile(String filename, Path snapshot) {
+        byte[] bytes;
+        try (InputStream is = GamesLoader.class.getResourceAsStream(filename)) {
+            bytes = is.readAllBytes();
+        } catch (Exception e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            return new HashSet<>();
+        }
+        long checksum = CatalogSnapshot.checksum(bytes);
+        Set<BoardGame> games = readSnapshot(snapshot, bytes.length, checksum);
+        if (games == null) {
+            games = parseCsv(bytes);
+            writeSnapshot(snapshot, bytes.length, checksum, games);
+        }
+        return games;
+    }
+
+    /**
+     * Loads the games from a csv file on the file system, using a binary snapshot
+     * when it is current.
+     * 
+     * @param file     the csv file to load
+     * @param snapshot where the snapshot of this file is kept
+     * @param timings  filled in with the time spent in each phase of the load if
+     *                 the csv has to be parsed
+     * @return a set of BoardGame objects
+     * @see #loadGamesFile(String, Path)
+     */
+    public static Set<BoardGame> loadGamesFile(Path file, Path snapshot, LoadTimings timings) {
+        long size;
+        long checksum;
+        try {
+            size = Files.size(file);
+            checksum = CatalogSnapshot.checksum(file);
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            return new HashSet<>();
+        }
+        Set<BoardGame> games = readSnapshot(snapshot, size, checksum);
+        if (games == null) {
+            games = loadGamesFile(file, timings);
+            writeSnapshot(snapshot, size, checksum, games);
+        }
+        return games;
+    }
+
+    /**
+     * Reads a snapshot, reporting (but not failing on) errors.
+     * 
+     * @param snapshot the snapshot to read
+     * @param size     size of the csv
+     * @param checksum checksum of the csv
+     * @return the games, or null if the snapshot cannot be used
+     */
+    private static Set<BoardGame> readSnapshot(Path snapshot, long size, long checksum) {
+        try {
+            return CatalogSnapshot.read(snapshot, size, checksum);
+        } catch (IOException e) {
+            System.err.println("Error reading snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes a snapshot, reporting (but not failing on) errors.
+     * 
+     * @param snapshot where to write the snapshot
+     * @param size     size of the csv
+     * @param checksum checksum of the csv
+     * @param games    the games loaded from the csv
+     */
+    private static void writeSnapshot(Path snapshot, long size, long checksum,
+            Set<BoardGame> games) {
+        if (games.isEmpty()) {
+            return; // most likely a read error, don't cache it
+        }
+        try {
+            CatalogSnapshot.write(snapshot, size, checksum, games);
+        } catch (IOException e) {
+            System.err.println("Error writing snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses the full contents of a csv file.
+     * 
+     * @param bytes the contents of the file
+     * @return a set of BoardGame objects
+     */
+    private static Set<BoardGame> parseCsv(byte[] bytes) {
+        Set<BoardGame> games = new HashSet<>();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int headerEnd = findLineEnd(buffer, 0);
+        if (headerEnd <= 0) {
             return games;
         }
 
-        Map<GameData, Integer> columnMap = processHeader(lines.remove(0));
+        CsvRowScanner scanner;
+        try {
+            scanner = new CsvRowScanner(processHeader(decodeLine(buffer, 0, headerEnd)));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            return games;
+        }
+        int bodyStart = Math.min(headerEnd + 1, bytes.length);
+        games.addAll(parseRows(buffer.slice(bodyStart, bytes.length - bodyStart), scanner));
+        return games;
+    }
 
-        games = lines.stream().map(line -> toBoardGame(line, columnMap))
-                .filter(game -> game != null).collect(Collectors.toSet());
+    /**
+     * Loads the games from a csv file on the file system.
+     * 
+     * @param file the csv file to load
+     * @return a set of BoardGame objects
+     * @see #loadGamesFile(Path, LoadTimings)
+     */
+    public static Set<BoardGame> loadGamesFile(Path file) {
+        return loadGamesFile(file, new LoadTimings());
+    }
+
+    /**
+     * Loads the games from a csv file on the file system, parsing it in parallel.
+     * 
+     * The file is memory mapped instead of being read into a list of lines. It is
+     * split into chunks that always end on a newline, and each chunk is parsed on
+     * the common ForkJoinPool. The results are merged in file order, so the set
+     * is the same as the one {@link #loadGamesFile(String)} builds for the same
+     * contents.
+     * 
+     * @param file    the csv file to load
+     * @param timings filled in with the time spent in each phase of the load
+     * @return a set of BoardGame objects
+     */
+    public static Set<BoardGame> loadGamesFile(Path file, LoadTimings timings) {
+        Set<BoardGame> games = new HashSet<>();
 
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long start = System.nanoTime();
+            long size = channel.size();
+            long headerEnd = findLineEnd(channel, 0, size);
+            if (headerEnd <= 0) {
+                return games;
+            }
+            Map<GameData, Integer> columnMap = processHeader(readLine(channel, 0, headerEnd));
+            new CsvRowScanner(columnMap); // fail early if a column is missing
+            long bodyStart = Math.min(headerEnd + 1, size);
+            timings.setHeaderNanos(System.nanoTime() - start);
+
+            start = System.nanoTime();
+            List<long[]> chunks = splitChunks(channel, bodyStart, size);
+            timings.setChunks(chunks.size());
+            timings.setChunkNanos(System.nanoTime() - start);
+
+            start = System.nanoTime();
+            List<Callable<List<BoardGame>>> tasks = new ArrayList<>(chunks.size());
+            for (long[] chunk : chunks) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk[0],
+                        chunk[1] - chunk[0]);
+                tasks.add(() -> parseRows(buffer, new CsvRowScanner(columnMap)));
+            }
+            List<List<BoardGame>> parsed = new ArrayList<>(chunks.size());
+            int rows = 0;
+            for (Future<List<BoardGame>> result : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                List<BoardGame> chunkGames = result.get();
+                rows += chunkGames.size();
+                parsed.add(chunkGames);
+            }
+            timings.setRows(rows);
+            timings.setParseNanos(System.nanoTime() - start);
+
+            start = System.nanoTime();
+            games = new HashSet<>(Math.max(16, (int) (rows / 0.75f) + 1));
+            for (List<BoardGame> chunkGames : parsed) {
+                games.addAll(chunkGames); // in file order, so the first duplicate wins
+            }
+            timings.setMergeNanos(System.nanoTime() - start);
+        } catch (IOException | ExecutionException | IllegalArgumentException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted reading file: " + e.getMessage());
+        }
         return games;
+    }
+
+    /**
+     * Splits the body of the file into chunks that end just after a newline.
+     * 
+     * @param channel the open file
+     * @param start   the first byte of the body (after the header)
+     * @param size    the size of the file
+     * @return list of [start, end) byte offsets
+     * @throws IOException if the file cannot be read
+     */
+    private static List<long[]> splitChunks(FileChannel channel, long start, long size)
+            throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        long body = size - start;
+        if (body <= 0) {
+            return chunks;
+        }
+        int targetChunks = ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_THREAD;
+        long chunkSize = Math.min(MAX_CHUNK_BYTES, Math.max(MIN_CHUNK_BYTES, body / targetChunks));
 
+        long chunkStart = start;
+        while (chunkStart < size) {
+            long chunkEnd = size;
+            if (size - chunkStart > chunkSize) {
+                long lineEnd = findLineEnd(channel, chunkStart + chunkSize, size);
+                chunkEnd = lineEnd < 0 ? size : lineEnd + 1;
+            }
+            chunks.add(new long[] {chunkStart, chunkEnd});
+            chunkStart = chunkEnd;
+        }
+        return chunks;
     }
 
     /**
-     * Converts a line from the csv file into a BoardGame object.
+     * Finds the next newline at or after the given position.
      * 
-     * @param line      the line to convert
-     * @param columnMap the map of columns to index
-     * @return a BoardGame object
+     * @param channel the open file
+     * @param from    position to start looking from
+     * @param size    the size of the file
+     * @return the position of the newline, the size if the last line has none, or
+     *         -1 if from is past the end of the file
+     * @throws IOException if the file cannot be read
      */
-    private static BoardGame toBoardGame(String line, Map<GameData, Integer> columnMap) {
-        String[] columns = line.split(DELIMITER);
-        if (columns.length < columnMap.values().stream().max(Integer::compareTo).get()) {
-            return null;
+    private static long findLineEnd(FileChannel channel, long from, long size) throws IOException {
+        if (from >= size) {
+            return -1;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_BYTES);
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i;
+                }
+            }
+            position += read;
         }
+        return size;
+    }
 
-        try {
-            BoardGame game = new BoardGame(columns[columnMap.get(GameData.NAME)],
-                    Integer.parseInt(columns[columnMap.get(GameData.ID)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.MIN_PLAYERS)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.MAX_PLAYERS)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.MIN_TIME)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.MAX_TIME)]),
-                    Double.parseDouble(columns[columnMap.get(GameData.DIFFICULTY)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.RANK)]),
-                    Double.parseDouble(columns[columnMap.get(GameData.RATING)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.YEAR)]));
-            return game;
-        } catch (NumberFormatException e) {
-            // skip if there is an issue
-            return null;
+    /**
+     * Reads a single line from the file, dropping a trailing carriage return.
+     * 
+     * @param channel the open file
+     * @param start   position of the start of the line
+     * @param end     position of the newline (exclusive)
+     * @return the line as a string
+     * @throws IOException if the file cannot be read
+     */
+    private static String readLine(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                break;
+            }
+        }
+        int length = buffer.position();
+        if (length > 0 && buffer.get(length - 1) == '\r') {
+            length--;
+        }
+        return new String(buffer.array(), 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses every line of a buffer into BoardGame objects.
+     * 
+     * @param buffer  the rows, which always end on a line boundary
+     * @param scanner the scanner to turn each row into a game
+     * @return the games in the order they appear in the buffer
+     */
+    private static List<BoardGame> parseRows(ByteBuffer buffer, CsvRowScanner scanner) {
+        List<BoardGame> games = new ArrayList<>();
+        int limit = buffer.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = findLineEnd(buffer, lineStart);
+            int end = lineEnd;
+            if (end > lineStart && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            BoardGame game = scanner.scan(buffer, lineStart, end);
+            if (game != null) {
+                games.add(game);
+            }
+            lineStart = lineEnd + 1;
+        }
+        return games;
+    }
+
+    /**
+     * Finds the next newline in a buffer.
+     * 
+     * @param buffer the buffer to search
+     * @param from   index to start looking from
+     * @return index of the newline, or the limit if the last line has none
+     */
+    private static int findLineEnd(ByteBuffer buffer, int from) {
+        int limit = buffer.limit();
+        int pos = from;
+        while (pos < limit && buffer.get(pos) != '\n') {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Decodes a line of a buffer, dropping a trailing carriage return.
+     * 
+     * @param buffer the buffer holding the line
+     * @param start  index of the start of the line
+     * @param end    index of the newline (exclusive)
+     * @return the line as a string
+     */
+    private static String decodeLine(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        if (length > 0 && buffer.get(end - 1) == '\r') {
+            length--;
         }
+        byte[] bytes = new byte[length];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
     }
 
     /**
@@ -59,6 +59,18 @@ public interface IGameList {
      */
     void saveGame(String filename);
 
+    /**
+     * Replaces the games in the list with those in a file saved by saveGame.
+     * 
+     * Games in the file that are not in the collection are left out.
+     * 
+     * @param filename The name of the file to load the list from.
+     * @return the number of games in the file that were left out.
+     * @throws IllegalArgumentException if the file cannot be read, or there is no
+     *                                  collection to find its games in.
+     */
+    int loadGame(String filename) throws IllegalArgumentException;
+
     /**
      * Adds a game or games to the list.
      * 
@@ -88,6 +100,21 @@ public interface IGameList {
      */
     void addToList(String str, Stream<BoardGame> filtered) throws IllegalArgumentException;
 
+    /**
+     * Adds a game or games to the list, picked from the last result a planner gave.
+     * 
+     * The same as {@link #addToList(String, Stream)}, except that numbers are
+     * positions in the result in the order it was shown, rather than in name
+     * order. Positions are looked up straight from the result, so the filter is
+     * not run or sorted again. Names, and ids written as id:174430, are looked up
+     * in a hash index, and several can be given separated by commas.
+     * 
+     * @param str    the string to parse and add games to the list.
+     * @param result the result to pick games from, see {@link IPlanner#lastResult()}.
+     * @throws IllegalArgumentException if the string is not valid.
+     */
+    void addToList(String str, ResultSnapshot result) throws IllegalArgumentException;
+
     /**
      * Removes a game or games from the list.
      * 
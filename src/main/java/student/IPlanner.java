@@ -1,5 +1,6 @@
 package student;
 
+import java.util.List;
 import java.util.stream.Stream;
 
 /**
@@ -115,9 +116,102 @@ public interface IPlanner {
      */
     Stream<BoardGame> filter(String filter, GameData sortOn, boolean ascending);
 
+    /**
+     * Filters the board games by the passed in text filter, like
+     * {@link #filter(String, GameData, boolean)}, but only returns one page of the
+     * sorted results.
+     * 
+     * For example, the top 20 games by rating among 2 player games is
+     * 
+     * filter("minPlayers<=2,maxPlayers>=2", GameData.RATING, false, 0, 20)
+     * 
+     * The filter is still applied progressively, the same as the other filter
+     * methods, only the returned stream is shorter.
+     * 
+     * @param filter The filter to apply to the board games.
+     * @param sortOn The column to sort the results on.
+     * @param ascending Whether to sort the results in ascending order or descending order.
+     * @param offset How many of the sorted results to skip.
+     * @param limit The most results to return.
+     * @return A stream of at most limit board games, starting at offset.
+     * @throws IllegalArgumentException if offset or limit is negative.
+     */
+    default Stream<BoardGame> filter(String filter, GameData sortOn, boolean ascending,
+            int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        return filter(filter, sortOn, ascending).skip(offset).limit(limit);
+    }
+
+    /**
+     * Filters the board games like {@link #filter(String, GameData, boolean)}, and
+     * records what was done and how long it took in a profile.
+     * 
+     * The default only records the total time, as filtering. Planners that can
+     * tell more (the plan, each clause, sorting) should override it.
+     * 
+     * @param filter The filter to apply to the board games.
+     * @param sortOn The column to sort the results on.
+     * @param ascending Whether to sort the results in ascending order or descending order.
+     * @param profile Where to record the profile.
+     * @return A stream of board games that match the filter.
+     */
+    default Stream<BoardGame> filter(String filter, GameData sortOn, boolean ascending,
+            QueryProfile profile) {
+        profile.start(filter, sortOn, ascending, -1);
+        long start = System.nanoTime();
+        List<BoardGame> games = filter(filter, sortOn, ascending).toList();
+        profile.addClause(filter, "planner", games.size(), System.nanoTime() - start);
+        profile.setMaterializeNanos(0, games.size());
+        return games.stream();
+    }
+
     /**
      * Resets the collection to have no filters applied.
      */
     void reset();
 
+    /**
+     * Undoes the last filter, going back to the games that were there before it.
+     * 
+     * Calling it again undoes the filter before that, and so on, back to the last
+     * reset.
+     * 
+     * @return true if a filter was undone, false if there was nothing to undo.
+     */
+    default boolean undo() {
+        return false;
+    }
+
+    /**
+     * Finds the games most like a game, on rating, difficulty, players, play time and
+     * year, out of the games that pass the current filters.
+     * 
+     * The filters are not changed. The game itself is never in the result, but it
+     * does not have to pass the filters to be compared with.
+     * 
+     * @param name the name of the game to compare with, ignoring case
+     * @param k the most games to return
+     * @return up to k games, the most similar first, or no games if there is no game
+     *         with that name or the planner cannot compare games
+     * @throws IllegalArgumentException if k is negative
+     */
+    default Stream<BoardGame> similar(String name, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative");
+        }
+        return Stream.empty();
+    }
+
+    /**
+     * Get the last result the planner gave, in the order it was given, so games
+     * can be picked from it by position without filtering or sorting again.
+     * 
+     * @return the last result, or null if the planner does not keep it
+     */
+    default ResultSnapshot lastResult() {
+        return null;
+    }
+
 }
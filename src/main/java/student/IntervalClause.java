@@ -0,0 +1,229 @@
+package student;
+
+import java.util.BitSet;
+
+/**
+ * A filter condition on the players or play time of a game as an interval, from
+ * the minimum to the maximum.
+ *
+ * Two operators are understood:
+ * - == covers: players==5 is the games that can be played with 5 players
+ *   (minplayers &lt;= 5 &lt;= maxplayers), and players==2-4 the games that can be
+ *   played with any of 2, 3 or 4 players.
+ * - overlaps: time overlaps 30-60 is the games that can take anywhere from 30 to
+ *   60 minutes (minplaytime &lt;= 60 and maxplaytime &gt;= 30).
+ *
+ * Both are answered through the catalog's interval index, unless only a few games
+ * are selected, when testing those is quicker. Clauses are immutable and can be
+ * shared between plans and planners.
+ */
+final class IntervalClause implements FilterTerm {
+    /** Selections smaller than the catalog size over this are scanned. */
+    private static final int SMALL_SELECTION_DIVISOR = 16;
+    /** The word for the overlaps operator. */
+    static final String OVERLAPS = "overlaps";
+    /** Most digits in a number of a range, so it always fits an int. */
+    private static final int MAX_DIGITS = 9;
+
+    /** The intervals games have. */
+    enum Interval {
+        /** Minimum to maximum players. */
+        PLAYERS("players", GameData.MIN_PLAYERS, GameData.MAX_PLAYERS),
+        /** Minimum to maximum play time. */
+        TIME("time", GameData.MIN_TIME, GameData.MAX_TIME);
+
+        /** The name used in filters. */
+        private final String name;
+        /** The column the interval starts at. */
+        private final GameData start;
+        /** The column the interval ends at. */
+        private final GameData end;
+
+        Interval(String name, GameData start, GameData end) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Finds the interval the current token of a lexer names.
+         *
+         * @param lexer the lexer, on a column token
+         * @return the interval, or null if there is none with that name
+         */
+        static Interval fromToken(FilterLexer lexer) {
+            for (Interval interval : values()) {
+                if (lexer.is(interval.name)) {
+                    return interval;
+                }
+            }
+            return null;
+        }
+    }
+
+    /** The interval to filter on. */
+    private final Interval interval;
+    /** True for overlaps, false for covers (==). */
+    private final boolean overlaps;
+    /** Smallest value of the range asked for. */
+    private final int low;
+    /** Largest value of the range asked for. */
+    private final int high;
+
+    /**
+     * Builds a clause.
+     *
+     * @param interval the interval to filter on
+     * @param overlaps true for overlaps, false for covers
+     * @param low      smallest value of the range
+     * @param high     largest value of the range
+     */
+    private IntervalClause(Interval interval, boolean overlaps, int low, int high) {
+        this.interval = interval;
+        this.overlaps = overlaps;
+        this.low = low;
+        this.high = high;
+    }
+
+    /**
+     * Builds a clause from the value token of a lexer, one number or a range such
+     * as 30-60. Spaces around the dash are fine.
+     *
+     * @param interval the interval to filter on
+     * @param overlaps true for overlaps, false for covers (==)
+     * @param lexer    the lexer, on the value token
+     * @return the clause, or null if the value is not a number or range, or the
+     *         range is backwards
+     */
+    static IntervalClause of(Interval interval, boolean overlaps, FilterLexer lexer) {
+        String text = lexer.source();
+        int end = lexer.end();
+        int at = skipDigits(text, lexer.start(), end);
+        if (at < 0) {
+            return null;
+        }
+        int low = Integer.parseInt(text, lexer.start(), at, 10);
+        int high = low;
+        at = skipSpaces(text, at, end);
+        if (at < end && text.charAt(at) == '-') {
+            int from = skipSpaces(text, at + 1, end);
+            at = skipDigits(text, from, end);
+            if (at < 0) {
+                return null;
+            }
+            high = Integer.parseInt(text, from, at, 10);
+        }
+        if (at != end || low > high) {
+            return null;
+        }
+        return new IntervalClause(interval, overlaps, low, high);
+    }
+
+    /**
+     * Skips the digits of a number.
+     *
+     * @param text the text
+     * @param at   where the number starts
+     * @param end  where the value ends
+     * @return the position after the digits, or -1 if there are none or too many
+     */
+    private static int skipDigits(String text, int at, int end) {
+        int from = at;
+        while (at < end && at - from <= MAX_DIGITS && text.charAt(at) >= '0'
+                && text.charAt(at) <= '9') {
+            at++;
+        }
+        return at == from || at - from > MAX_DIGITS ? -1 : at;
+    }
+
+    /**
+     * Skips spaces.
+     *
+     * @param text the text
+     * @param at   where to start
+     * @param end  where the value ends
+     * @return the position of the first character that is not a space
+     */
+    private static int skipSpaces(String text, int at, int end) {
+        while (at < end && Character.isWhitespace(text.charAt(at))) {
+            at++;
+        }
+        return at;
+    }
+
+    /**
+     * Get the latest start a game can have to match.
+     *
+     * @return the latest start
+     */
+    private int startsBy() {
+        return overlaps ? high : low;
+    }
+
+    /**
+     * Get the earliest end a game can have to match.
+     *
+     * @return the earliest end
+     */
+    private int endsBy() {
+        return overlaps ? low : high;
+    }
+
+    /**
+     * Checks whether applying the clause to a selection uses the interval index.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @param games   the games to filter
+     * @return true for the index, false for a scan of the selection
+     */
+    boolean usesIndex(GameCatalog catalog, BitSet games) {
+        return (long) games.cardinality() * SMALL_SELECTION_DIVISOR >= catalog.size();
+    }
+
+    @Override
+    public BitSet apply(GameCatalog catalog, BitSet games) {
+        if (usesIndex(catalog, games)) {
+            return catalog.findIntervals(interval.start, startsBy(), endsBy(), games);
+        }
+        PackedColumn starts = catalog.column(interval.start);
+        PackedColumn ends = catalog.column(interval.end);
+        int startsBy = startsBy();
+        int endsBy = endsBy();
+        BitSet matches = new BitSet(catalog.size());
+        for (int game = games.nextSetBit(0); game >= 0; game = games.nextSetBit(game + 1)) {
+            if (starts.getInt(game) <= startsBy && ends.getInt(game) >= endsBy) {
+                matches.set(game);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Guesses the share of games the clause keeps from the statistics of the start
+     * and end columns, as if they were not related.
+     *
+     * @param catalog the catalog the clause will be applied to
+     * @return a share from 0 to 1
+     */
+    @Override
+    public double estimate(GameCatalog catalog) {
+        return catalog.stats(interval.start).estimate(Operations.LESS_THAN_EQUALS, startsBy())
+                * catalog.stats(interval.end).estimate(Operations.GREATER_THAN_EQUALS, endsBy());
+    }
+
+    @Override
+    public double cost() {
+        return 1;
+    }
+
+    /**
+     * Get the clause written out as a filter.
+     *
+     * @return the clause, such as players==5 or time overlaps 30-60
+     */
+    @Override
+    public String toString() {
+        String range = low == high ? Integer.toString(low) : low + "-" + high;
+        return interval.name + (overlaps ? " " + OVERLAPS + " " : "==") + range;
+    }
+}
@@ -0,0 +1,126 @@
+package student;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Index of one interval per game, such as minimum to maximum players, for finding
+ * the games whose interval starts at or before one value and ends at or after
+ * another.
+ *
+ * That one lookup answers both questions asked of intervals: an interval covers
+ * a to b when it starts at or before a and ends at or after b, and it overlaps a
+ * to b when it starts at or before b and ends at or after a.
+ *
+ * The games are kept in ascending order of start (the catalog's sort order of the
+ * start column), so the ones that start early enough are a prefix of that order,
+ * found by binary search. Over that order sits a tree holding the largest end of
+ * each run of games, so whole runs that end too early are skipped, and only the
+ * games that match (plus a few tree nodes per match) are looked at. The starts and
+ * the tree are PackedColumns, as narrow as the values allow.
+ *
+ * The index is never changed after it is built.
+ */
+final class IntervalIndex {
+    /** Ordinals in ascending order of start. */
+    private final int[] order;
+    /** Starts, in the same order as order. */
+    private final PackedColumn starts;
+    /** Number of leaves of the tree, a power of two. */
+    private final int leaves;
+    /**
+     * Largest end under each node, in heap layout: node 1 is the root, the children
+     * of node i are 2i and 2i + 1, and leaf k is node leaves + k. Leaves past the
+     * last game hold the smallest end, and are never looked at.
+     */
+    private final PackedColumn maxEnds;
+
+    /**
+     * Builds the index.
+     *
+     * @param order  the ordinals in ascending order of start, shared not copied
+     * @param starts the starts, indexed by ordinal
+     * @param ends   the ends, indexed by ordinal
+     */
+    IntervalIndex(int[] order, PackedColumn starts, PackedColumn ends) {
+        this.order = order;
+        int[] sortedStarts = new int[order.length];
+        leaves = Integer.highestOneBit(Math.max(order.length, 1) * 2 - 1);
+        int[] tree = new int[leaves * 2];
+        int smallest = Integer.MAX_VALUE;
+        for (int k = 0; k < order.length; k++) {
+            sortedStarts[k] = starts.getInt(order[k]);
+            tree[leaves + k] = ends.getInt(order[k]);
+            smallest = Math.min(smallest, tree[leaves + k]);
+        }
+        Arrays.fill(tree, leaves + order.length, tree.length, order.length > 0 ? smallest : 0);
+        for (int node = leaves - 1; node > 0; node--) {
+            tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+        }
+        this.starts = PackedColumn.ofInts(sortedStarts);
+        maxEnds = PackedColumn.ofInts(tree);
+    }
+
+    /**
+     * Finds the selected games whose interval starts at or before one value and
+     * ends at or after another.
+     *
+     * @param startsBy the latest start
+     * @param endsBy   the earliest end
+     * @param games    the games to look in, as a set of ordinals
+     * @return a new set with the games that match
+     */
+    BitSet find(int startsBy, int endsBy, BitSet games) {
+        BitSet matches = new BitSet(order.length);
+        find(1, 0, leaves, countStartingBy(startsBy), endsBy, games, matches);
+        return matches;
+    }
+
+    /**
+     * Counts the games that start at or before a value, the length of the prefix
+     * of the order to look in.
+     *
+     * @param startsBy the latest start
+     * @return the number of games
+     */
+    int countStartingBy(int startsBy) {
+        int low = 0;
+        int high = starts.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts.getInt(mid) <= startsBy) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Collects the matching games under one node of the tree.
+     *
+     * @param node    the node
+     * @param from    the first leaf under the node
+     * @param to      one past the last leaf under the node
+     * @param limit   one past the last leaf that starts early enough
+     * @param endsBy  the earliest end
+     * @param games   the games to look in
+     * @param matches where to set the games that match
+     */
+    private void find(int node, int from, int to, int limit, int endsBy, BitSet games,
+            BitSet matches) {
+        if (from >= limit || maxEnds.getInt(node) < endsBy) {
+            return; // nothing under this node starts early or ends late enough
+        }
+        if (node >= leaves) {
+            if (games.get(order[from])) {
+                matches.set(order[from]);
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        find(2 * node, from, mid, limit, endsBy, games, matches);
+        find(2 * node + 1, mid, to, limit, endsBy, games, matches);
+    }
+}
@@ -0,0 +1,138 @@
+package student;
+
+import java.util.Arrays;
+
+/**
+ * Hash index from the lower case name and from the id of each game to its
+ * ordinal, so a game named or given by id is found without a scan.
+ *
+ * Both are open addressing tables with linear probing, holding ordinals only:
+ * a name slot is checked against the name of the ordinal in it, read from the
+ * catalog's NameArena in lower case, and an id slot against the id. Games with the same lower case name are
+ * chained in ordinal order, so every one of them can be found, starting with the
+ * first. If two games share an id, the first is the one found.
+ *
+ * The index is never changed after it is built.
+ */
+final class KeyIndex {
+    /** Marks an unused slot. */
+    private static final int EMPTY = -1;
+    /** Marks the end of a chain of games with the same name. */
+    static final int NONE = -1;
+
+    /** Names, indexed by ordinal, shared not copied. */
+    private final NameArena names;
+    /** Ids, indexed by ordinal, shared not copied. */
+    private final int[] ids;
+    /** Slots of the name table, the first ordinal with each name. */
+    private final int[] nameSlots;
+    /** Next ordinal with the same lower case name, indexed by ordinal. */
+    private final int[] nextSameName;
+    /** Slots of the id table, the first ordinal with each id. */
+    private final int[] idSlots;
+    /** Slot mask, the tables being a power of two long. */
+    private final int mask;
+
+    /**
+     * Builds the index.
+     *
+     * @param names the names, indexed by ordinal
+     * @param ids   the ids, indexed by ordinal
+     */
+    KeyIndex(NameArena names, int[] ids) {
+        this.names = names;
+        this.ids = ids;
+        int capacity = Integer.highestOneBit(Math.max(ids.length, 1) * 2 - 1) * 2;
+        mask = capacity - 1;
+        nameSlots = new int[capacity];
+        idSlots = new int[capacity];
+        Arrays.fill(nameSlots, EMPTY);
+        Arrays.fill(idSlots, EMPTY);
+        nextSameName = new int[ids.length];
+        // backwards, so each chain ends up in ordinal order
+        for (int game = ids.length - 1; game >= 0; game--) {
+            int slot = nameSlot(game);
+            nextSameName[game] = nameSlots[slot] == EMPTY ? NONE : nameSlots[slot];
+            nameSlots[slot] = game;
+            idSlots[idSlot(ids[game])] = game;
+        }
+    }
+
+    /**
+     * Finds the first game with a lower case name.
+     *
+     * @param lowerName the name, in lower case
+     * @return its ordinal, or NONE if no game has that name
+     */
+    int firstNamed(String lowerName) {
+        int slot = mix(lowerName.hashCode()) & mask;
+        while (nameSlots[slot] != EMPTY && !names.equalsLower(nameSlots[slot], lowerName)) {
+            slot = (slot + 1) & mask;
+        }
+        int game = nameSlots[slot];
+        return game == EMPTY ? NONE : game;
+    }
+
+    /**
+     * Finds the next game with the same lower case name as a game.
+     *
+     * @param game the ordinal of the game
+     * @return the ordinal of the next game with that name, or NONE
+     */
+    int nextNamed(int game) {
+        return nextSameName[game];
+    }
+
+    /**
+     * Finds the game with an id.
+     *
+     * @param id the id
+     * @return its ordinal, or NONE if no game has that id
+     */
+    int withId(int id) {
+        int game = idSlots[idSlot(id)];
+        return game == EMPTY ? NONE : game;
+    }
+
+    /**
+     * Finds the slot of a game's name: the one holding a game with the same lower
+     * case name, or the empty slot where it would go.
+     *
+     * @param game the ordinal of the game
+     * @return the slot
+     */
+    private int nameSlot(int game) {
+        int slot = mix(names.lowerHash(game)) & mask;
+        while (nameSlots[slot] != EMPTY && !names.equalsLower(nameSlots[slot], game)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Finds the slot of an id: the one holding a game with that id, or the empty
+     * slot where it would go.
+     *
+     * @param id the id
+     * @return the slot
+     */
+    private int idSlot(int id) {
+        int slot = mix(id) & mask;
+        while (idSlots[slot] != EMPTY && ids[idSlots[slot]] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Spreads the bits of a hash, so keys that differ only in high bits, or are
+     * consecutive ids, do not crowd into neighbouring slots.
+     *
+     * @param hash the hash
+     * @return the mixed hash
+     */
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
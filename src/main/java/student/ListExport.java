@@ -0,0 +1,219 @@
+package student;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact binary form of a games list (.bgl), which only stores the ids of the
+ * games. A list is read back in one pass, finding each game by id in the
+ * catalog's hash index, so no names are parsed or looked up.
+ *
+ * The ids are sorted and each is stored as its difference from the one before,
+ * as a varint: seven bits a byte, low bits first, the top bit set on every byte
+ * but the last. Ids of a list are mostly close together, so most take one or two
+ * bytes rather than a line of text each. The header carries the fingerprint of
+ * the catalog the list was saved from.
+ *
+ * Layout (big endian):
+ *
+ * <pre>
+ * int magic, int version, long catalog fingerprint, varint game count,
+ * varint id difference per game (the first from 0), int checksum of everything
+ * before it
+ * </pre>
+ */
+final class ListExport {
+    /** File extension of the binary form, the text form being anything else. */
+    static final String EXTENSION = ".bgl";
+    /** Marks the file as a binary games list ("BGE1"). */
+    private static final int MAGIC = 0x42474531;
+    /** Format version, bump if the layout changes. */
+    private static final int VERSION = 1;
+    /** Size of the buffers the file is read and written through. */
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    /**
+     * A list read back from a file.
+     *
+     * @param games       the ordinals of the games found in the catalog
+     * @param missing     the number of games not in the catalog, left out
+     * @param sameCatalog true if the list was saved from a catalog with the same
+     *                    fingerprint
+     */
+    record Imported(BitSet games, int missing, boolean sameCatalog) {
+    }
+
+    /** private constructor to prevent instantiation. */
+    private ListExport() {
+    }
+
+    /**
+     * Checks whether a file name is for the binary form.
+     *
+     * @param filename the file name
+     * @return true if it ends in .bgl, ignoring case
+     */
+    static boolean isBinary(String filename) {
+        return filename.regionMatches(true, filename.length() - EXTENSION.length(), EXTENSION,
+                0, EXTENSION.length());
+    }
+
+    /**
+     * Writes the games of a list.
+     *
+     * @param file        where to write them, replaced if it exists
+     * @param games       the games
+     * @param count       how many games there are
+     * @param fingerprint the fingerprint of the catalog the games come from
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Path file, Iterable<BoardGame> games, int count, long fingerprint)
+            throws IOException {
+        int[] ids = new int[count];
+        int size = 0;
+        for (BoardGame game : games) {
+            ids[size++] = game.getId();
+        }
+        Arrays.sort(ids, 0, size);
+
+        CRC32C crc = new CRC32C();
+        try (OutputStream buffered = new BufferedOutputStream(Files.newOutputStream(file),
+                BUFFER_BYTES);
+                DataOutputStream out = new DataOutputStream(
+                        new CheckedOutputStream(buffered, crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            writeVarint(out, size);
+            int previous = 0;
+            for (int i = 0; i < size; i++) {
+                writeVarint(out, ids[i] - previous); // never negative once sorted, as unsigned
+                previous = ids[i];
+            }
+            out.flush();
+            new DataOutputStream(buffered).writeInt((int) crc.getValue());
+        }
+    }
+
+    /**
+     * Reads a list, finding each game by id in a catalog as it goes.
+     *
+     * @param file    the file to read
+     * @param catalog the catalog to find the games in
+     * @return the games found, and how many were not
+     * @throws IOException if the file cannot be read, or is not a binary games list
+     *                     or is damaged
+     */
+    static Imported read(Path file, GameCatalog catalog) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (InputStream buffered = new BufferedInputStream(Files.newInputStream(file),
+                BUFFER_BYTES)) {
+            DataInputStream in = new DataInputStream(new CheckedInputStream(buffered, crc));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a binary games list: " + file);
+            }
+            long fingerprint = in.readLong();
+            int count = readVarint(in);
+            if (count < 0) {
+                throw new IOException("Damaged games list: " + file);
+            }
+            BitSet games = new BitSet(catalog.size());
+            int missing = 0;
+            int id = 0;
+            for (int i = 0; i < count; i++) {
+                id += readVarint(in);
+                int game = catalog.ordinalOfId(id);
+                if (game == KeyIndex.NONE) {
+                    missing++;
+                } else {
+                    games.set(game);
+                }
+            }
+            int expected = (int) crc.getValue();
+            if (new DataInputStream(buffered).readInt() != expected || buffered.read() != -1) {
+                throw new IOException("Damaged games list: " + file);
+            }
+            return new Imported(games, missing, fingerprint == catalog.fingerprint());
+        } catch (EOFException e) {
+            throw new IOException("Damaged games list: " + file, e);
+        }
+    }
+
+    /**
+     * Reads a list saved as text, one name a line, finding each game by name in a
+     * catalog as it goes. Text carries no fingerprint, so it is taken to be from
+     * the same catalog.
+     *
+     * @param file    the file to read
+     * @param catalog the catalog to find the games in
+     * @return the games found, and how many were not
+     * @throws IOException if the file cannot be read
+     */
+    static Imported readText(Path file, GameCatalog catalog) throws IOException {
+        BitSet games = new BitSet(catalog.size());
+        int missing = 0;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                int game = catalog.ordinalOf(line.trim());
+                if (game == KeyIndex.NONE) {
+                    missing++;
+                } else {
+                    games.set(game);
+                }
+            }
+        }
+        return new Imported(games, missing, true);
+    }
+
+    /**
+     * Writes an int as an unsigned varint.
+     *
+     * @param out   where to write it
+     * @param value the value, taken as unsigned
+     * @throws IOException if it cannot be written
+     */
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Reads an unsigned varint.
+     *
+     * @param in where to read it from
+     * @return the value
+     * @throws IOException if it cannot be read, or is longer than an int
+     */
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Damaged games list: varint too long");
+    }
+}
@@ -0,0 +1,408 @@
+package student;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Keeps a game list on disk, so it is still there the next time the planner is
+ * started, without writing the whole list out after every change.
+ *
+ * Each change to the list (a game added or removed, or the list cleared) is
+ * appended to a journal as a small fixed size record holding the game's id,
+ * and the records of a command are written together. Every so often the whole
+ * list is written as a snapshot of ids instead, moved into place over the old
+ * one, and the journal is started again. When the list is opened the snapshot is
+ * read and the journal replayed on top of it; games are found again by id in the
+ * catalog's hash index, so no names are parsed or compared.
+ *
+ * Each command's records are forced to disk before commit returns, so once a
+ * command is over its changes survive the planner, the operating system or the
+ * power going down (as far as the disk keeps what it says it has written).
+ * The snapshot is forced before it is moved into place too. A crash can only
+ * ever cut the journal short: a record that was not written whole fails its
+ * check, and it and anything after it are dropped. A snapshot
+ * and its journal carry the same generation, so a journal left over from before
+ * a snapshot was moved into place (its changes being in the snapshot already) is
+ * not replayed twice. Games whose id is not in the catalog, such as games taken
+ * out of the collection, are dropped when the list is opened.
+ *
+ * Layout (big endian):
+ *
+ * <pre>
+ * snapshot: int magic, int version, long generation, int game count,
+ *           int id per game, int checksum of everything before it
+ * journal:  int magic, int version, long generation,
+ *           per change: byte kind, int id, int checksum of the kind and id
+ * </pre>
+ *
+ * Journals are not thread safe.
+ */
+public final class ListJournal implements Closeable {
+    /** Marks the file as a list snapshot ("BGL1"). */
+    private static final int SNAPSHOT_MAGIC = 0x42474C31;
+    /** Marks the file as a list journal ("BGJ1"). */
+    private static final int JOURNAL_MAGIC = 0x42474A31;
+    /** Format version, bump if the layout changes. */
+    private static final int VERSION = 1;
+    /** Size of the header of either file. */
+    private static final int HEADER_BYTES = 4 + 4 + 8;
+    /** Size of a journal record. */
+    private static final int RECORD_BYTES = 1 + 4 + 4;
+    /** Kind of record for a game added. */
+    private static final byte ADDED = 1;
+    /** Kind of record for a game removed. */
+    private static final byte REMOVED = 2;
+    /** Kind of record for the list cleared. */
+    private static final byte CLEARED = 3;
+    /** Room for records in the buffer to begin with. */
+    private static final int BUFFER_BYTES = RECORD_BYTES * 256;
+    /** Fewest records the journal holds before it is compacted into a snapshot. */
+    private static final int MIN_RECORDS_TO_COMPACT = 4096;
+
+    /** The catalog ids are looked up in. */
+    private final GameCatalog catalog;
+    /** Where the snapshot is kept. */
+    private final Path snapshot;
+    /** Where the journal is kept. */
+    private final Path journal;
+    /** Records of the command not yet written to the journal. */
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    /** Works out the record checksums. */
+    private final CRC32C crc = new CRC32C();
+    /** The games of the list when it was opened, in ordinal order. */
+    private final List<BoardGame> restored;
+    /** The open journal, positioned at its end. */
+    private FileChannel channel;
+    /** Generation of the snapshot, and of the journal on top of it. */
+    private long generation;
+    /** Records in the journal, written or not. */
+    private long records;
+
+    /**
+     * Opens the journal of a list, restoring the list from it.
+     *
+     * @param base    where to keep the list: base.snapshot and base.journal
+     * @param catalog the catalog the games of the list come from
+     * @throws IOException if the files cannot be read or written, or the snapshot is
+     *                     damaged
+     */
+    public ListJournal(Path base, GameCatalog catalog) throws IOException {
+        this.catalog = catalog;
+        this.snapshot = base.resolveSibling(base.getFileName() + ".snapshot");
+        this.journal = base.resolveSibling(base.getFileName() + ".journal");
+        BitSet games = readSnapshot();
+        if (!replay(games)) {
+            startJournal(); // missing, or from before the snapshot
+        }
+        restored = new ArrayList<>(games.cardinality());
+        games.stream().forEach(game -> restored.add(catalog.game(game)));
+        if (records >= compactAt(restored.size())) {
+            compact(restored);
+        }
+    }
+
+    /**
+     * Get the catalog the games of the list come from.
+     *
+     * @return the catalog
+     */
+    GameCatalog catalog() {
+        return catalog;
+    }
+
+    /**
+     * Get the games the list held when it was opened.
+     *
+     * @return the games, in catalog order
+     */
+    List<BoardGame> restored() {
+        return restored;
+    }
+
+    /**
+     * Notes a game added to the list. Nothing is written until the command is over.
+     *
+     * @param game the game
+     */
+    void added(BoardGame game) {
+        append(ADDED, game.getId());
+    }
+
+    /**
+     * Notes a game removed from the list.
+     *
+     * @param game the game
+     */
+    void removed(BoardGame game) {
+        append(REMOVED, game.getId());
+    }
+
+    /**
+     * Notes the list cleared.
+     */
+    void cleared() {
+        append(CLEARED, 0);
+    }
+
+    /**
+     * Ends a command: writes the changes noted since the last one to the journal,
+     * in one write forced to disk, and compacts the journal into a snapshot if it has grown to
+     * more than twice the size of the list.
+     *
+     * @param games the games the list holds now
+     * @param count how many games that is
+     * @throws IOException if the journal or snapshot cannot be written
+     */
+    void commit(Iterable<BoardGame> games, int count) throws IOException {
+        if (records >= compactAt(count)) {
+            try {
+                compact(games);
+            } catch (IOException e) {
+                flush(); // the journal is still open, compacting is tried again next time
+                throw e;
+            }
+            emptyBuffer(); // all in the snapshot
+        } else {
+            flush();
+        }
+    }
+
+    /**
+     * Writes out anything not yet written and closes the journal.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            flush();
+            channel.close();
+        }
+    }
+
+    /**
+     * Get the number of records the journal can hold before it is compacted. Each
+     * snapshot costs as much as writing the list, so the journal is let grow to
+     * twice that, and compacting stays a constant cost per change.
+     *
+     * @param count the number of games in the list
+     * @return the number of records
+     */
+    private static long compactAt(int count) {
+        return Math.max(MIN_RECORDS_TO_COMPACT, 2L * count);
+    }
+
+    /**
+     * Adds a record to the buffer, making the buffer bigger if it is full.
+     *
+     * @param kind the kind of record
+     * @param id   the id of the game
+     */
+    private void append(byte kind, int id) {
+        if (buffer.remaining() < RECORD_BYTES) {
+            ByteBuffer bigger = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer = bigger.put(buffer.flip());
+        }
+        int start = buffer.position();
+        buffer.put(kind).putInt(id);
+        buffer.putInt(check(buffer.array(), start));
+        records++;
+    }
+
+    /**
+     * Writes out the buffered records and forces them to disk. Nothing is done if
+     * there are none, so a command that changed nothing costs no disk sync.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    private void flush() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        emptyBuffer();
+    }
+
+    /**
+     * Empties the buffer, going back to a small one if a large command made it
+     * bigger.
+     */
+    private void emptyBuffer() {
+        buffer = buffer.capacity() > BUFFER_BYTES ? ByteBuffer.allocate(BUFFER_BYTES)
+                : buffer.clear();
+    }
+
+    /**
+     * Works out the checksum of a record, over its kind and id in one go.
+     *
+     * @param bytes  the bytes the record is in
+     * @param offset where the record starts
+     * @return the checksum
+     */
+    private int check(byte[] bytes, int offset) {
+        crc.reset();
+        crc.update(bytes, offset, RECORD_BYTES - 4);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Reads the snapshot, setting the generation.
+     *
+     * @return the ordinals of the games in it, empty if there is no snapshot
+     * @throws IOException if it cannot be read or is damaged
+     */
+    private BitSet readSnapshot() throws IOException {
+        BitSet games = new BitSet(catalog.size());
+        ByteBuffer contents;
+        try {
+            contents = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+        } catch (NoSuchFileException e) {
+            generation = 0;
+            return games;
+        }
+        try {
+            crc.reset();
+            crc.update(contents.array(), 0, contents.limit() - 4);
+            if (contents.getInt() != SNAPSHOT_MAGIC || contents.getInt() != VERSION
+                    || contents.getInt(contents.limit() - 4) != (int) crc.getValue()) {
+                throw new IOException("Damaged list snapshot: " + snapshot);
+            }
+            generation = contents.getLong();
+            int count = contents.getInt();
+            for (int i = 0; i < count; i++) {
+                int game = catalog.ordinalOfId(contents.getInt());
+                if (game != KeyIndex.NONE) {
+                    games.set(game);
+                }
+            }
+            return games;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Damaged list snapshot: " + snapshot, e);
+        }
+    }
+
+    /**
+     * Replays the journal on top of the snapshot, up to the first record that was
+     * not written whole, which is cut off along with anything after it. The journal
+     * is left open at its end.
+     *
+     * @param games the ordinals of the games in the snapshot, changed to those in
+     *              the list
+     * @return true if it was replayed, false if there is no journal of the
+     *         snapshot's generation
+     * @throws IOException if the journal cannot be read
+     */
+    private boolean replay(BitSet games) throws IOException {
+        FileChannel open;
+        try {
+            open = FileChannel.open(journal, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        ByteBuffer contents = ByteBuffer.allocate(Math.toIntExact(open.size()));
+        while (contents.hasRemaining() && open.read(contents) >= 0) {
+            // read it all
+        }
+        contents.flip();
+        if (contents.remaining() < HEADER_BYTES || contents.getInt() != JOURNAL_MAGIC
+                || contents.getInt() != VERSION || contents.getLong() != generation) {
+            open.close();
+            return false;
+        }
+        long replayed = 0;
+        while (contents.remaining() >= RECORD_BYTES) {
+            int start = contents.position();
+            byte kind = contents.get();
+            int id = contents.getInt();
+            if (contents.getInt() != check(contents.array(), start)) {
+                break;
+            }
+            if (kind == CLEARED) {
+                games.clear();
+            } else {
+                int game = catalog.ordinalOfId(id);
+                if (game != KeyIndex.NONE) {
+                    games.set(game, kind == ADDED);
+                }
+            }
+            replayed++;
+        }
+        long end = HEADER_BYTES + replayed * RECORD_BYTES;
+        open.truncate(end);
+        open.position(end);
+        channel = open;
+        records = replayed;
+        return true;
+    }
+
+    /**
+     * Starts an empty journal of the current generation, moved into place over any
+     * old one, and leaves it open at its end. The old journal is only closed once
+     * the new one is open, so if this fails the old one is still open.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    private void startJournal() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(JOURNAL_MAGIC).putInt(VERSION).putLong(generation).flip();
+        CatalogSnapshot.replace(journal, header);
+        FileChannel started = FileChannel.open(journal, StandardOpenOption.WRITE);
+        started.position(HEADER_BYTES);
+        FileChannel old = channel;
+        channel = started;
+        records = 0;
+        if (old != null) {
+            old.close();
+        }
+    }
+
+    /**
+     * Writes the list as a snapshot of the next generation and starts the journal
+     * again. The snapshot is moved into place first: if there is a crash before the
+     * new journal is, the old journal is of the wrong generation and not replayed.
+     * The old journal is kept open until the new one is, so if either cannot be
+     * written the journal can still be written to. The record count is left as it
+     * is, so compacting is tried again at the next commit.
+     *
+     * @param games the games the list holds now
+     * @throws IOException if the snapshot or journal cannot be written
+     */
+    private void compact(Iterable<BoardGame> games) throws IOException {
+        int[] ids = new int[16];
+        int count = 0;
+        for (BoardGame game : games) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            ids[count++] = game.getId();
+        }
+        ByteBuffer contents = ByteBuffer.allocate(HEADER_BYTES + 4 + count * 4 + 4);
+        contents.putInt(SNAPSHOT_MAGIC).putInt(VERSION).putLong(generation + 1).putInt(count);
+        for (int i = 0; i < count; i++) {
+            contents.putInt(ids[i]);
+        }
+        crc.reset();
+        crc.update(contents.array(), 0, contents.position());
+        contents.putInt((int) crc.getValue()).flip();
+
+        CatalogSnapshot.replace(snapshot, contents);
+        generation++;
+        startJournal();
+    }
+}
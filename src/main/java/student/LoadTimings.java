@@ -0,0 +1,154 @@
+package student;
+
+/**
+ * Records how long each phase of a catalog load took.
+ *
+ * The parallel loader in GamesLoader fills one of these in as it goes, so that
+ * callers can see where startup time is spent (reading the header, splitting
+ * the file into chunks, parsing the chunks, and merging the results).
+ *
+ * All times are in nanoseconds.
+ */
+public final class LoadTimings {
+    /** Time spent reading and mapping the header line. */
+    private long headerNanos;
+    /** Time spent finding newline aligned chunk boundaries. */
+    private long chunkNanos;
+    /** Time spent parsing all chunks (wall clock, not cpu time). */
+    private long parseNanos;
+    /** Time spent merging the chunk results into a single set. */
+    private long mergeNanos;
+    /** Number of chunks the file was split into. */
+    private int chunks;
+    /** Number of games that were parsed. */
+    private int rows;
+
+    /**
+     * Get the time spent reading the header.
+     *
+     * @return header time in nanoseconds
+     */
+    public long getHeaderNanos() {
+        return headerNanos;
+    }
+
+    /**
+     * Get the time spent splitting the file into chunks.
+     *
+     * @return chunking time in nanoseconds
+     */
+    public long getChunkNanos() {
+        return chunkNanos;
+    }
+
+    /**
+     * Get the time spent parsing the chunks.
+     *
+     * @return parse time in nanoseconds
+     */
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * Get the time spent merging the parsed chunks.
+     *
+     * @return merge time in nanoseconds
+     */
+    public long getMergeNanos() {
+        return mergeNanos;
+    }
+
+    /**
+     * Get the total time of all the phases.
+     *
+     * @return total time in nanoseconds
+     */
+    public long getTotalNanos() {
+        return headerNanos + chunkNanos + parseNanos + mergeNanos;
+    }
+
+    /**
+     * Get the number of chunks the file was split into.
+     *
+     * @return number of chunks
+     */
+    public int getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Get the number of games that were parsed (before duplicates were merged).
+     *
+     * @return number of rows parsed into games
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Sets the header time.
+     *
+     * @param nanos header time in nanoseconds
+     */
+    void setHeaderNanos(long nanos) {
+        this.headerNanos = nanos;
+    }
+
+    /**
+     * Sets the chunking time.
+     *
+     * @param nanos chunking time in nanoseconds
+     */
+    void setChunkNanos(long nanos) {
+        this.chunkNanos = nanos;
+    }
+
+    /**
+     * Sets the parse time.
+     *
+     * @param nanos parse time in nanoseconds
+     */
+    void setParseNanos(long nanos) {
+        this.parseNanos = nanos;
+    }
+
+    /**
+     * Sets the merge time.
+     *
+     * @param nanos merge time in nanoseconds
+     */
+    void setMergeNanos(long nanos) {
+        this.mergeNanos = nanos;
+    }
+
+    /**
+     * Sets the number of chunks.
+     *
+     * @param chunks number of chunks
+     */
+    void setChunks(int chunks) {
+        this.chunks = chunks;
+    }
+
+    /**
+     * Sets the number of rows parsed.
+     *
+     * @param rows number of rows
+     */
+    void setRows(int rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * Get a one line summary of the timings, in milliseconds.
+     *
+     * @return summary of the timings
+     */
+    @Override
+    public String toString() {
+        return String.format("header=%.2fms chunk=%.2fms parse=%.2fms merge=%.2fms total=%.2fms "
+                + "(chunks=%d, rows=%d)", headerNanos / 1e6, chunkNanos / 1e6, parseNanos / 1e6,
+                mergeNanos / 1e6, getTotalNanos() / 1e6, chunks, rows);
+    }
+}
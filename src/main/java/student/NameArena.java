@@ -0,0 +1,361 @@
+package student;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The names of the games packed end to end in one shared array, with the offset
+ * of each, instead of a String (and its own array) per game.
+ *
+ * If every name fits in Latin-1 the names are stored one byte a character, the
+ * same bytes a compact String holds. Otherwise they are all stored as chars.
+ *
+ * Only the names as written are kept. Searches and comparisons that ignore case
+ * fold each character as they read it, through tables for Latin-1, so no lower
+ * case copy of the names is needed and nothing is allocated per name. Case is
+ * folded a character at a time (Character.toLowerCase), which is what
+ * String.toLowerCase does for every character outside a few locale specific
+ * ones.
+ *
+ * The arena is never changed after it is built.
+ */
+final class NameArena {
+    /** Number of Latin-1 characters. */
+    private static final int LATIN1 = 256;
+    /** Lower case of each Latin-1 character. */
+    private static final char[] LOWER = new char[LATIN1];
+    /** Lower case of the upper case of each Latin-1 character, as compareToIgnoreCase. */
+    private static final char[] FOLD = new char[LATIN1];
+    /** The Latin-1 character whose lower case is each character, or the character itself. */
+    private static final char[] UNLOWER = new char[LATIN1];
+
+    static {
+        for (char c = 0; c < LATIN1; c++) {
+            LOWER[c] = Character.toLowerCase(c);
+            FOLD[c] = Character.toLowerCase(Character.toUpperCase(c));
+            UNLOWER[c] = c;
+        }
+        for (char c = 0; c < LATIN1; c++) {
+            if (LOWER[c] != c && LOWER[c] < LATIN1) {
+                UNLOWER[LOWER[c]] = c;
+            }
+        }
+    }
+
+    /** The names one byte a character, end to end, or null if they are in chars. */
+    private final byte[] bytes;
+    /** The names one char a character, when they do not all fit in Latin-1. */
+    private final char[] chars;
+    /** Where each name starts, in characters, indexed by ordinal, plus the end. */
+    private final int[] offsets;
+
+    /**
+     * Packs the names.
+     *
+     * @param names the names, indexed by ordinal
+     */
+    NameArena(String[] names) {
+        offsets = new int[names.length + 1];
+        boolean latin1 = true;
+        for (int i = 0; i < names.length; i++) {
+            offsets[i + 1] = Math.addExact(offsets[i], names[i].length());
+            for (int k = 0; k < names[i].length() && latin1; k++) {
+                latin1 = names[i].charAt(k) < LATIN1;
+            }
+        }
+        bytes = latin1 ? new byte[offsets[names.length]] : null;
+        chars = latin1 ? null : new char[offsets[names.length]];
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i];
+            for (int k = 0; k < name.length(); k++) {
+                if (latin1) {
+                    bytes[offsets[i] + k] = (byte) name.charAt(k);
+                } else {
+                    chars[offsets[i] + k] = name.charAt(k);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get a name, rebuilt as a new String.
+     *
+     * @param ordinal the ordinal of the game
+     * @return the name
+     */
+    String get(int ordinal) {
+        int from = offsets[ordinal];
+        int length = offsets[ordinal + 1] - from;
+        if (bytes != null) {
+            return new String(bytes, from, length, StandardCharsets.ISO_8859_1);
+        }
+        return new String(chars, from, length);
+    }
+
+    /**
+     * Get the number of names.
+     *
+     * @return the number of games
+     */
+    int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Get the number of characters in a name.
+     *
+     * @param ordinal the ordinal of the game
+     * @return the length of the name
+     */
+    int length(int ordinal) {
+        return offsets[ordinal + 1] - offsets[ordinal];
+    }
+
+    /**
+     * Get a character of a name, in lower case.
+     *
+     * @param ordinal the ordinal of the game
+     * @param index   the position in the name
+     * @return the lower case character
+     */
+    char lowerCharAt(int ordinal, int index) {
+        return lower(charAt(offsets[ordinal] + index));
+    }
+
+    /**
+     * Checks whether a name contains a piece of text, ignoring case.
+     *
+     * @param ordinal     the ordinal of the game
+     * @param lowerNeedle the text to look for, in lower case (see lower)
+     * @return true if the lower case name contains the text
+     */
+    boolean containsLower(int ordinal, String lowerNeedle) {
+        int from = offsets[ordinal];
+        int last = offsets[ordinal + 1] - lowerNeedle.length();
+        if (lowerNeedle.isEmpty()) {
+            return true;
+        }
+        if (bytes != null) {
+            return containsLatin1(from, last, lowerNeedle);
+        }
+        char first = lowerNeedle.charAt(0);
+        for (int at = from; at <= last; at++) {
+            if (lower(charAt(at)) != first) {
+                continue;
+            }
+            int k = 1;
+            while (k < lowerNeedle.length() && lower(charAt(at + k)) == lowerNeedle.charAt(k)) {
+                k++;
+            }
+            if (k == lowerNeedle.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Looks for lower case text in part of the Latin-1 arena, reading the bytes
+     * directly.
+     *
+     * @param from        where the name starts
+     * @param last        the last position the text can start at
+     * @param lowerNeedle the text to look for, in lower case, not empty
+     * @return true if the text is found
+     */
+    private boolean containsLatin1(int from, int last, String lowerNeedle) {
+        char first = lowerNeedle.charAt(0);
+        if (first >= LATIN1) {
+            return false;
+        }
+        byte[] arena = bytes;
+        int length = lowerNeedle.length();
+        // the first character is looked for as it is written, in either case
+        byte lowerFirst = (byte) first;
+        byte upperFirst = (byte) UNLOWER[first];
+        for (int at = from; at <= last; at++) {
+            byte b = arena[at];
+            if (b == lowerFirst || b == upperFirst) {
+                int k = 1;
+                while (k < length && LOWER[arena[at + k] & 0xFF] == lowerNeedle.charAt(k)) {
+                    k++;
+                }
+                if (k == length) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares a name with some text, ignoring case the same way
+     * String.compareToIgnoreCase does.
+     *
+     * @param ordinal the ordinal of the game
+     * @param text    the text to compare with
+     * @return negative, zero or positive as the name comes before, with or after
+     *         the text
+     */
+    int compareIgnoreCase(int ordinal, String text) {
+        int from = offsets[ordinal];
+        int length = offsets[ordinal + 1] - from;
+        int common = Math.min(length, text.length());
+        for (int k = 0; k < common; k++) {
+            char a = fold(charAt(from + k));
+            char b = fold(text.charAt(k));
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return length - text.length();
+    }
+
+    /**
+     * Compares two names ignoring case, the same way String.CASE_INSENSITIVE_ORDER
+     * does.
+     *
+     * @param a the ordinal of one game
+     * @param b the ordinal of the other
+     * @return negative, zero or positive as a's name comes before, with or after b's
+     */
+    int compareIgnoreCase(int a, int b) {
+        int fromA = offsets[a];
+        int fromB = offsets[b];
+        int lengthA = offsets[a + 1] - fromA;
+        int lengthB = offsets[b + 1] - fromB;
+        int common = Math.min(lengthA, lengthB);
+        for (int k = 0; k < common; k++) {
+            char x = fold(charAt(fromA + k));
+            char y = fold(charAt(fromB + k));
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return lengthA - lengthB;
+    }
+
+    /**
+     * Compares two names character by character, the same way String.compareTo
+     * does.
+     *
+     * @param a the ordinal of one game
+     * @param b the ordinal of the other
+     * @return negative, zero or positive as a's name comes before, with or after b's
+     */
+    int compare(int a, int b) {
+        int fromA = offsets[a];
+        int fromB = offsets[b];
+        int lengthA = offsets[a + 1] - fromA;
+        int lengthB = offsets[b + 1] - fromB;
+        int common = Math.min(lengthA, lengthB);
+        for (int k = 0; k < common; k++) {
+            char x = charAt(fromA + k);
+            char y = charAt(fromB + k);
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return lengthA - lengthB;
+    }
+
+    /**
+     * Get the hash code of a name in lower case, the same as lower(name).hashCode().
+     *
+     * @param ordinal the ordinal of the game
+     * @return the hash of the lower case name
+     */
+    int lowerHash(int ordinal) {
+        int hash = 0;
+        for (int at = offsets[ordinal]; at < offsets[ordinal + 1]; at++) {
+            hash = 31 * hash + lower(charAt(at));
+        }
+        return hash;
+    }
+
+    /**
+     * Checks whether a name in lower case is some text.
+     *
+     * @param ordinal   the ordinal of the game
+     * @param lowerName the text, in lower case (see lower)
+     * @return true if the lower case name equals the text
+     */
+    boolean equalsLower(int ordinal, String lowerName) {
+        int from = offsets[ordinal];
+        if (offsets[ordinal + 1] - from != lowerName.length()) {
+            return false;
+        }
+        for (int k = 0; k < lowerName.length(); k++) {
+            if (lower(charAt(from + k)) != lowerName.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether two names are the same in lower case.
+     *
+     * @param a the ordinal of one game
+     * @param b the ordinal of the other
+     * @return true if the lower case names are equal
+     */
+    boolean equalsLower(int a, int b) {
+        int fromA = offsets[a];
+        int fromB = offsets[b];
+        int length = offsets[a + 1] - fromA;
+        if (offsets[b + 1] - fromB != length) {
+            return false;
+        }
+        for (int k = 0; k < length; k++) {
+            if (lower(charAt(fromA + k)) != lower(charAt(fromB + k))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Puts some text in lower case the same way the names are, a character at a
+     * time, so it can be searched for or looked up in the arena.
+     *
+     * @param text the text
+     * @return the text in lower case
+     */
+    static String lower(String text) {
+        char[] lowered = new char[text.length()];
+        for (int k = 0; k < lowered.length; k++) {
+            lowered[k] = lower(text.charAt(k));
+        }
+        return new String(lowered);
+    }
+
+    /**
+     * Get a character of the arena.
+     *
+     * @param at the position in the arena
+     * @return the character
+     */
+    private char charAt(int at) {
+        return bytes != null ? (char) (bytes[at] & 0xFF) : chars[at];
+    }
+
+    /**
+     * Puts a character in lower case.
+     *
+     * @param c the character
+     * @return its lower case
+     */
+    private static char lower(char c) {
+        return c < LATIN1 ? LOWER[c] : Character.toLowerCase(c);
+    }
+
+    /**
+     * Folds the case of a character the way compareToIgnoreCase does.
+     *
+     * @param c the character
+     * @return the lower case of its upper case
+     */
+    private static char fold(char c) {
+        return c < LATIN1 ? FOLD[c] : Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
@@ -42,6 +42,12 @@ public enum Operations {
     /** Operations to use. */
     LESS_THAN_EQUALS("<="), CONTAINS("~=");
 
+    /**
+     * Order getOperatorFromStr picks operators in when there is more than one,
+     * lowest first, indexed by ordinal.
+     */
+    private static final int[] PRIORITY = {4, 5, 2, 3, 0, 1, 6};
+
     /** The operator. */
     private final String operator;
 
@@ -80,27 +86,49 @@ public enum Operations {
 
     /**
      * Get the operator from a string that contains it.
+     *
+     * If the string holds more than one operator, the one found is the first of
+     * >=, <=, >, <, ==, != and ~= that it holds, wherever it is. The string is
+     * read once.
      * 
      * @param str The string.
      * @return The operator.
      */
     public static Operations getOperatorFromStr(String str) {
-        if (str.contains(">=")) {
-            return Operations.GREATER_THAN_EQUALS;
-        } else if (str.contains("<=")) {
-            return Operations.LESS_THAN_EQUALS;
-        } else if (str.contains(">")) {
-            return Operations.GREATER_THAN;
-        } else if (str.contains("<")) {
-            return Operations.LESS_THAN;
-        } else if (str.contains("==")) {
-            return Operations.EQUALS;
-        } else if (str.contains("!=")) {
-            return Operations.NOT_EQUALS;
-        } else if (str.contains("~=")) {
-            return Operations.CONTAINS;
-        } else {
-            return null;
+        Operations found = null;
+        for (int i = 0; i < str.length() && found != GREATER_THAN_EQUALS; i++) {
+            Operations op = startingAt(str, i);
+            if (op != null
+                    && (found == null || PRIORITY[op.ordinal()] < PRIORITY[found.ordinal()])) {
+                found = op;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Get the operator that starts at a position in a string. Two character
+     * operators are matched before one character ones, so >= is never read as >.
+     *
+     * @param str The string.
+     * @param at  The position, which must be in the string.
+     * @return The operator, or null if none starts there.
+     */
+    public static Operations startingAt(CharSequence str, int at) {
+        boolean equalsNext = at + 1 < str.length() && str.charAt(at + 1) == '=';
+        switch (str.charAt(at)) {
+            case '>':
+                return equalsNext ? GREATER_THAN_EQUALS : GREATER_THAN;
+            case '<':
+                return equalsNext ? LESS_THAN_EQUALS : LESS_THAN;
+            case '=':
+                return equalsNext ? EQUALS : null;
+            case '!':
+                return equalsNext ? NOT_EQUALS : null;
+            case '~':
+                return equalsNext ? CONTAINS : null;
+            default:
+                return null;
         }
     }
 }
@@ -0,0 +1,250 @@
+package student;
+
+/**
+ * One numeric column of the catalog, stored in the narrowest array that holds
+ * every value exactly.
+ *
+ * Each value is kept as its distance from a base value, in a byte, short or int
+ * array, whichever the spread of the column fits in. Player counts, play times
+ * and years take one byte a game that way, instead of four. Decimal columns are
+ * stored the same way as fixed point numbers, scaled by the smallest power of ten
+ * (up to a million) that turns every value into a whole number, and NaN takes the
+ * lowest value the array can hold. A decimal column that cannot be turned back
+ * into exactly the same doubles, which includes any column holding -0.0, is kept
+ * as doubles.
+ *
+ * The column is never changed after it is built.
+ */
+final class PackedColumn {
+    /** Most decimal places a column is stored to as fixed point. */
+    private static final int MAX_DECIMALS = 6;
+    /** Largest scaled value, past which doubles no longer hold every whole number. */
+    private static final double MAX_SCALED = 1L << 53;
+
+    /** Values as one byte distances from base, or null. */
+    private final byte[] bytes;
+    /** Values as two byte distances from base, or null. */
+    private final short[] shorts;
+    /** Values as four byte distances from base, or null. */
+    private final int[] ints;
+    /** Values as they are, when they cannot be stored as fixed point, or null. */
+    private final double[] doubles;
+    /** Value stored as zero, scaled. */
+    private final long base;
+    /** Power of ten the stored values are divided by, 1 for whole numbers. */
+    private final double scale;
+    /** Whether the column holds decimals, read as doubles, rather than ints. */
+    private final boolean decimal;
+    /** Stored value of NaN, only used by decimal columns. */
+    private final int nan;
+    /** Number of values. */
+    private final int size;
+
+    /**
+     * Stores some scaled values in the narrowest array they fit in.
+     *
+     * @param scaled  the values times scale, whole numbers
+     * @param missing which values are NaN, or null if none are
+     * @param scale   the power of ten the values were multiplied by
+     * @param decimal whether the column holds decimals
+     */
+    private PackedColumn(long[] scaled, boolean[] missing, double scale, boolean decimal) {
+        size = scaled.length;
+        this.scale = scale;
+        this.decimal = decimal;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            if (missing == null || !missing[i]) {
+                min = Math.min(min, scaled[i]);
+                max = Math.max(max, scaled[i]);
+            }
+        }
+        if (min > max) {
+            min = 0; // nothing but NaN
+            max = 0;
+        }
+        // decimals keep the lowest stored value for NaN
+        int reserved = decimal ? 1 : 0;
+        long spread = max - min + reserved;
+        byte[] byteValues = null;
+        short[] shortValues = null;
+        int[] intValues = null;
+        int lowest;
+        if (spread <= Byte.MAX_VALUE - Byte.MIN_VALUE) {
+            byteValues = new byte[size];
+            lowest = Byte.MIN_VALUE;
+        } else if (spread <= Short.MAX_VALUE - Short.MIN_VALUE) {
+            shortValues = new short[size];
+            lowest = Short.MIN_VALUE;
+        } else {
+            intValues = new int[size];
+            lowest = Integer.MIN_VALUE;
+        }
+        nan = lowest;
+        base = min - lowest - reserved;
+        for (int i = 0; i < size; i++) {
+            int stored = missing != null && missing[i] ? nan : (int) (scaled[i] - base);
+            if (byteValues != null) {
+                byteValues[i] = (byte) stored;
+            } else if (shortValues != null) {
+                shortValues[i] = (short) stored;
+            } else {
+                intValues[i] = stored;
+            }
+        }
+        bytes = byteValues;
+        shorts = shortValues;
+        ints = intValues;
+        doubles = null;
+    }
+
+    /**
+     * Keeps some decimals as they are.
+     *
+     * @param values the values
+     */
+    private PackedColumn(double[] values) {
+        size = values.length;
+        doubles = values.clone();
+        bytes = null;
+        shorts = null;
+        ints = null;
+        base = 0;
+        scale = 1;
+        decimal = true;
+        nan = 0;
+    }
+
+    /**
+     * Packs a whole number column.
+     *
+     * @param values the values, indexed by ordinal
+     * @return the column
+     */
+    static PackedColumn ofInts(int[] values) {
+        long[] scaled = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            scaled[i] = values[i];
+        }
+        return new PackedColumn(scaled, null, 1, false);
+    }
+
+    /**
+     * Packs a decimal column as fixed point, if it has few enough decimal places.
+     *
+     * @param values the values, indexed by ordinal
+     * @return the column
+     */
+    static PackedColumn ofDecimals(double[] values) {
+        boolean[] missing = new boolean[values.length];
+        for (int i = 0; i < values.length; i++) {
+            missing[i] = Double.isNaN(values[i]);
+        }
+        long[] scaled = new long[values.length];
+        double scale = 1;
+        for (int decimals = 0; decimals <= MAX_DECIMALS; decimals++, scale *= 10) {
+            if (scaleExactly(values, missing, scale, scaled)) {
+                return new PackedColumn(scaled, missing, scale, true);
+            }
+        }
+        return new PackedColumn(values);
+    }
+
+    /**
+     * Scales every value by a power of ten, if each one comes back unchanged when
+     * divided by it again.
+     *
+     * @param values  the values
+     * @param missing which values are NaN, skipped
+     * @param scale   the power of ten
+     * @param scaled  where to put the scaled values
+     * @return true if every value scaled exactly and fits an int once based
+     */
+    private static boolean scaleExactly(double[] values, boolean[] missing, double scale,
+            long[] scaled) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < values.length; i++) {
+            if (missing[i]) {
+                continue;
+            }
+            double whole = Math.rint(values[i] * scale);
+            // infinities and values with more decimals do not come back the same
+            if (!(Math.abs(whole) < MAX_SCALED) || Double.doubleToLongBits(whole / scale)
+                    != Double.doubleToLongBits(values[i])) {
+                return false;
+            }
+            // -0.0 does come back, but would be stored as 0 and read as +0.0
+            if (whole == 0 && Double.doubleToRawLongBits(values[i]) != 0L) {
+                return false;
+            }
+            scaled[i] = (long) whole;
+            min = Math.min(min, scaled[i]);
+            max = Math.max(max, scaled[i]);
+        }
+        // one stored value is kept for NaN
+        return min > max || max - min < (1L << Integer.SIZE) - 1;
+    }
+
+    /**
+     * Get a value.
+     *
+     * @param ordinal the ordinal of the game
+     * @return the value, exactly as it was stored
+     */
+    double get(int ordinal) {
+        if (doubles != null) {
+            return doubles[ordinal];
+        }
+        int stored = stored(ordinal);
+        if (!decimal) {
+            return (double) (base + stored);
+        }
+        return stored == nan ? Double.NaN : (base + stored) / scale;
+    }
+
+    /**
+     * Get a value of a whole number column.
+     *
+     * @param ordinal the ordinal of the game
+     * @return the value
+     */
+    int getInt(int ordinal) {
+        return (int) (base + stored(ordinal));
+    }
+
+    /**
+     * Get the stored distance of a value from the base.
+     *
+     * @param ordinal the ordinal of the game
+     * @return the stored value
+     */
+    private int stored(int ordinal) {
+        if (bytes != null) {
+            return bytes[ordinal];
+        }
+        if (shorts != null) {
+            return shorts[ordinal];
+        }
+        return ints[ordinal];
+    }
+
+    /**
+     * Checks whether the column holds decimals rather than whole numbers.
+     *
+     * @return true for decimals, read with get
+     */
+    boolean isDecimal() {
+        return decimal;
+    }
+
+    /**
+     * Get the number of values.
+     *
+     * @return the number of games
+     */
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,150 @@
+package student;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded least recently used cache of compiled filter plans.
+ *
+ * Users tend to run the same few filters over and over, so keeping the compiled
+ * plans saves splitting and parsing the filter on every call. Filters are
+ * normalized before lookup (see FilterPlan.normalize). The plan ordered for a
+ * catalog (see FilterPlan.orderFor) is kept next to the compiled one, as a
+ * catalog never changes, so the clause costs are not estimated again either.
+ *
+ * The cache is not thread safe, each planner has its own.
+ */
+public final class PlanCache {
+    /** Default number of plans to keep. */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /** Most number of plans to keep. */
+    private final int capacity;
+    /** The plans, in least to most recently used order. */
+    private final Map<String, Entry> plans;
+    /** Number of lookups that found a compiled plan. */
+    private long hits;
+    /** Number of lookups that had to compile the filter. */
+    private long misses;
+
+    /**
+     * Builds a cache with the default capacity.
+     */
+    public PlanCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Builds a cache.
+     *
+     * @param capacity most number of plans to keep, 0 turns caching off
+     */
+    public PlanCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must be 0 or greater: " + capacity);
+        }
+        this.capacity = capacity;
+        this.plans = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > PlanCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Gets the compiled plan for a filter, compiling it if it is not cached.
+     *
+     * @param filter the filter as typed
+     * @return the compiled plan
+     */
+    public FilterPlan get(String filter) {
+        return entry(filter).compiled;
+    }
+
+    /**
+     * Gets the plan for a filter with its clauses ordered for a catalog, compiling
+     * and ordering it if that is not cached.
+     *
+     * @param filter  the filter as typed
+     * @param catalog the catalog the plan will be applied to
+     * @return the ordered plan
+     */
+    public FilterPlan getOrdered(String filter, GameCatalog catalog) {
+        Entry entry = entry(filter);
+        if (entry.catalog != catalog) {
+            entry.ordered = entry.compiled.orderFor(catalog);
+            entry.catalog = catalog;
+        }
+        return entry.ordered;
+    }
+
+    /**
+     * Gets the cache entry for a filter, compiling it if it is not cached.
+     *
+     * @param filter the filter as typed
+     * @return the entry
+     */
+    private Entry entry(String filter) {
+        String key = FilterPlan.normalize(filter);
+        Entry entry = plans.get(key);
+        if (entry != null) {
+            hits++;
+            return entry;
+        }
+        misses++;
+        entry = new Entry(FilterPlan.compile(key));
+        if (capacity > 0) {
+            plans.put(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Get the number of lookups that found a compiled plan.
+     *
+     * @return number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of lookups that had to compile the filter.
+     *
+     * @return number of misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of plans currently cached.
+     *
+     * @return number of plans
+     */
+    public int size() {
+        return plans.size();
+    }
+
+    /**
+     * A compiled plan, and the plan ordered for the last catalog asked for.
+     */
+    private static final class Entry {
+        /** The plan in the order it was typed. */
+        private final FilterPlan compiled;
+        /** The catalog ordered was ordered for, or null if not ordered yet. */
+        private GameCatalog catalog;
+        /** The plan ordered for catalog. */
+        private FilterPlan ordered;
+
+        /**
+         * Builds an entry that is not ordered yet.
+         *
+         * @param compiled the compiled plan
+         */
+        Entry(FilterPlan compiled) {
+            this.compiled = compiled;
+        }
+    }
+}
@@ -1,27 +1,89 @@
 package student;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
-import java.util.List;
-import java.util.Arrays;
+import java.util.stream.StreamSupport;
 
+/**
+ * Filters and sorts the games of a GameCatalog.
+ * 
+ * A planner is one session: it holds the filter state, undo history and plan
+ * cache of a single user, and is not safe to use from more than one thread at a
+ * time. The catalog it filters is never changed, so any number of planners can
+ * share one catalog and filter at the same time, each from its own thread, with
+ * no locking. Creating a planner over an existing catalog only allocates the
+ * session state, so a new one can be made for every user or request.
+ */
 public class Planner implements IPlanner {
 
-    /** The games to filter. */
-    private Set<BoardGame> games;
-    /** The filtered games. */
-    private Set<BoardGame> filteredGames;
+    /** Most number of filters that can be undone. */
+    private static final int MAX_UNDO = 64;
+    /** Selections smaller than 1/32 of the catalog are sorted rather than walked. */
+    private static final int SMALL_SELECTION_DIVISOR = 32;
+    /** Rough cost of offering one game to the page heap, next to one walk step. */
+    private static final int HEAP_COST = 8;
+
+    /** The games to filter, stored by column. */
+    private final GameCatalog catalog;
+    /** Every game in the catalog, the state after a reset. Shared, never changed. */
+    private final BitSet allGames;
+    /**
+     * Ordinals of the filtered games.
+     * 
+     * The set is never changed once it is assigned, each filter builds a new one.
+     * That way the same set can be kept on the undo stack, or shared with
+     * allGames, without copying it.
+     */
+    private BitSet filteredGames;
+    /** Filter states before each filter, most recent first. */
+    private final Deque<BitSet> history = new ArrayDeque<>();
+    /** Compiled plans of recently used filters. */
+    private final PlanCache planCache = new PlanCache();
+    /** The last result given, for picking games from it by position. */
+    private ResultSnapshot lastResult;
 
     /**
      * Constructor for the Planner.
      * 
+     * Builds a catalog just for this planner. To share one catalog between
+     * sessions, build it once and use {@link #Planner(GameCatalog)}.
+     * 
      * @param games The games to filter.
      */
     public Planner(Set<BoardGame> games) {
-        this.games = games;
-        this.filteredGames = new HashSet<>(games);
+        this(new GameCatalog(games));
+    }
+
+    /**
+     * Starts a new session over a catalog, with no filters applied.
+     * 
+     * @param catalog The catalog to filter, which may be shared with other planners.
+     */
+    public Planner(GameCatalog catalog) {
+        this.catalog = catalog;
+        this.allGames = catalog.allGames();
+        this.filteredGames = allGames;
+        this.lastResult = snapshot(allGames, GameData.NAME, true);
+    }
+
+    /**
+     * Get the catalog this planner filters, to start more sessions over it.
+     * 
+     * @return the catalog
+     */
+    public GameCatalog getCatalog() {
+        return catalog;
     }
 
     /**
@@ -45,19 +107,92 @@ public class Planner implements IPlanner {
      */
     @Override
     public Stream<BoardGame> filter(String filter, GameData sortOn, boolean ascending) {
-        Stream<BoardGame> filteredStream = filteredGames.stream();
+        return run(filter, sortOn, ascending, 0, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Each clause records how many games were left after it, how long it took, and
+     * whether it used an index or scanned the selection.
+     */
+    @Override
+    public Stream<BoardGame> filter(String filter, GameData sortOn, boolean ascending,
+            QueryProfile profile) {
+        return run(filter, sortOn, ascending, 0, Integer.MAX_VALUE, profile);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Only the games up to the end of the page are ever sorted, so a small page
+     * costs about the same no matter how many games match. Depending on how many
+     * games are selected, the page is either read off the catalog's sorted order
+     * of the column, or picked out with a bounded heap.
+     */
+    @Override
+    public Stream<BoardGame> filter(String filter, GameData sortOn, boolean ascending,
+            int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        return run(filter, sortOn, ascending, offset, limit, null);
+    }
+
+    /**
+     * Runs a batch of filters against the current filter state, returning one
+     * result per query.
+     * 
+     * Unlike filter, the queries are not progressive: each one is applied to the
+     * current filter state on its own, and the state is left as it was. The
+     * predicates of every query are worked out together, so a clause shared by
+     * several queries is only evaluated once, and each column is scanned at most
+     * once for the whole batch (see FilterPlan.applyAll).
+     * 
+     * @param queries the queries to run
+     * @return the sorted (and paged) results, in the same order as the queries
+     */
+    public List<Stream<BoardGame>> filterBatch(List<BatchQuery> queries) {
+        List<FilterPlan> plans = new ArrayList<>(queries.size());
+        for (BatchQuery query : queries) {
+            plans.add(planCache.get(query.getFilter()));
+        }
+        List<BitSet> matches = FilterPlan.applyAll(catalog, filteredGames, plans);
+        List<Stream<BoardGame>> results = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            BatchQuery query = queries.get(i);
+            results.add(page(matches.get(i), query.getSortOn(), query.isAscending(),
+                    query.getOffset(), query.getLimit()));
+        }
+        return results;
+    }
 
-        // If filter is null or empty, return sorted games
+    /**
+     * Applies a filter to the current filter state.
+     * 
+     * @param filter  the filter, if null or empty the state is left as it is
+     * @param profile where to record the plan and each clause, or null
+     * @return why parts of the filter were ignored, empty if none
+     */
+    private List<String> applyFilter(String filter, QueryProfile profile) {
         if (filter == null || filter.isEmpty()) {
-            return sortGames(filteredStream, sortOn, ascending);
+            return List.of();
         }
 
-        // else process each requriement one by one
-        List<String> filters = List.of(filter.split(","));
-        for (String singleFilter : filters) {
-            filteredStream = filterSingleCondition(filteredStream, singleFilter.trim());
+        // apply each requirement one by one, using the compiled plan
+        long start = profile == null ? 0 : System.nanoTime();
+        FilterPlan plan = getPlan(filter);
+        if (profile != null) {
+            profile.setPlan(plan, System.nanoTime() - start);
         }
-        return sortGames(filteredStream, sortOn, ascending);
+        if (!plan.isEmpty()) {
+            history.push(filteredGames);
+            if (history.size() > MAX_UNDO) {
+                history.removeLast();
+            }
+            filteredGames = plan.apply(catalog, filteredGames, profile);
+        }
+        return plan.getErrors();
     }
 
     /**
@@ -65,199 +200,425 @@ public class Planner implements IPlanner {
      */
     @Override
     public void reset() {
-        filteredGames = new HashSet<>(games);
+        filteredGames = allGames;
+        history.clear();
+        lastResult = snapshot(filteredGames, GameData.NAME, true);
     }
 
     /**
-     * Applies a single filter to a stream of games.
-     * 
-     * If filter is invalid, returns the original stream
-     * Invalid means:
-     * - operator is not valid
-     * - format is not valid
-     * - column is not valid
+     * {@inheritDoc}
      * 
-     * @param filteredGames The stream of games to filter
-     * @param filter        The filter to apply
-     * @return The filtered stream of games
+     * Only the last 64 filters are remembered. Undo takes the same time no matter
+     * how many games there are, as it just goes back to the previous set.
      */
-    private Stream<BoardGame> filterSingleCondition(Stream<BoardGame> filteredGames, String filter) {
-
-        // return original stream if operation is invalid
-        Operations operator = Operations.getOperatorFromStr(filter);
-        if (operator == null) {
-            return filteredGames;
+    @Override
+    public boolean undo() {
+        if (history.isEmpty()) {
+            return false;
         }
+        filteredGames = history.pop();
+        lastResult = snapshot(filteredGames, GameData.NAME, true);
+        return true;
+    }
 
-        List<String> parts = Arrays.asList(filter.split(operator.getOperator()));
-        // return original stream if format is invalid
-        if (parts.size() != 2) {
-            return filteredGames;
+    /**
+     * {@inheritDoc}
+     * 
+     * Uses the catalog's KD-tree, so only the part of the catalog near the game is
+     * looked at. When only a few games pass the filters, those are compared with
+     * directly instead.
+     */
+    @Override
+    public Stream<BoardGame> similar(String name, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative");
         }
-
-        // return original stream if column is invalid
-        GameData column;
-        try {
-            column = GameData.fromString(parts.get(0).trim());
-        } catch (IllegalArgumentException e) {
-            return filteredGames;
+        int ordinal = catalog.ordinalOf(name);
+        if (ordinal < 0) {
+            return Stream.empty();
         }
+        int[] nearest = catalog.nearest(ordinal, k, filteredGames);
+        lastResult = new ResultSnapshot(catalog, nearest);
+        return Arrays.stream(games(nearest));
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * After a filter this is the whole sorted result, even when only a page of it
+     * was asked for, with positions counted from the start of the result. After a
+     * reset or undo it is the current games by name, and after similar the games
+     * found, closest first.
+     */
+    @Override
+    public ResultSnapshot lastResult() {
+        return lastResult;
+    }
 
-        String value = parts.get(1).trim();
+    /**
+     * Get the plan a filter runs as, with its clauses in the order they are
+     * applied. The order is chosen from the catalog statistics, see
+     * {@link FilterPlan#orderFor(GameCatalog)}. The ordered plan is cached with the
+     * compiled one.
+     * 
+     * @param filter the filter
+     * @return the plan, the filter state is not changed
+     */
+    public FilterPlan getPlan(String filter) {
+        return planCache.getOrdered(filter, catalog);
+    }
 
-        // Apply the appropriate filter based on column type
-        if (isNumericColumn(column)) {
-            return applyNumericFilter(filteredGames, column, operator, value);
-        } else {
-            return applyStringFilter(filteredGames, column, operator, value);
+    /**
+     * Get the cache of compiled filter plans, to see how often it is hit.
+     * 
+     * @return the plan cache of this planner
+     */
+    public PlanCache getPlanCache() {
+        return planCache;
+    }
+
+    /**
+     * Runs a filter and gets a page of the sorted result, recording a profile if
+     * one is given.
+     * 
+     * Without a profile the page is a lazy stream, see {@link #page}. With one,
+     * the page is sorted and looked up straight away so each stage can be timed.
+     * 
+     * @param filter    The filter to apply
+     * @param sortOn    The column to sort on
+     * @param ascending Whether to sort in ascending order
+     * @param offset    How many sorted games to skip
+     * @param limit     The most games to return
+     * @param profile   Where to record what was done, or null to not profile
+     * @return The page of games
+     */
+    private Stream<BoardGame> run(String filter, GameData sortOn, boolean ascending,
+            int offset, int limit, QueryProfile profile) {
+        if (profile == null) {
+            List<String> errors = applyFilter(filter, null);
+            lastResult = snapshot(filteredGames, sortOn, ascending, errors);
+            return page(filteredGames, sortOn, ascending, offset, limit);
         }
+        profile.start(filter, sortOn, ascending, filteredGames.cardinality());
+        List<String> errors = applyFilter(filter, profile);
+        lastResult = snapshot(filteredGames, sortOn, ascending, errors);
+        long start = System.nanoTime();
+        int[] ordinals = pageOrdinals(filteredGames, sortOn, ascending, offset, limit, profile);
+        profile.setSortNanos(System.nanoTime() - start);
+        start = System.nanoTime();
+        BoardGame[] result = games(ordinals);
+        profile.setMaterializeNanos(System.nanoTime() - start, result.length);
+        return Arrays.stream(result);
     }
 
     /**
-     * Sorts a stream of games based on the given column and order.
+     * Gets a page of a selection of games as a lazy stream.
+     * 
+     * Nothing is sorted or looked up until the stream is used. The stream knows its
+     * size, so count() never sorts. When the catalog's sorted order is walked, the
+     * walk only goes as far as the games taken, so findFirst() or limit() stop
+     * early. Otherwise the page is worked out the first time a game is taken.
+     * 
+     * The selection is never changed (each filter builds a new set), so the stream
+     * still gives the games it was made for after more filters are applied.
      * 
-     * @param games     The stream of games to sort
+     * @param selected  The ordinals of the games to page through
      * @param sortOn    The column to sort on
      * @param ascending Whether to sort in ascending order
-     * @return The sorted stream of games
+     * @param offset    How many sorted games to skip
+     * @param limit     The most games to return
+     * @return The page of games
      */
-    private Stream<BoardGame> sortGames(Stream<BoardGame> games, GameData sortOn, boolean ascending) {
-        List<BoardGame> gameList = games.toList();
-        filteredGames = new HashSet<>(gameList);
-        Comparator<BoardGame> comparator = BoardGameSortStrategy.getComparatorForColumn(sortOn);
-        comparator = ascending ? comparator : comparator.reversed();
-        return filteredGames.stream().sorted(comparator);
+    private Stream<BoardGame> page(BitSet selected, GameData sortOn, boolean ascending,
+            int offset, int limit) {
+        return StreamSupport.stream(new PageSpliterator(selected, sortOn, ascending, offset,
+                limit), false);
     }
 
     /**
-     * Checks if a column is numeric.
+     * Takes a snapshot of a sorted selection. Only counts the selection, nothing is
+     * sorted until a position is asked for.
      * 
-     * @param column The column to check
-     * @return True if the column is numeric, false otherwise
+     * @param selected  The ordinals of the games, never changed afterwards
+     * @param sortOn    The column to sort on
+     * @param ascending Whether to sort in ascending order
+     * @return The snapshot
      */
-    private boolean isNumericColumn(GameData column) {
-        switch (column) {
-            case RATING:
-            case DIFFICULTY:
-            case RANK:
-            case MIN_PLAYERS:
-            case MAX_PLAYERS:
-            case MIN_TIME:
-            case MAX_TIME:
-            case YEAR:
-                return true;
-            default:
-                return false;
+    private ResultSnapshot snapshot(BitSet selected, GameData sortOn, boolean ascending) {
+        return snapshot(selected, sortOn, ascending, List.of());
+    }
+
+    /**
+     * Takes a snapshot of a sorted selection made by a filter.
+     * 
+     * @param selected  The ordinals of the games, never changed afterwards
+     * @param sortOn    The column to sort on
+     * @param ascending Whether to sort in ascending order
+     * @param errors    Why parts of the filter were ignored
+     * @return The snapshot
+     */
+    private ResultSnapshot snapshot(BitSet selected, GameData sortOn, boolean ascending,
+            List<String> errors) {
+        return new ResultSnapshot(catalog, selected,
+                count -> pageOrdinals(selected, sortOn, ascending, 0, count, null), errors);
+    }
+
+    /**
+     * Looks up the games of a list of ordinals.
+     * 
+     * This is the only place BoardGame objects are pulled out of the catalog.
+     * 
+     * @param ordinals The ordinals of the games
+     * @return The games, in the same order
+     */
+    private BoardGame[] games(int[] ordinals) {
+        BoardGame[] result = new BoardGame[ordinals.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            result[i] = catalog.game(ordinals[i]);
         }
+        return result;
     }
 
     /**
-     * Applies a numeric filter to a stream of games.
+     * Sorts a selection of games based on the given column and order.
      * 
-     * @param games    The stream of games to filter
-     * @param column   The column to filter on
-     * @param operator The operator to use
-     * @param value    The value to filter with
-     * @return The filtered stream of games
+     * Usually the catalog's sorted order for the column is walked (backwards for
+     * descending), keeping the games that are selected, so nothing is compared.
+     * When only a few games are selected it is cheaper to sort just those, so
+     * that is done instead. Both ways put games with equal values in the same order.
+     * 
+     * @param selected  The ordinals of the games to sort
+     * @param sortOn    The column to sort on
+     * @param ascending Whether to sort in ascending order
+     * @param profile   Where to record how it was sorted, or null
+     * @return The sorted ordinals
      */
-    private Stream<BoardGame> applyNumericFilter(Stream<BoardGame> games, GameData column,
-            Operations operator, String value) {
-        double numValue;
-        try {
-            numValue = Double.parseDouble(value);
-        } catch (NumberFormatException e) {
-            // If the value is not a number, return the original stream
-            return games;
+    private int[] sortOrdinals(BitSet selected, GameData sortOn, boolean ascending,
+            QueryProfile profile) {
+        int[] result = new int[selected.cardinality()];
+        if (result.length < catalog.size() / SMALL_SELECTION_DIVISOR) {
+            if (profile != null) {
+                profile.setSortPath("sort selection");
+            }
+            Integer[] boxed = selected.stream().boxed().toArray(Integer[]::new);
+            Arrays.sort(boxed, (a, b) -> catalog.compare(sortOn, a, b));
+            if (!ascending) {
+                Collections.reverse(Arrays.asList(boxed));
+            }
+            for (int i = 0; i < result.length; i++) {
+                result[i] = boxed[i];
+            }
+            return result;
         }
 
-        return games.filter(game -> applyNumericFilterOnSingleGame(game, column, operator, numValue));
+        if (profile != null) {
+            profile.setSortPath("walk sorted order");
+        }
+        int[] order = catalog.sortOrder(sortOn);
+        int i = 0;
+        if (ascending) {
+            for (int k = 0; i < result.length; k++) {
+                if (selected.get(order[k])) {
+                    result[i++] = order[k];
+                }
+            }
+        } else {
+            for (int k = order.length - 1; i < result.length; k--) {
+                if (selected.get(order[k])) {
+                    result[i++] = order[k];
+                }
+            }
+        }
+        return result;
     }
 
     /**
-     * Applies a numeric filter to a single game.
+     * Gets one page of a selection of games, sorted on the given column and order.
+     * 
+     * Walking the catalog's sorted order finds the page after looking at about
+     * size * end / selected games, so it is used when the selection is large. For
+     * small selections a heap holding the best end games is cheaper, and when the
+     * page reaches past half the selection it is simplest to sort it all.
+     * 
+     * Games with equal values are in the same order as in sortOrdinals.
      * 
-     * @param game         The game to filter
-     * @param column       The column to filter on
-     * @param operator     The operator to use
-     * @param numericValue The value to filter with
-     * @return True if the game matches the filter, false otherwise
+     * @param selected  The ordinals of the games to page through
+     * @param sortOn    The column to sort on
+     * @param ascending Whether to sort in ascending order
+     * @param offset    How many sorted games to skip
+     * @param limit     The most games to return
+     * @param profile   Where to record how it was sorted, or null
+     * @return The ordinals of the page of games
      */
-    private boolean applyNumericFilterOnSingleGame(BoardGame game, GameData column, Operations operator,
-            double numericValue) {
-        double gameValue;
-        try {
-            gameValue = game.getNumericValue(column);
-        } catch (IllegalArgumentException e) {
-            // This should never happen if isNumericColumn is implemented correctly
-            return true;
+    private int[] pageOrdinals(BitSet selected, GameData sortOn, boolean ascending,
+            int offset, int limit, QueryProfile profile) {
+        int count = selected.cardinality();
+        int end = (int) Math.min((long) offset + limit, count);
+        if (offset >= end) {
+            return new int[0];
+        }
+        if (end > count / 2) {
+            int[] sorted = sortOrdinals(selected, sortOn, ascending, profile);
+            return offset == 0 && end == count ? sorted : Arrays.copyOfRange(sorted, offset, end);
         }
-        switch (operator) {
-            case EQUALS:
-                return gameValue == numericValue;
-            case NOT_EQUALS:
-                return gameValue != numericValue;
-            case GREATER_THAN:
-                return gameValue > numericValue;
-            case LESS_THAN:
-                return gameValue < numericValue;
-            case GREATER_THAN_EQUALS:
-                return gameValue >= numericValue;
-            case LESS_THAN_EQUALS:
-                return gameValue <= numericValue;
-            default:
-                return true;
+
+        int[] page = new int[end - offset];
+        if (walksSortedOrder(count, end)) {
+            if (profile != null) {
+                profile.setSortPath("walk sorted order to end of page");
+            }
+            int[] order = catalog.sortOrder(sortOn);
+            int seen = 0;
+            for (int k = 0; seen < end; k++) {
+                int game = order[ascending ? k : order.length - 1 - k];
+                if (selected.get(game) && seen++ >= offset) {
+                    page[seen - 1 - offset] = game;
+                }
+            }
+            return page;
+        }
+
+        if (profile != null) {
+            profile.setSortPath("heap of " + end);
+        }
+        // ties are broken on ordinal, the same as walking the sorted order
+        Comparator<Integer> order = (a, b) -> {
+            int cmp = catalog.compare(sortOn, a, b);
+            return cmp != 0 ? cmp : Integer.compare(a, b);
+        };
+        if (!ascending) {
+            order = order.reversed();
         }
+        // keeps the best end games, with the worst of them on top
+        PriorityQueue<Integer> best = new PriorityQueue<>(end + 1, order.reversed());
+        for (int game = selected.nextSetBit(0); game >= 0; game = selected.nextSetBit(game + 1)) {
+            if (best.size() < end) {
+                best.add(game);
+            } else if (order.compare(game, best.peek()) < 0) {
+                best.poll();
+                best.add(game);
+            }
+        }
+        for (int i = end - 1; i >= 0; i--) {
+            int game = best.poll();
+            if (i >= offset) {
+                page[i - offset] = game;
+            }
+        }
+        return page;
     }
 
     /**
-     * Applies a string filter to a stream of games.
+     * Checks if the first games of a selection are best found by walking the
+     * catalog's sorted order, the way pageOrdinals and sortOrdinals choose.
      * 
-     * @param games    The stream of games to filter
-     * @param column   The column to filter on
-     * @param operator The operator to use
-     * @param value    The value to filter with
-     * @return The filtered stream of games
+     * @param count The number of games selected
+     * @param end   The number of sorted games needed
+     * @return true to walk the sorted order, false to sort or use a heap
      */
-    private Stream<BoardGame> applyStringFilter(Stream<BoardGame> games, GameData column,
-            Operations operator, String value) {
-        return games.filter(game -> applyStringFilterOnSingleGame(game, column, operator, value));
+    private boolean walksSortedOrder(int count, int end) {
+        if (end > count / 2) {
+            return count >= catalog.size() / SMALL_SELECTION_DIVISOR;
+        }
+        long walkCost = (long) catalog.size() * end / count;
+        long heapCost = (long) count * HEAP_COST;
+        return walkCost <= heapCost;
     }
 
     /**
-     * Applies a string filter to a single game.
+     * Gives the games of one page of a selection, in sorted order, working each
+     * one out only when it is asked for.
      * 
-     * @param game        The game to filter
-     * @param column      The column to filter on
-     * @param operator    The operator to use
-     * @param stringValue The value to filter with
-     * @return True if the game matches the filter, false otherwise
+     * When the sorted order is walked, each game taken moves the walk on to the
+     * next selected game. Otherwise the page is worked out by pageOrdinals the
+     * first time a game is taken. The stream is sequential, and the same games
+     * come out either way.
      */
-    private boolean applyStringFilterOnSingleGame(BoardGame game, GameData column, Operations operator,
-            String stringValue) {
-        String gameValue;
-        try {
-            gameValue = game.getStringValue(column);
-        } catch (IllegalArgumentException e) {
-            // This should never happen if isNumericColumn is implemented correctly
+    private final class PageSpliterator implements Spliterator<BoardGame> {
+        /** The games to page through. */
+        private final BitSet selected;
+        /** The column to sort on. */
+        private final GameData sortOn;
+        /** Whether to sort in ascending order. */
+        private final boolean ascending;
+        /** How many sorted games to skip. */
+        private final int offset;
+        /** The most games to give. */
+        private final int limit;
+        /** Whether the catalog's sorted order is walked. */
+        private final boolean walk;
+        /** The catalog's sorted order, when walking. */
+        private int[] order;
+        /** The page, worked out on first use when not walking. */
+        private int[] ordinals;
+        /** Next position in the order or the page. */
+        private int next;
+        /** Selected games still to skip before the page, when walking. */
+        private int skip;
+        /** Games still to give. */
+        private int remaining;
+
+        /**
+         * Builds a spliterator over one page. Only counts the selection.
+         * 
+         * @param selected  The ordinals of the games to page through
+         * @param sortOn    The column to sort on
+         * @param ascending Whether to sort in ascending order
+         * @param offset    How many sorted games to skip
+         * @param limit     The most games to give
+         */
+        PageSpliterator(BitSet selected, GameData sortOn, boolean ascending, int offset,
+                int limit) {
+            this.selected = selected;
+            this.sortOn = sortOn;
+            this.ascending = ascending;
+            this.offset = offset;
+            this.limit = limit;
+            int count = selected.cardinality();
+            int end = (int) Math.min((long) offset + limit, count);
+            remaining = Math.max(end - offset, 0);
+            walk = remaining > 0 && walksSortedOrder(count, end);
+            skip = offset;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super BoardGame> action) {
+            if (remaining == 0) {
+                return false;
+            }
+            int game;
+            if (walk) {
+                if (order == null) {
+                    order = catalog.sortOrder(sortOn);
+                }
+                do {
+                    game = order[ascending ? next : order.length - 1 - next];
+                    next++;
+                } while (!selected.get(game) || skip-- > 0);
+            } else {
+                if (ordinals == null) {
+                    ordinals = pageOrdinals(selected, sortOn, ascending, offset, limit, null);
+                }
+                game = ordinals[next++];
+            }
+            remaining--;
+            action.accept(catalog.game(game));
             return true;
         }
-        switch (operator) {
-            case EQUALS:
-                return gameValue.equalsIgnoreCase(stringValue);
-            case NOT_EQUALS:
-                return !gameValue.equalsIgnoreCase(stringValue);
-            case GREATER_THAN:
-                return gameValue.compareToIgnoreCase(stringValue) > 0;
-            case LESS_THAN:
-                return gameValue.compareToIgnoreCase(stringValue) < 0;
-            case GREATER_THAN_EQUALS:
-                return gameValue.compareToIgnoreCase(stringValue) >= 0;
-            case LESS_THAN_EQUALS:
-                return gameValue.compareToIgnoreCase(stringValue) <= 0;
-            case CONTAINS:
-                return gameValue.toLowerCase().contains(stringValue.toLowerCase());
-            default:
-                return true;
+
+        @Override
+        public Spliterator<BoardGame> trySplit() {
+            return null; // sorted pages are walked in order
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | NONNULL | IMMUTABLE;
         }
     }
 }
@@ -0,0 +1,248 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a planner did to answer one filter, and how long each part took.
+ *
+ * Pass a profile to {@link IPlanner#filter(String, GameData, boolean, QueryProfile)}
+ * to fill it in. It records the clauses in the order they ran, the games left
+ * after each one and how the clause was answered (an index or a scan), and the
+ * time spent parsing, filtering, sorting and materializing the games. The console
+ * adds the time it took to print them.
+ *
+ * When no profile is passed nothing is timed or recorded, so profiling costs
+ * nothing unless it is asked for. A profile is filled in by one query and is not
+ * thread safe.
+ */
+public final class QueryProfile {
+    /** The filter as given. */
+    private String filter = "";
+    /** The column sorted on. */
+    private GameData sortOn;
+    /** Whether the sort was ascending. */
+    private boolean ascending;
+    /** The plan that ran, written out as a filter. */
+    private String plan = "";
+    /** Games selected before the filter. */
+    private int rowsIn;
+    /** The clauses, in the order they ran. */
+    private final List<ClauseProfile> clauses = new ArrayList<>();
+    /** How the games were put in order. */
+    private String sortPath = "";
+    /** Games returned. */
+    private int rowsOut;
+    /** Time spent compiling (or finding) and ordering the plan. */
+    private long parseNanos;
+    /** Time spent sorting. */
+    private long sortNanos;
+    /** Time spent looking up the games of the sorted ordinals. */
+    private long materializeNanos;
+    /** Time spent printing the games, -1 if not printed. */
+    private long renderNanos = -1;
+
+    /**
+     * One clause of the plan, as it ran.
+     *
+     * @param clause     the clause written out as a filter
+     * @param accessPath how the clause was answered
+     * @param rowsOut    games left after the clause
+     * @param nanos      time the clause took
+     */
+    public record ClauseProfile(String clause, String accessPath, int rowsOut, long nanos) {
+    }
+
+    /**
+     * Starts recording a query.
+     *
+     * @param filter    the filter as given
+     * @param sortOn    the column to sort on
+     * @param ascending whether the sort is ascending
+     * @param rowsIn    games selected before the filter
+     */
+    void start(String filter, GameData sortOn, boolean ascending, int rowsIn) {
+        this.filter = filter == null ? "" : filter;
+        this.sortOn = sortOn;
+        this.ascending = ascending;
+        this.rowsIn = rowsIn;
+    }
+
+    /**
+     * Records the plan that was chosen.
+     *
+     * @param plan  the plan
+     * @param nanos time taken to compile (or find) and order it
+     */
+    void setPlan(FilterPlan plan, long nanos) {
+        this.plan = plan.toString();
+        this.parseNanos = nanos;
+    }
+
+    /**
+     * Records one clause, in the order they ran.
+     *
+     * @param clause     the clause written out as a filter
+     * @param accessPath how the clause was answered
+     * @param rowsOut    games left after the clause
+     * @param nanos      time the clause took
+     */
+    void addClause(String clause, String accessPath, int rowsOut, long nanos) {
+        clauses.add(new ClauseProfile(clause, accessPath, rowsOut, nanos));
+    }
+
+    /**
+     * Records how the games were put in order.
+     *
+     * @param sortPath a description, such as walk sorted order
+     */
+    void setSortPath(String sortPath) {
+        this.sortPath = sortPath;
+    }
+
+    /**
+     * Records the time taken to sort.
+     *
+     * @param nanos the time
+     */
+    void setSortNanos(long nanos) {
+        this.sortNanos = nanos;
+    }
+
+    /**
+     * Records the time taken to look up the games, and how many there were.
+     *
+     * @param nanos   the time
+     * @param rowsOut games returned
+     */
+    void setMaterializeNanos(long nanos, int rowsOut) {
+        this.materializeNanos = nanos;
+        this.rowsOut = rowsOut;
+    }
+
+    /**
+     * Records the time taken to print the games.
+     *
+     * @param nanos the time
+     */
+    void setRenderNanos(long nanos) {
+        this.renderNanos = nanos;
+    }
+
+    /**
+     * Get the plan that ran, with the clauses in the order they ran.
+     *
+     * @return the plan written out as a filter, empty if there was no filter
+     */
+    public String getPlan() {
+        return plan;
+    }
+
+    /**
+     * Get the clauses in the order they ran.
+     *
+     * @return the clauses
+     */
+    public List<ClauseProfile> getClauses() {
+        return Collections.unmodifiableList(clauses);
+    }
+
+    /**
+     * Get the number of games selected before the filter.
+     *
+     * @return the number of games
+     */
+    public int getRowsIn() {
+        return rowsIn;
+    }
+
+    /**
+     * Get the number of games returned.
+     *
+     * @return the number of games
+     */
+    public int getRowsOut() {
+        return rowsOut;
+    }
+
+    /**
+     * Get how the games were put in order.
+     *
+     * @return a description, empty if nothing was sorted
+     */
+    public String getSortPath() {
+        return sortPath;
+    }
+
+    /**
+     * Get the time spent compiling (or finding) and ordering the plan.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * Get the time spent applying the clauses.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getFilterNanos() {
+        return clauses.stream().mapToLong(ClauseProfile::nanos).sum();
+    }
+
+    /**
+     * Get the time spent sorting.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getSortNanos() {
+        return sortNanos;
+    }
+
+    /**
+     * Get the time spent looking up the games of the sorted ordinals.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getMaterializeNanos() {
+        return materializeNanos;
+    }
+
+    /**
+     * Get the time spent printing the games.
+     *
+     * @return the time in nanoseconds, or -1 if they were not printed
+     */
+    public long getRenderNanos() {
+        return renderNanos;
+    }
+
+    /**
+     * Get the profile written out as a report, one line per stage.
+     *
+     * @return the report
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("query: %s sort:%s %s%n", filter.isEmpty() ? "(none)" : filter,
+                sortOn == null ? "" : sortOn.getColumnName(), ascending ? "asc" : "desc"));
+        out.append(String.format("  %-11s %,12d ns  plan: %s%n", "parse", parseNanos, plan));
+        out.append(String.format("  %-11s %,12d ns  %,d games in%n", "filter", getFilterNanos(),
+                rowsIn));
+        for (ClauseProfile clause : clauses) {
+            out.append(String.format("    %-27s %,10d ns  %,d left  (%s)%n", clause.clause(),
+                    clause.nanos(), clause.rowsOut(), clause.accessPath()));
+        }
+        out.append(String.format("  %-11s %,12d ns  (%s)%n", "sort", sortNanos, sortPath));
+        out.append(String.format("  %-11s %,12d ns  %,d games out%n", "materialize",
+                materializeNanos, rowsOut));
+        if (renderNanos >= 0) {
+            out.append(String.format("  %-11s %,12d ns%n", "render", renderNanos));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,418 @@
+package student;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+/**
+ * Set of games kept in name order, that can also look games up by position.
+ *
+ * The games are held in a treap: a binary search tree on the name order, where
+ * each node also has a random priority that is never lower than its children's,
+ * which keeps the tree about 2 log n deep whatever order games are added in. Each
+ * node counts the games under it, so the game at a position, or where a game
+ * would go, is found on one path down the tree. A run of positions is taken out
+ * by cutting the tree before and after it and joining the ends, also in log n.
+ *
+ * Games are ordered on their name ignoring case, the order lists are shown in,
+ * then on the exact name and id, so games that are not equal always have a place
+ * of their own. Games are also kept in a hash map on their id, so a game given by
+ * id is found straight away; ids are taken to be unique, as they are in the game
+ * data. Sets are not thread safe.
+ */
+final class RankedGameSet implements Iterable<BoardGame> {
+    /** The order games are kept in, consistent with BoardGame.equals. */
+    static final Comparator<BoardGame> ORDER = Comparator
+            .comparing(BoardGame::getName, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(BoardGame::getName)
+            .thenComparingInt(BoardGame::getId);
+
+    /** One game of the tree. */
+    private static final class Node {
+        /** The game. */
+        private final BoardGame game;
+        /** Random priority, no lower than the children's. */
+        private final int priority;
+        /** Number of games under this node, itself included. */
+        private int size = 1;
+        /** Games before this one. */
+        private Node left;
+        /** Games after this one. */
+        private Node right;
+
+        /**
+         * Builds a node with no children.
+         *
+         * @param game     the game
+         * @param priority the random priority
+         */
+        Node(BoardGame game, int priority) {
+            this.game = game;
+            this.priority = priority;
+        }
+
+        /**
+         * Recounts the games under this node after a child has changed.
+         *
+         * @return this node
+         */
+        Node update() {
+            size = 1 + size(left) + size(right);
+            return this;
+        }
+    }
+
+    /** Gives out priorities, seeded so runs can be repeated. */
+    private final SplittableRandom random = new SplittableRandom(0x5EED);
+    /** The root of the tree, null when empty. */
+    private Node root;
+    /** The games, by id. */
+    private final Map<Integer, BoardGame> byId = new HashMap<>();
+
+    /**
+     * Get the number of games.
+     *
+     * @return the number of games
+     */
+    int size() {
+        return size(root);
+    }
+
+    /**
+     * Removes every game.
+     */
+    void clear() {
+        root = null;
+        byId.clear();
+    }
+
+    /**
+     * Checks whether a game is in the set.
+     *
+     * @param game the game
+     * @return true if it is
+     */
+    boolean contains(BoardGame game) {
+        Node node = root;
+        while (node != null) {
+            int cmp = ORDER.compare(game, node.game);
+            if (cmp == 0) {
+                return true;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return false;
+    }
+
+    /**
+     * Adds a game, unless it is already in the set.
+     *
+     * @param game the game
+     * @return true if it was added
+     */
+    boolean add(BoardGame game) {
+        if (contains(game)) {
+            return false;
+        }
+        Node[] parts = split(root, game);
+        root = merge(merge(parts[0], new Node(game, random.nextInt())), parts[1]);
+        byId.putIfAbsent(game.getId(), game);
+        return true;
+    }
+
+    /**
+     * Fills an empty set with games already in order, in linear time. The tree is
+     * built from left to right, keeping the path down its right side on a stack:
+     * each new game goes at the bottom of that path, taking the games of lower
+     * priority under it on its left, so the tree is the one adding the games one
+     * by one would give.
+     *
+     * @param sorted the games, in ORDER with none equal
+     * @throws IllegalStateException if the set is not empty
+     */
+    void addAllSorted(List<BoardGame> sorted) {
+        if (root != null) {
+            throw new IllegalStateException("Set is not empty");
+        }
+        Deque<Node> rightSide = new ArrayDeque<>();
+        for (BoardGame game : sorted) {
+            Node node = new Node(game, random.nextInt());
+            Node below = null;
+            while (!rightSide.isEmpty() && rightSide.peek().priority < node.priority) {
+                below = rightSide.pop().update(); // its right side is done
+            }
+            node.left = below;
+            if (!rightSide.isEmpty()) {
+                rightSide.peek().right = node;
+            }
+            rightSide.push(node);
+            byId.putIfAbsent(game.getId(), game);
+        }
+        while (!rightSide.isEmpty()) {
+            root = rightSide.pop().update();
+        }
+    }
+
+    /**
+     * Removes a game, if it is in the set.
+     *
+     * @param game the game
+     * @return true if it was removed
+     */
+    boolean remove(BoardGame game) {
+        if (!contains(game)) {
+            return false;
+        }
+        int index = indexOf(game);
+        removeRange(index, index + 1);
+        return true;
+    }
+
+    /**
+     * Gets the game at a position in name order.
+     *
+     * @param index the position, from 0
+     * @return the game
+     * @throws IndexOutOfBoundsException if there is no game at that position
+     */
+    BoardGame get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size "
+                    + size());
+        }
+        Node node = root;
+        while (true) {
+            int before = size(node.left);
+            if (index == before) {
+                return node.game;
+            }
+            if (index < before) {
+                node = node.left;
+            } else {
+                index -= before + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Counts the games that come before a game in name order, which is its position
+     * if it is in the set.
+     *
+     * @param game the game
+     * @return the number of games before it
+     */
+    int indexOf(BoardGame game) {
+        int index = 0;
+        Node node = root;
+        while (node != null) {
+            if (ORDER.compare(game, node.game) <= 0) {
+                node = node.left;
+            } else {
+                index += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Finds the first game, in name order, with a name, ignoring case.
+     *
+     * @param name the name
+     * @return the game, or null if there is none with that name
+     */
+    BoardGame findByName(String name) {
+        BoardGame found = null;
+        Node node = root;
+        while (node != null) {
+            int cmp = String.CASE_INSENSITIVE_ORDER.compare(name, node.game.getName());
+            if (cmp <= 0) {
+                if (cmp == 0) {
+                    found = node.game; // keep looking for an earlier one
+                }
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the game with an id.
+     *
+     * @param id the id
+     * @return the game, or null if there is none with that id
+     */
+    BoardGame findById(int id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Removes the games at a run of positions in name order, in log n time
+     * plus the time to go through the removed games.
+     *
+     * @param from the first position, from 0
+     * @param to   one past the last position, positions past the end are ignored
+     * @return the games removed, in name order
+     */
+    List<BoardGame> removeRange(int from, int to) {
+        int start = Math.max(from, 0);
+        int end = Math.min(to, size());
+        if (start >= end) {
+            return List.of();
+        }
+        Node[] head = splitAt(root, start);
+        Node[] tail = splitAt(head[1], end - start);
+        root = merge(head[0], tail[1]);
+        List<BoardGame> removed = new ArrayList<>(end - start);
+        for (Iterator<BoardGame> it = new InOrder(tail[0]); it.hasNext();) {
+            BoardGame game = it.next();
+            byId.remove(game.getId(), game);
+            removed.add(game);
+        }
+        return removed;
+    }
+
+    /**
+     * Goes through the games in name order.
+     *
+     * @return an iterator over the games, which must not be used once the set
+     *         is changed
+     */
+    @Override
+    public Iterator<BoardGame> iterator() {
+        return new InOrder(root);
+    }
+
+    /**
+     * Get the number of games under a node.
+     *
+     * @param node the node, or null
+     * @return the number of games, 0 for null
+     */
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Cuts a tree into the games before a game and the rest.
+     *
+     * @param node the root of the tree
+     * @param game the game to cut at
+     * @return the games before it, then the rest
+     */
+    private static Node[] split(Node node, BoardGame game) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (ORDER.compare(node.game, game) < 0) {
+            Node[] parts = split(node.right, game);
+            node.right = parts[0];
+            parts[0] = node.update();
+            return parts;
+        }
+        Node[] parts = split(node.left, game);
+        node.left = parts[1];
+        parts[1] = node.update();
+        return parts;
+    }
+
+    /**
+     * Cuts a tree into its first games and the rest.
+     *
+     * @param node  the root of the tree
+     * @param count how many games go in the first part
+     * @return the first count games, then the rest
+     */
+    private static Node[] splitAt(Node node, int count) {
+        if (node == null) {
+            return new Node[2];
+        }
+        int before = size(node.left);
+        if (count <= before) {
+            Node[] parts = splitAt(node.left, count);
+            node.left = parts[1];
+            parts[1] = node.update();
+            return parts;
+        }
+        Node[] parts = splitAt(node.right, count - before - 1);
+        node.right = parts[0];
+        parts[0] = node.update();
+        return parts;
+    }
+
+    /**
+     * Joins two trees, where every game of the first comes before every game of
+     * the second.
+     *
+     * @param first  the root of the first tree, or null
+     * @param second the root of the second tree, or null
+     * @return the root of the joined tree
+     */
+    private static Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority >= second.priority) {
+            first.right = merge(first.right, second);
+            return first.update();
+        }
+        second.left = merge(first, second.left);
+        return second.update();
+    }
+
+    /**
+     * Walks a tree in name order, holding only the path down to the next game.
+     */
+    private static final class InOrder implements Iterator<BoardGame> {
+        /** Nodes whose game and right side are still to come, next on top. */
+        private final Deque<Node> path = new ArrayDeque<>();
+
+        /**
+         * Starts a walk at the first game.
+         *
+         * @param root the root of the tree, or null
+         */
+        InOrder(Node root) {
+            pushLeft(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !path.isEmpty();
+        }
+
+        @Override
+        public BoardGame next() {
+            if (path.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node node = path.pop();
+            pushLeft(node.right);
+            return node.game;
+        }
+
+        /**
+         * Goes down the left side of a tree, to its first game.
+         *
+         * @param node the root of the tree, or null
+         */
+        private void pushLeft(Node node) {
+            for (; node != null; node = node.left) {
+                path.push(node);
+            }
+        }
+    }
+}
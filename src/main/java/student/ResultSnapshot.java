@@ -0,0 +1,181 @@
+package student;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * The last result a planner gave, in the order it was shown, so games can be
+ * picked from it by position (list add 5, list add 1-200) without running the
+ * filter or sorting again.
+ *
+ * A snapshot of a filter holds the selection it was made from, which is never
+ * changed, and the sort asked for. The sorted order is only worked out as far
+ * as the positions asked for, the first time they are asked for, and is then
+ * kept. Each later game at a position already worked out is a single array read.
+ * A snapshot of other results (such as similar games) holds their order as is.
+ * Games are also found in a snapshot by name or id through the catalog's hash
+ * index, checking only the games with that name or id against the selection.
+ *
+ * The games at each position never change, whatever the planner does next. A
+ * snapshot belongs to one session and is not thread safe.
+ */
+public final class ResultSnapshot {
+    /** Works out the first games of the sorted result. */
+    @FunctionalInterface
+    interface Sorter {
+        /**
+         * Gets the first games of the sorted result.
+         *
+         * @param count how many games, at most the size of the result
+         * @return their ordinals, in order
+         */
+        int[] first(int count);
+    }
+
+    /** Fewest games to work out at a time, so small adds do not sort over and over. */
+    private static final int MIN_PREFIX = 64;
+
+    /** The catalog the ordinals belong to. */
+    private final GameCatalog catalog;
+    /** The ordinals of the games of the result, never changed. */
+    private final BitSet selected;
+    /** Number of games in the result. */
+    private final int size;
+    /** Works out more of the order, null when the order was given whole. */
+    private final Sorter sorter;
+    /** Why parts of the filter the result came from were ignored. */
+    private final List<String> errors;
+    /** Ordinals of the first games of the result, in order. */
+    private int[] ordinals;
+
+    /**
+     * Builds a snapshot of a sorted result that is worked out as it is needed.
+     *
+     * @param catalog  the catalog the ordinals belong to
+     * @param selected the ordinals of the games, never changed afterwards
+     * @param sorter   works out the first games of the result
+     * @param errors   why parts of the filter were ignored, empty if none
+     */
+    ResultSnapshot(GameCatalog catalog, BitSet selected, Sorter sorter, List<String> errors) {
+        this.catalog = catalog;
+        this.selected = selected;
+        this.size = selected.cardinality();
+        this.sorter = sorter;
+        this.errors = errors;
+        this.ordinals = new int[0];
+    }
+
+    /**
+     * Builds a snapshot of a result that is already in order.
+     *
+     * @param catalog  the catalog the ordinals belong to
+     * @param ordinals the ordinals of the result, in order, not copied
+     */
+    ResultSnapshot(GameCatalog catalog, int[] ordinals) {
+        this.catalog = catalog;
+        this.selected = new BitSet(catalog.size());
+        for (int game : ordinals) {
+            selected.set(game);
+        }
+        this.size = ordinals.length;
+        this.sorter = null;
+        this.errors = List.of();
+        this.ordinals = ordinals;
+    }
+
+    /**
+     * Get the number of games in the result.
+     *
+     * @return the number of games
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get why parts of the filter this result came from were ignored, with where
+     * they start, the same as FilterPlan.getErrors.
+     *
+     * @return the reasons, empty if the whole filter was used or there was none
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Gets the game at a position of the result.
+     *
+     * @param index the position, from 0
+     * @return the game
+     * @throws IndexOutOfBoundsException if there is no game at that position
+     */
+    public BoardGame get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size "
+                    + size);
+        }
+        return catalog.game(ordinalsTo(index + 1)[index]);
+    }
+
+    /**
+     * Gets the games in a range of positions of the result. Positions past the end
+     * are left out.
+     *
+     * @param from the first position, from 0
+     * @param to   one past the last position
+     * @return the games, in order
+     */
+    public List<BoardGame> range(int from, int to) {
+        int end = Math.min(to, size);
+        if (from < 0 || from >= end) {
+            return List.of();
+        }
+        int[] known = ordinalsTo(end);
+        return IntStream.range(from, end).mapToObj(i -> catalog.game(known[i])).toList();
+    }
+
+    /**
+     * Get every game of the result, in no particular order, so nothing is sorted.
+     * For finding a game by name, or adding them all.
+     *
+     * @return the games
+     */
+    public Stream<BoardGame> games() {
+        return selected.stream().mapToObj(catalog::game);
+    }
+
+    /**
+     * Finds a game of the result by name, ignoring case, or by id. Only the games
+     * of the catalog with that name or id are looked at.
+     *
+     * @param key the name or id
+     * @return the game, the lowest ordinal if several in the result have the
+     *         name, or null if none in the result has it
+     */
+    BoardGame find(GameKey key) {
+        int game = key.isId() ? catalog.ordinalOfId(key.id()) : catalog.ordinalOf(key.name());
+        while (game != KeyIndex.NONE && !selected.get(game)) {
+            game = key.isId() ? KeyIndex.NONE : catalog.nextWithSameName(game);
+        }
+        return game == KeyIndex.NONE ? null : catalog.game(game);
+    }
+
+    /**
+     * Makes sure the order is known up to a position, working out more of it if
+     * needed. At least twice as much as is known is worked out each time, so
+     * asking for later and later positions costs about the same as asking for the
+     * last one straight away.
+     *
+     * @param end one past the last position needed, at most size
+     * @return the known ordinals, at least end of them
+     */
+    private int[] ordinalsTo(int end) {
+        if (end > ordinals.length) {
+            int count = Math.min(size, Math.max(end, Math.max(MIN_PREFIX, ordinals.length * 2)));
+            ordinals = sorter.first(count);
+        }
+        return ordinals;
+    }
+}
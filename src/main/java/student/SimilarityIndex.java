@@ -0,0 +1,440 @@
+package student;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * KD-tree over the numeric features of the games, for finding the games most
+ * like a given one.
+ *
+ * Each game is a point with one coordinate per feature column (rating,
+ * difficulty, minimum and maximum players, minimum and maximum play time and
+ * year). Each column is normalized to its z-score, so a difference of one means
+ * one standard deviation whatever the units, and games are compared on the
+ * straight line (euclidean) distance between their points. A NaN value is taken
+ * to be the mean.
+ *
+ * The tree is implicit: the ordinals are arranged so that the game in the middle
+ * of every range splits the range on one coordinate, the games before it having
+ * smaller or equal values and the ones after it larger or equal values. The
+ * coordinate cycles with the depth. A search goes down the side of each split the
+ * game is on first, and only looks at the other side if the split is closer than
+ * the k-th nearest game found so far, so most of the tree is never visited.
+ *
+ * Ties in distance go to the lower ordinal, so a search and a scan give the same
+ * games. The index is never changed after it is built.
+ */
+final class SimilarityIndex {
+    /** Ranges this small are not split, their games are all checked. */
+    private static final int LEAF_SIZE = 8;
+    /** Selections smaller than the index size over this are scanned, not searched. */
+    private static final int SMALL_SELECTION_DIVISOR = 64;
+
+    /** Number of coordinates of each point. */
+    private final int dimensions;
+    /** Ordinals in tree order. */
+    private final int[] order;
+    /** Coordinates of the points in tree order, dimensions per point. */
+    private final float[] coords;
+    /** Position in tree order of each ordinal. */
+    private final int[] positions;
+
+    /**
+     * Builds the index.
+     *
+     * @param size    the number of games
+     * @param columns the feature columns, each giving the value of an ordinal
+     */
+    SimilarityIndex(int size, IntToDoubleFunction... columns) {
+        dimensions = columns.length;
+        float[] points = new float[size * dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            normalize(size, columns[d], points, d);
+        }
+
+        order = new int[size];
+        Arrays.setAll(order, i -> i);
+        build(points, 0, size, 0);
+
+        coords = new float[points.length];
+        positions = new int[size];
+        for (int k = 0; k < size; k++) {
+            System.arraycopy(points, order[k] * dimensions, coords, k * dimensions, dimensions);
+            positions[order[k]] = k;
+        }
+    }
+
+    /**
+     * Writes one column into the points as z-scores.
+     *
+     * @param size   the number of games
+     * @param column the column, giving the value of an ordinal
+     * @param points the points, by ordinal
+     * @param d      the coordinate the column goes to
+     */
+    private void normalize(int size, IntToDoubleFunction column, float[] points, int d) {
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            double value = column.applyAsDouble(i);
+            if (!Double.isNaN(value)) {
+                sum += value;
+                count++;
+            }
+        }
+        double mean = count == 0 ? 0 : sum / count;
+        double squares = 0;
+        for (int i = 0; i < size; i++) {
+            double value = column.applyAsDouble(i);
+            if (!Double.isNaN(value)) {
+                squares += (value - mean) * (value - mean);
+            }
+        }
+        double deviation = count == 0 ? 0 : Math.sqrt(squares / count);
+        double scale = deviation > 0 ? 1 / deviation : 1;
+        for (int i = 0; i < size; i++) {
+            double value = column.applyAsDouble(i);
+            points[i * dimensions + d] = Double.isNaN(value) ? 0
+                    : (float) ((value - mean) * scale);
+        }
+    }
+
+    /**
+     * Arranges a range of the order into a tree.
+     *
+     * @param points the points, by ordinal
+     * @param from   the first position of the range
+     * @param to     one past the last position of the range
+     * @param depth  the depth of the range in the tree
+     */
+    private void build(float[] points, int from, int to, int depth) {
+        if (to - from <= LEAF_SIZE) {
+            return;
+        }
+        int d = depth % dimensions;
+        int mid = (from + to) >>> 1;
+        select(points, d, from, to - 1, mid);
+        build(points, from, mid, depth + 1);
+        build(points, mid + 1, to, depth + 1);
+    }
+
+    /**
+     * Moves the game with the k-th smallest coordinate to position k, with smaller
+     * or equal ones before it and larger or equal ones after (quickselect).
+     *
+     * @param points the points, by ordinal
+     * @param d      the coordinate
+     * @param low    the first position to look at
+     * @param high   the last position to look at
+     * @param k      the position to fill
+     */
+    private void select(float[] points, int d, int low, int high, int k) {
+        while (high > low) {
+            // median of three, so sorted input does not go quadratic
+            int mid = (low + high) >>> 1;
+            if (coord(points, low, d) > coord(points, mid, d)) {
+                swap(low, mid);
+            }
+            if (coord(points, mid, d) > coord(points, high, d)) {
+                swap(mid, high);
+                if (coord(points, low, d) > coord(points, mid, d)) {
+                    swap(low, mid);
+                }
+            }
+            float pivot = coord(points, mid, d);
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (coord(points, i, d) < pivot) {
+                    i++;
+                }
+                while (coord(points, j, d) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                high = j;
+            } else if (k >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get a coordinate of the game at a position of the order, while building.
+     *
+     * @param points the points, by ordinal
+     * @param k      the position
+     * @param d      the coordinate
+     * @return the value
+     */
+    private float coord(float[] points, int k, int d) {
+        return points[order[k] * dimensions + d];
+    }
+
+    /**
+     * Swaps two positions of the order.
+     *
+     * @param a one position
+     * @param b the other position
+     */
+    private void swap(int a, int b) {
+        int game = order[a];
+        order[a] = order[b];
+        order[b] = game;
+    }
+
+    /**
+     * Finds the selected games nearest to a game, searching the tree. Selections
+     * too small to be worth searching for are scanned instead.
+     *
+     * @param ordinal the game to compare with, which is never in the result
+     * @param k       the most games to find
+     * @param games   the games to look in, as a set of ordinals
+     * @return the ordinals of the nearest games, nearest first
+     */
+    int[] nearest(int ordinal, int k, BitSet games) {
+        int selected = games.cardinality();
+        if (k == 0 || selected == 0) {
+            return new int[0];
+        }
+        if ((long) selected * SMALL_SELECTION_DIVISOR < order.length) {
+            return nearestByScan(ordinal, k, games);
+        }
+        Neighbors found = new Neighbors(Math.min(k, selected));
+        search(positions[ordinal], ordinal, games, 0, order.length, 0, found);
+        return found.sorted();
+    }
+
+    /**
+     * Finds the selected games nearest to a game by working out the distance to
+     * every one of them.
+     *
+     * @param ordinal the game to compare with, which is never in the result
+     * @param k       the most games to find
+     * @param games   the games to look in, as a set of ordinals
+     * @return the ordinals of the nearest games, nearest first
+     */
+    int[] nearestByScan(int ordinal, int k, BitSet games) {
+        Neighbors found = new Neighbors(Math.min(k, games.cardinality()));
+        int target = positions[ordinal];
+        for (int game = games.nextSetBit(0); game >= 0; game = games.nextSetBit(game + 1)) {
+            if (game != ordinal) {
+                found.offer(game, distance(target, positions[game]));
+            }
+        }
+        return found.sorted();
+    }
+
+    /**
+     * Searches a range of the tree for games nearer than the ones found so far.
+     *
+     * @param target  the position of the game to compare with
+     * @param ordinal the ordinal of the game to compare with
+     * @param games   the games to look in
+     * @param from    the first position of the range
+     * @param to      one past the last position of the range
+     * @param depth   the depth of the range in the tree
+     * @param found   the nearest games so far
+     */
+    private void search(int target, int ordinal, BitSet games, int from, int to, int depth,
+            Neighbors found) {
+        if (to - from <= LEAF_SIZE) {
+            for (int k = from; k < to; k++) {
+                offer(target, ordinal, games, k, found);
+            }
+            return;
+        }
+        int d = depth % dimensions;
+        int mid = (from + to) >>> 1;
+        float split = coords[mid * dimensions + d] - coords[target * dimensions + d];
+        // split > 0: the target is on the low side of the split
+        if (split > 0) {
+            search(target, ordinal, games, from, mid, depth + 1, found);
+        } else {
+            search(target, ordinal, games, mid + 1, to, depth + 1, found);
+        }
+        if (found.isFull() && (double) split * split > found.worst()) {
+            return; // nothing on the far side can be nearer
+        }
+        offer(target, ordinal, games, mid, found);
+        if (split > 0) {
+            search(target, ordinal, games, mid + 1, to, depth + 1, found);
+        } else {
+            search(target, ordinal, games, from, mid, depth + 1, found);
+        }
+    }
+
+    /**
+     * Offers the game at a position to the nearest games, if it is selected.
+     *
+     * @param target  the position of the game to compare with
+     * @param ordinal the ordinal of the game to compare with
+     * @param games   the games to look in
+     * @param k       the position of the game to offer
+     * @param found   the nearest games so far
+     */
+    private void offer(int target, int ordinal, BitSet games, int k, Neighbors found) {
+        int game = order[k];
+        if (game != ordinal && games.get(game)) {
+            found.offer(game, distance(target, k));
+        }
+    }
+
+    /**
+     * Works out the squared distance between the games at two positions.
+     *
+     * @param a one position
+     * @param b the other position
+     * @return the squared distance
+     */
+    private double distance(int a, int b) {
+        double sum = 0;
+        for (int d = 0; d < dimensions; d++) {
+            double diff = coords[a * dimensions + d] - coords[b * dimensions + d];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    /**
+     * The k nearest games found so far, kept in a max heap on distance so the
+     * farthest can be replaced.
+     */
+    private static final class Neighbors {
+        /** Ordinals in the heap. */
+        private final int[] games;
+        /** Squared distances in the heap, the largest first. */
+        private final double[] distances;
+        /** Number of games in the heap. */
+        private int count;
+
+        /**
+         * Builds an empty set of neighbors.
+         *
+         * @param k the most games to keep
+         */
+        Neighbors(int k) {
+            games = new int[k];
+            distances = new double[k];
+        }
+
+        /**
+         * Checks if k games have been found.
+         *
+         * @return true if the heap is full
+         */
+        boolean isFull() {
+            return count == games.length;
+        }
+
+        /**
+         * Get the squared distance of the farthest game kept.
+         *
+         * @return the largest distance
+         */
+        double worst() {
+            return distances[0];
+        }
+
+        /**
+         * Keeps a game if it is nearer than the farthest one kept, or there is room.
+         *
+         * @param game     the ordinal
+         * @param distance its squared distance
+         */
+        void offer(int game, double distance) {
+            if (count < games.length) {
+                int i = count++;
+                while (i > 0 && after(game, distance, (i - 1) / 2)) {
+                    games[i] = games[(i - 1) / 2];
+                    distances[i] = distances[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                games[i] = game;
+                distances[i] = distance;
+            } else if (count > 0 && after(games[0], distances[0], game, distance)) {
+                siftDown(game, distance);
+            }
+        }
+
+        /**
+         * Puts a game at the top of the heap, in place of the farthest one, and
+         * moves it down to where it belongs.
+         *
+         * @param game     the ordinal
+         * @param distance its squared distance
+         */
+        private void siftDown(int game, double distance) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= count) {
+                    break;
+                }
+                if (child + 1 < count && after(games[child + 1], distances[child + 1],
+                        games[child], distances[child])) {
+                    child++;
+                }
+                if (!after(games[child], distances[child], game, distance)) {
+                    break;
+                }
+                games[i] = games[child];
+                distances[i] = distances[child];
+                i = child;
+            }
+            games[i] = game;
+            distances[i] = distance;
+        }
+
+        /**
+         * Checks if a game comes after the one in a heap slot.
+         *
+         * @param game     the ordinal
+         * @param distance its squared distance
+         * @param slot     the heap slot
+         * @return true if the game is farther, or as far with a higher ordinal
+         */
+        private boolean after(int game, double distance, int slot) {
+            return after(game, distance, games[slot], distances[slot]);
+        }
+
+        /**
+         * Checks if one game comes after another, farther first, then by ordinal.
+         *
+         * @param game      one ordinal
+         * @param distance  its squared distance
+         * @param other     the other ordinal
+         * @param otherDist its squared distance
+         * @return true if the first game comes after the other
+         */
+        private static boolean after(int game, double distance, int other, double otherDist) {
+            return distance > otherDist || distance == otherDist && game > other;
+        }
+
+        /**
+         * Get the games kept, nearest first.
+         *
+         * @return the ordinals
+         */
+        int[] sorted() {
+            int size = count;
+            int[] result = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                result[i] = games[0];
+                int lastGame = games[--count];
+                double lastDistance = distances[count];
+                if (count > 0) {
+                    siftDown(lastGame, lastDistance);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package student;
+
+import java.util.Arrays;
+
+/**
+ * Inverted index from every three character run (trigram) of the lower case names
+ * to the ordinals of the games whose name contains it.
+ *
+ * A name contains a needle only if it contains every trigram of the needle, so
+ * intersecting the posting lists of those trigrams gives a short list of
+ * candidates, which then only need to be checked with contains. Needles shorter
+ * than three characters have no trigrams and have to be scanned for.
+ *
+ * Each posting list is sorted by ordinal and stored as the gaps between its
+ * ordinals, seven bits to a byte, with the high bit set on every byte but the last
+ * of a gap. Names share most of their trigrams with many other names, so the gaps
+ * are mostly small and take a byte or two, against four for an int. The lists are
+ * stored back to back in one array (offsets[id] to offsets[id + 1]). Every
+ * SKIP-th posting of a long list is also kept aside, with where it is in the
+ * array, so an intersection can jump past the parts of a list it does not need
+ * instead of reading every gap. The index is never changed after it is built.
+ */
+final class TrigramIndex {
+    /** Number of characters in a trigram. */
+    static final int GRAM = 3;
+    /** Marks an unused slot in the hash table, trigram keys are never negative. */
+    private static final long EMPTY = -1;
+    /** Postings between skip entries. */
+    private static final int SKIP = 64;
+    /** Bits of a gap stored in each byte. */
+    private static final int GAP_BITS = 7;
+    /** The low bits of a byte, which hold the gap. */
+    private static final int GAP_MASK = (1 << GAP_BITS) - 1;
+    /** High bit of a byte, set when the gap goes on in the next byte. */
+    private static final int MORE = 1 << GAP_BITS;
+
+    /** Hash table of trigram keys, open addressing with linear probing. */
+    private long[] keys;
+    /** Trigram id of the key in the same slot. */
+    private int[] ids;
+    /** Number of distinct trigrams. */
+    private int count;
+    /** Number of games in each trigram's posting list. */
+    private final int[] sizes;
+    /** Start of each trigram's posting list in postings, plus the end of the last one. */
+    private final int[] offsets;
+    /** All posting lists as gaps, back to back. */
+    private final byte[] postings;
+    /** Start of each trigram's skip entries, plus the end of the last one. */
+    private final int[] skipOffsets;
+    /** Ordinal before each skip entry's posting, the one its gap is from. */
+    private final int[] skipOrdinals;
+    /** Where in postings each skip entry's posting starts. */
+    private final int[] skipPositions;
+
+    /**
+     * Builds the index.
+     *
+     * @param names the names, indexed by ordinal, read in lower case
+     */
+    TrigramIndex(NameArena names) {
+        keys = new long[1 << 10];
+        ids = new int[keys.length];
+        Arrays.fill(keys, EMPTY);
+
+        // first pass gives out ids and works out the length of each list
+        int[] counts = new int[64];
+        int[] bytes = new int[64];
+        int[] last = new int[64];
+        for (int game = 0; game < names.size(); game++) {
+            for (int i = 0; i + GRAM <= names.length(game); i++) {
+                int id = idOf(key(names, game, i), true);
+                if (id == counts.length) {
+                    counts = Arrays.copyOf(counts, id * 2);
+                    bytes = Arrays.copyOf(bytes, id * 2);
+                    last = Arrays.copyOf(last, id * 2);
+                }
+                if (counts[id] == 0 || last[id] != game) { // once per name
+                    bytes[id] += gapLength(game - (counts[id] == 0 ? -1 : last[id]));
+                    last[id] = game;
+                    counts[id]++;
+                }
+            }
+        }
+
+        sizes = Arrays.copyOf(counts, count);
+        offsets = new int[count + 1];
+        skipOffsets = new int[count + 1];
+        for (int id = 0; id < count; id++) {
+            offsets[id + 1] = Math.addExact(offsets[id], bytes[id]);
+            skipOffsets[id + 1] = skipOffsets[id] + (sizes[id] - 1) / SKIP;
+        }
+
+        // second pass fills the lists, in ordinal order so each list is sorted
+        postings = new byte[offsets[count]];
+        skipOrdinals = new int[skipOffsets[count]];
+        skipPositions = new int[skipOffsets[count]];
+        int[] fill = Arrays.copyOf(offsets, count);
+        int[] filled = new int[count];
+        for (int game = 0; game < names.size(); game++) {
+            for (int i = 0; i + GRAM <= names.length(game); i++) {
+                int id = idOf(key(names, game, i), false);
+                if (filled[id] > 0 && last[id] == game) {
+                    continue; // once per name
+                }
+                int previous = filled[id] == 0 ? -1 : last[id];
+                if (filled[id] > 0 && filled[id] % SKIP == 0) {
+                    int skip = skipOffsets[id] + filled[id] / SKIP - 1;
+                    skipOrdinals[skip] = previous;
+                    skipPositions[skip] = fill[id];
+                }
+                fill[id] = putGap(game - previous, fill[id]);
+                last[id] = game;
+                filled[id]++;
+            }
+        }
+    }
+
+    /**
+     * Finds the games whose name has every trigram of the needle.
+     *
+     * The candidates still have to be checked, as having the trigrams does not
+     * mean they are in the right order.
+     *
+     * @param lowerNeedle the text to search for, in lower case
+     * @return the candidate ordinals in ascending order, or null if the needle is
+     *         too short to use the index
+     */
+    int[] candidates(String lowerNeedle) {
+        if (lowerNeedle.length() < GRAM) {
+            return null;
+        }
+        int grams = lowerNeedle.length() - GRAM + 1;
+        int[] lists = new int[grams];
+        for (int i = 0; i < grams; i++) {
+            int id = idOf(key(lowerNeedle, i), false);
+            if (id < 0) {
+                return new int[0]; // no name has this trigram
+            }
+            lists[i] = id;
+        }
+        // start from the shortest list, so the candidates only get fewer
+        Integer[] bySize = new Integer[grams];
+        Arrays.setAll(bySize, i -> lists[i]);
+        Arrays.sort(bySize, (a, b) -> Integer.compare(sizes[a], sizes[b]));
+
+        int[] result = decode(bySize[0]);
+        int length = result.length;
+        for (int i = 1; i < grams && length > 0; i++) {
+            length = retain(bySize[i], result, length);
+        }
+        return Arrays.copyOf(result, length);
+    }
+
+    /**
+     * Reads a whole posting list.
+     *
+     * @param id the trigram id
+     * @return the ordinals in the list, ascending
+     */
+    private int[] decode(int id) {
+        int[] games = new int[sizes[id]];
+        int game = -1;
+        int at = offsets[id];
+        for (int k = 0; k < games.length; k++) {
+            int gap = 0;
+            for (int shift = 0;; shift += GAP_BITS) {
+                int b = postings[at++];
+                gap |= (b & GAP_MASK) << shift;
+                if ((b & MORE) == 0) {
+                    break;
+                }
+            }
+            game += gap;
+            games[k] = game;
+        }
+        return games;
+    }
+
+    /**
+     * Keeps the candidates that are in a posting list, reading the list only as
+     * far as the last candidate and skipping the parts of it that lie before the
+     * next one.
+     *
+     * @param id         the trigram id
+     * @param candidates ascending ordinals, the kept ones are moved to the front
+     * @param length     how many candidates there are
+     * @return how many candidates were kept
+     */
+    private int retain(int id, int[] candidates, int length) {
+        int at = offsets[id];
+        int end = offsets[id + 1];
+        int skip = skipOffsets[id];
+        int skipEnd = skipOffsets[id + 1];
+        int game = -1;
+        int kept = 0;
+        for (int k = 0; k < length; k++) {
+            int candidate = candidates[k];
+            // every posting before a skip entry is at most its ordinal
+            while (skip < skipEnd && skipOrdinals[skip] < candidate) {
+                if (skipPositions[skip] > at) {
+                    at = skipPositions[skip];
+                    game = skipOrdinals[skip];
+                }
+                skip++;
+            }
+            while (game < candidate && at < end) {
+                int gap = 0;
+                for (int shift = 0;; shift += GAP_BITS) {
+                    int b = postings[at++];
+                    gap |= (b & GAP_MASK) << shift;
+                    if ((b & MORE) == 0) {
+                        break;
+                    }
+                }
+                game += gap;
+            }
+            if (game == candidate) {
+                candidates[kept++] = candidate;
+            } else if (game < candidate) {
+                break; // the list has run out
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Get the number of bytes a gap takes in a posting list.
+     *
+     * @param gap the gap, at least one
+     * @return the number of bytes
+     */
+    private static int gapLength(int gap) {
+        int length = 1;
+        for (int rest = gap >>> GAP_BITS; rest != 0; rest >>>= GAP_BITS) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Writes a gap into the posting lists.
+     *
+     * @param gap the gap, at least one
+     * @param at  where to write it
+     * @return where the next gap goes
+     */
+    private int putGap(int gap, int at) {
+        int rest = gap;
+        while (rest > GAP_MASK) {
+            postings[at++] = (byte) (rest & GAP_MASK | MORE);
+            rest >>>= GAP_BITS;
+        }
+        postings[at++] = (byte) rest;
+        return at;
+    }
+
+    /**
+     * Gets an upper bound on the games whose name contains the needle: the length
+     * of the shortest posting list of its trigrams.
+     *
+     * @param lowerNeedle the text to search for, in lower case
+     * @return the most games that can match, or -1 if the needle is too short to
+     *         use the index
+     */
+    int estimate(String lowerNeedle) {
+        if (lowerNeedle.length() < GRAM) {
+            return -1;
+        }
+        int best = Integer.MAX_VALUE;
+        for (int i = 0; i + GRAM <= lowerNeedle.length(); i++) {
+            int id = idOf(key(lowerNeedle, i), false);
+            if (id < 0) {
+                return 0;
+            }
+            best = Math.min(best, sizes[id]);
+        }
+        return best;
+    }
+
+    /**
+     * Packs the trigram starting at a position into a key.
+     *
+     * @param text the text
+     * @param at   where the trigram starts
+     * @return the three chars as one non negative number
+     */
+    private static long key(String text, int at) {
+        return ((long) text.charAt(at) << (2 * Character.SIZE))
+                | ((long) text.charAt(at + 1) << Character.SIZE) | text.charAt(at + 2);
+    }
+
+    /**
+     * Packs the trigram starting at a position of a name, in lower case, into a key.
+     *
+     * @param names the names
+     * @param game  the ordinal of the game
+     * @param at    where the trigram starts
+     * @return the three chars as one non negative number, as key(String, int) gives
+     */
+    private static long key(NameArena names, int game, int at) {
+        return ((long) names.lowerCharAt(game, at) << (2 * Character.SIZE))
+                | ((long) names.lowerCharAt(game, at + 1) << Character.SIZE)
+                | names.lowerCharAt(game, at + 2);
+    }
+
+    /**
+     * Looks up the id of a trigram.
+     *
+     * @param key    the packed trigram
+     * @param insert whether to give the trigram a new id if it has none
+     * @return the id, or -1 if the trigram has none and insert is false
+     */
+    private int idOf(long key, boolean insert) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return ids[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (!insert) {
+            return -1;
+        }
+        keys[slot] = key;
+        ids[slot] = count;
+        if (++count * 2 > keys.length) {
+            grow();
+        }
+        return count - 1;
+    }
+
+    /**
+     * Get the first slot to try for a key. Multiplying spreads the packed chars,
+     * which would otherwise mostly differ in the low bits.
+     *
+     * @param key  the packed trigram
+     * @param mask the table size minus one
+     * @return the slot
+     */
+    private static int slot(long key, int mask) {
+        return Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+    }
+
+    /**
+     * Doubles the hash table, keeping every key's id.
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldIds = ids;
+        keys = new long[oldKeys.length * 2];
+        ids = new int[keys.length];
+        Arrays.fill(keys, EMPTY);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i], mask);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                ids[slot] = oldIds[i];
+            }
+        }
+    }
+}
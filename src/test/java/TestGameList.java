@@ -1,9 +1,14 @@
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,8 +18,10 @@ import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 
 import student.BoardGame;
+import student.GameCatalog;
 import student.GameList;
 import student.IGameList;
+import student.ListJournal;
 
 public class TestGameList {
     private static Set<BoardGame> games;
@@ -147,4 +154,164 @@ public class TestGameList {
         assertTrue(lines.contains("Chess"));
         assertTrue(lines.contains("Monopoly"));
     }
+
+    @Test
+    public void testRemoveByPositionInNameOrder() {
+        gameList.addToList("all", games.stream());
+        // positions are as listed, ignoring case: golang comes before GoRami
+        assertEquals(List.of("17 days", "Chess", "Go", "Go Fish", "golang", "GoRami",
+                "Monopoly", "Tucano"), gameList.getGameNames());
+        gameList.removeFromList("5");
+        assertFalse(gameList.getGameNames().contains("golang"));
+        gameList.removeFromList("2-3");
+        assertEquals(List.of("17 days", "Go Fish", "GoRami", "Monopoly", "Tucano"),
+                gameList.getGameNames());
+        gameList.removeFromList("4-100");
+        assertEquals(List.of("17 days", "Go Fish", "GoRami"), gameList.getGameNames());
+        gameList.removeFromList("gorami");
+        assertEquals(List.of("17 days", "Go Fish"), gameList.getGameNames());
+    }
+
+    @Test
+    public void testLargeListMatchesSortedList() {
+        Random random = new Random(7);
+        List<BoardGame> expected = new ArrayList<>();
+        Comparator<BoardGame> byName = Comparator.comparing(BoardGame::getName,
+                String.CASE_INSENSITIVE_ORDER).thenComparing(BoardGame::getName);
+        for (int round = 0; round < 2000; round++) {
+            int op = random.nextInt(4);
+            if (op < 2 || expected.isEmpty()) {
+                BoardGame game = new BoardGame("Game " + random.nextInt(3000), round, 1, 4, 30,
+                        60, 2.0, round, 7.0, 2000);
+                gameList.addToList("all", Stream.of(game));
+                expected.add(game);
+                expected.sort(byName);
+            } else if (op == 2) {
+                int index = random.nextInt(expected.size());
+                gameList.removeFromList(Integer.toString(index + 1));
+                expected.remove(index);
+            } else {
+                int from = random.nextInt(expected.size());
+                int to = from + random.nextInt(5);
+                gameList.removeFromList((from + 1) + "-" + (to + 1));
+                expected.subList(from, Math.min(to + 1, expected.size())).clear();
+            }
+            assertEquals(expected.size(), gameList.count());
+        }
+        assertEquals(expected.stream().map(BoardGame::getName).toList(),
+                gameList.getGameNames());
+    }
+
+    @Test
+    public void testAddAndRemoveByNameOrId() {
+        gameList.addToList("id:7", games.stream());
+        assertEquals(List.of("Chess"), gameList.getGameNames());
+        gameList.addToList("go fish, id:5,GORAMI", games.stream());
+        assertEquals(List.of("Chess", "Go Fish", "GoRami", "Tucano"), gameList.getGameNames());
+        // nothing is added if any part is not found
+        assertThrows(IllegalArgumentException.class,
+                () -> gameList.addToList("Go, Risk", games.stream()));
+        assertThrows(IllegalArgumentException.class,
+                () -> gameList.addToList("id:99", games.stream()));
+        assertEquals(4, gameList.count());
+
+        gameList.removeFromList("id:5, chess");
+        assertEquals(List.of("Go Fish", "GoRami"), gameList.getGameNames());
+        assertThrows(IllegalArgumentException.class, () -> gameList.removeFromList("id:5"));
+        gameList.removeFromList("id:3");
+        assertEquals(List.of("Go Fish"), gameList.getGameNames());
+    }
+
+    @Test
+    public void testJournalRestoresList() throws IOException {
+        GameCatalog catalog = new GameCatalog(games);
+        Path base = tempDir.resolve("games.list");
+        try (ListJournal journal = new ListJournal(base, catalog)) {
+            IGameList list = new GameList(journal);
+            list.addToList("all", games.stream());
+            list.removeFromList("2-3");
+            list.removeFromList("tucano");
+        }
+        List<String> expected = List.of("17 days", "Go Fish", "golang", "GoRami", "Monopoly");
+        try (ListJournal journal = new ListJournal(base, catalog)) {
+            IGameList list = new GameList(journal);
+            assertEquals(expected, list.getGameNames());
+            list.clear();
+            list.addToList("id:7", games.stream());
+        }
+
+        // a record cut short by a crash is dropped, and the list still opens
+        Path journalFile = tempDir.resolve("games.list.journal");
+        Files.write(journalFile, new byte[] {1, 0, 0}, StandardOpenOption.APPEND);
+        try (ListJournal journal = new ListJournal(base, catalog)) {
+            IGameList list = new GameList(journal);
+            assertEquals(List.of("Chess"), list.getGameNames());
+            // enough changes to be compacted into a snapshot more than once
+            for (int i = 0; i < 5000; i++) {
+                list.addToList("all", games.stream());
+                list.removeFromList("1-7");
+            }
+            assertEquals(List.of("Tucano"), list.getGameNames());
+        }
+        assertTrue(Files.exists(tempDir.resolve("games.list.snapshot")));
+        assertTrue(Files.size(journalFile) < 5000 * 16 * 9);
+        try (ListJournal journal = new ListJournal(base, catalog)) {
+            assertEquals(List.of("Tucano"), new GameList(journal).getGameNames());
+        }
+
+        // a snapshot that cannot be written leaves the journal open for writing
+        Path snapshotFile = tempDir.resolve("games.list.snapshot");
+        byte[] saved = Files.readAllBytes(snapshotFile);
+        try (ListJournal journal = new ListJournal(base, catalog)) {
+            IGameList list = new GameList(journal);
+            Files.delete(snapshotFile);
+            Files.createDirectories(snapshotFile.resolve("in the way"));
+            for (int i = 0; i < 300; i++) {
+                list.addToList("all", games.stream());
+                list.removeFromList("1-7");
+            }
+            list.removeFromList("tucano");
+            list.addToList("chess", games.stream());
+        }
+        Files.delete(snapshotFile.resolve("in the way"));
+        Files.delete(snapshotFile);
+        Files.write(snapshotFile, saved);
+        try (ListJournal journal = new ListJournal(base, catalog)) {
+            assertEquals(List.of("Chess"), new GameList(journal).getGameNames());
+        }
+    }
+
+    @Test
+    public void testSaveAndLoadBinaryList() throws IOException {
+        GameCatalog catalog = new GameCatalog(games);
+        IGameList list = new GameList(catalog);
+        list.addToList("all", games.stream());
+        list.removeFromList("chess");
+        String binary = tempDir.resolve("list.bgl").toString();
+        String text = tempDir.resolve("list.txt").toString();
+        list.saveGame(binary);
+        list.saveGame(text);
+        assertTrue(Files.size(Path.of(binary)) < Files.size(Path.of(text)));
+
+        IGameList loaded = new GameList(catalog);
+        loaded.addToList("chess", games.stream());
+        assertEquals(0, loaded.loadGame(binary));
+        assertEquals(list.getGameNames(), loaded.getGameNames());
+        loaded.clear();
+        assertEquals(0, loaded.loadGame(text));
+        assertEquals(list.getGameNames(), loaded.getGameNames());
+
+        // games not in the collection are left out
+        Set<BoardGame> fewer = new HashSet<>(games);
+        fewer.removeIf(game -> game.getName().equals("Tucano"));
+        IGameList other = new GameList(new GameCatalog(fewer));
+        assertEquals(1, other.loadGame(binary));
+        assertEquals(6, other.count());
+
+        byte[] damaged = Files.readAllBytes(Path.of(binary));
+        damaged[damaged.length - 6] ^= 1;
+        Files.write(Path.of(binary), damaged);
+        assertThrows(IllegalArgumentException.class, () -> loaded.loadGame(binary));
+        assertThrows(IllegalArgumentException.class, () -> gameList.loadGame(text));
+    }
 }
@@ -0,0 +1,169 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import student.BoardGame;
+import student.GamesLoader;
+import student.LoadTimings;
+
+/**
+ * JUnit test for the GamesLoader class.
+ *
+ * Makes sure the different ways of loading a collection agree with each other.
+ */
+public class TestGamesLoader {
+    private static final String COLLECTION = "/collection.csv";
+
+    @TempDir
+    Path tempDir;
+
+    // Copies the bundled collection out of the resources so it can be loaded from disk
+    private Path copyCollection() throws IOException {
+        Path file = tempDir.resolve("collection.csv");
+        try (InputStream is = GamesLoader.class.getResourceAsStream(COLLECTION)) {
+            Files.write(file, is.readAllBytes());
+        }
+        return file;
+    }
+
+    // BoardGame.equals only looks at name and id, so compare every field instead
+    private Set<String> describe(Set<BoardGame> games) {
+        return games.stream().map(BoardGame::toString).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void testResourceLoad() {
+        Set<BoardGame> games = GamesLoader.loadGamesFile(COLLECTION);
+        assertFalse(games.isEmpty());
+    }
+
+    @Test
+    public void testParallelLoadMatchesResourceLoad() throws IOException {
+        Set<BoardGame> expected = GamesLoader.loadGamesFile(COLLECTION);
+
+        LoadTimings timings = new LoadTimings();
+        Set<BoardGame> games = GamesLoader.loadGamesFile(copyCollection(), timings);
+
+        assertEquals(expected, games);
+        assertEquals(describe(expected), describe(games));
+        assertTrue(timings.getChunks() >= 1);
+        assertTrue(timings.getRows() >= games.size());
+    }
+
+    @Test
+    public void testParallelLoadManyChunks() throws IOException {
+        // big enough to be split into several chunks, with windows line endings
+        String header = "objectname,objectid,average,avgweight,rank,minplayers,maxplayers,"
+                + "minplaytime,maxplaytime,yearpublished,comment";
+        StringBuilder csv = new StringBuilder(header).append("\r\n");
+        int rows = 60000;
+        for (int i = 0; i < rows; i++) {
+            csv.append("Game ").append(i).append(',').append(i).append(",7.5,2.25,")
+                    .append(i + 1).append(",1,4,30,60,2001,some padding text here\r\n");
+        }
+        csv.append("Broken,x,1,1,1,1,1,1,1,1,\r\n"); // skipped, id is not a number
+        Path file = tempDir.resolve("big.csv");
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+
+        LoadTimings timings = new LoadTimings();
+        Set<BoardGame> games = GamesLoader.loadGamesFile(file, timings);
+
+        assertEquals(rows, games.size());
+        assertTrue(timings.getChunks() > 1);
+        assertTrue(games.contains(new BoardGame("Game 59999", 59999, 1, 4, 30, 60, 2.25, 60000,
+                7.5, 2001)));
+    }
+
+    @Test
+    public void testNumberFormatsMatchJavaParsing() throws IOException {
+        String header = "comment,objectname,objectid,average,avgweight,rank,minplayers,"
+                + "maxplayers,minplaytime,maxplaytime,yearpublished\n";
+        String[] ratings = {"6.60806", "-0", "1e1", "+7.25", "3.", ".5", " 7.5 ",
+            "6.6080612345678901234", "1.5E-30", "007"};
+        StringBuilder csv = new StringBuilder(header);
+        for (int i = 0; i < ratings.length; i++) {
+            csv.append("x,Game ").append(i).append(',').append(i).append(',').append(ratings[i])
+                    .append(",2.5,+").append(i).append(",1,4,30,60,-500\n");
+        }
+        csv.append("x,Bad Int,99,1,1,1,1,1,1,1,2147483648\n");
+        csv.append("x,Bad Double,98,1..5,1,1,1,1,1,1,2000\n");
+        csv.append("x,Short Row,97,1,1\n");
+        Path file = tempDir.resolve("numbers.csv");
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+
+        Set<BoardGame> games = GamesLoader.loadGamesFile(file);
+        assertEquals(ratings.length, games.size());
+        for (BoardGame game : games) {
+            int i = game.getId();
+            assertEquals(Double.doubleToLongBits(Double.parseDouble(ratings[i])),
+                    Double.doubleToLongBits(game.getRating()), ratings[i]);
+            assertEquals(i, game.getRank());
+            assertEquals(-500, game.getYearPublished());
+            assertEquals("Game " + i, game.getName());
+        }
+    }
+
+    @Test
+    public void testSnapshotIsWrittenAndReused() throws IOException {
+        Path snapshot = tempDir.resolve("cache").resolve("collection.snapshot");
+        Set<BoardGame> expected = GamesLoader.loadGamesFile(COLLECTION);
+
+        Set<BoardGame> first = GamesLoader.loadGamesFile(COLLECTION, snapshot);
+        assertTrue(Files.exists(snapshot));
+        long size = Files.size(snapshot);
+        Set<BoardGame> second = GamesLoader.loadGamesFile(COLLECTION, snapshot);
+
+        assertEquals(describe(expected), describe(first));
+        assertEquals(describe(expected), describe(second));
+        assertEquals(size, Files.size(snapshot));
+    }
+
+    @Test
+    public void testStaleSnapshotFallsBackToCsv() throws IOException {
+        Path csv = copyCollection();
+        Path snapshot = tempDir.resolve("collection.snapshot");
+        Set<BoardGame> original = GamesLoader.loadGamesFile(csv, snapshot, new LoadTimings());
+
+        // same size, different contents, so only the checksum can tell
+        String contents = Files.readString(csv, StandardCharsets.UTF_8);
+        Files.writeString(csv, contents.replace("13 Clues", "13 Clubs"), StandardCharsets.UTF_8);
+
+        LoadTimings timings = new LoadTimings();
+        Set<BoardGame> changed = GamesLoader.loadGamesFile(csv, snapshot, timings);
+        assertTrue(timings.getRows() > 0); // parsed, not read from the snapshot
+        assertEquals(original.size(), changed.size());
+        assertTrue(changed.stream().anyMatch(g -> g.getName().equals("13 Clubs")));
+        assertFalse(changed.stream().anyMatch(g -> g.getName().equals("13 Clues")));
+
+        timings = new LoadTimings();
+        Set<BoardGame> cached = GamesLoader.loadGamesFile(csv, snapshot, timings);
+        assertEquals(0, timings.getRows()); // read from the new snapshot
+        assertEquals(describe(changed), describe(cached));
+    }
+
+    @Test
+    public void testDamagedSnapshotIsIgnored() throws IOException {
+        Path snapshot = tempDir.resolve("collection.snapshot");
+        GamesLoader.loadGamesFile(COLLECTION, snapshot);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        Files.write(snapshot, java.util.Arrays.copyOf(bytes, bytes.length / 2));
+
+        Set<BoardGame> games = GamesLoader.loadGamesFile(COLLECTION, snapshot);
+        assertEquals(describe(GamesLoader.loadGamesFile(COLLECTION)), describe(games));
+    }
+
+    @Test
+    public void testParallelLoadMissingFile() {
+        Set<BoardGame> games = GamesLoader.loadGamesFile(tempDir.resolve("missing.csv"));
+        assertTrue(games.isEmpty());
+    }
+}
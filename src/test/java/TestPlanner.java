@@ -3,12 +3,34 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import student.BoardGame;
 import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 import student.Planner;
 import student.IPlanner;
 import student.GameData;
+import student.FilterPlan;
+import student.PlanCache;
+import student.BoardGameSortStrategy;
+import student.GameCatalog;
+import student.BatchQuery;
+import student.ColumnStats;
+import student.Operations;
+import student.QueryProfile;
+import student.GameList;
+import student.IGameList;
+import student.ResultSnapshot;
 
 /**
  * JUnit test for the Planner class.
@@ -486,4 +508,759 @@ public class TestPlanner {
         filtered = planner.filter("").toList();
         assertEquals(games.size(), filtered.size());
     }
-}
\ No newline at end of file
+
+    // Test filters build on each other until reset
+    @Test
+    public void testProgressiveFilters() {
+        List<BoardGame> filtered = planner.filter("minplayers <= 2").toList();
+        assertEquals(5, filtered.size());
+
+        filtered = planner.filter("rating > 8.0").toList();
+        assertEquals(3, filtered.size());
+        assertTrue(containsGameWithName(filtered, "17 days"));
+        assertTrue(containsGameWithName(filtered, "Chess"));
+        assertTrue(containsGameWithName(filtered, "golang"));
+
+        filtered = planner.filter("", GameData.RATING, false).toList();
+        assertEquals(List.of("Chess", "golang", "17 days"),
+                filtered.stream().map(BoardGame::getName).toList());
+    }
+
+    // Test repeated filters reuse the compiled plan
+    @Test
+    public void testPlanCacheHits() {
+        Planner p = new Planner(games);
+        p.filter("minplayers >= 2");
+        p.reset();
+        p.filter(" MinPlayers >= 2 ");
+        p.reset();
+        List<BoardGame> filtered = p.filter("minplayers >= 2").toList();
+
+        assertEquals(7, filtered.size());
+        assertEquals(1, p.getPlanCache().getMisses());
+        assertEquals(2, p.getPlanCache().getHits());
+        assertEquals(1, p.getPlanCache().size());
+        // the ordered plan is cached too
+        assertSame(p.getPlan("minplayers >= 2, rank < 500"),
+                p.getPlan("minplayers >= 2, rank < 500"));
+    }
+
+    // Test the plan cache drops the least recently used plan when full
+    @Test
+    public void testPlanCacheEviction() {
+        PlanCache cache = new PlanCache(2);
+        FilterPlan first = cache.get("rank<400");
+        cache.get("year>2005");
+        assertSame(first, cache.get("rank<400")); // now most recently used
+        cache.get("name~=go"); // evicts year>2005
+        assertEquals(2, cache.size());
+        assertSame(first, cache.get("rank<400"));
+        cache.get("year>2005");
+        assertEquals(4, cache.getMisses());
+        assertEquals(2, cache.getHits());
+    }
+
+    // Test invalid clauses are dropped when compiling
+    @Test
+    public void testCompiledPlanDropsInvalidClauses() {
+        FilterPlan plan = FilterPlan.compile("minplayers>2, bogus>3, rating>abc, name ~= Go");
+        assertEquals(List.of("minplayers>2", "objectname~=go"), plan.getClauses());
+        assertTrue(FilterPlan.compile("id==5").isEmpty());
+    }
+
+    // Test undo goes back one filter at a time
+    @Test
+    public void testUndo() {
+        assertFalse(planner.undo());
+        planner.filter("minplayers <= 2");
+        planner.filter("rating > 8.0");
+        planner.filter("bogus > 1"); // ignored, so nothing to undo for it
+        assertEquals(3, planner.filter("").toList().size());
+
+        assertTrue(planner.undo());
+        assertEquals(5, planner.filter("").toList().size());
+        assertTrue(planner.undo());
+        assertEquals(games.size(), planner.filter("").toList().size());
+        assertFalse(planner.undo());
+    }
+
+    // Test reset clears the undo history
+    @Test
+    public void testUndoAfterReset() {
+        planner.filter("minplayers <= 2");
+        planner.reset();
+        assertFalse(planner.undo());
+        assertEquals(games.size(), planner.filter("").toList().size());
+    }
+
+    // Test sorting walks the presorted order the same as the comparators would
+    @Test
+    public void testSortOnEveryColumn() {
+        Set<BoardGame> many = new HashSet<>(games);
+        for (int i = 0; i < 100; i++) {
+            many.add(new BoardGame("Game " + (i % 7), 100 + i, 1 + i % 4, 4 + i % 3, 10 * (i % 5),
+                    60, 1.0 + i % 3, 1000 - i, 5.0 + (i % 9) / 2.0, 1990 + i % 11));
+        }
+        Planner p = new Planner(many);
+        for (GameData column : GameData.values()) {
+            for (boolean ascending : new boolean[] {true, false}) {
+                List<BoardGame> sorted = p.filter("", column, ascending).toList();
+                assertEquals(many.size(), sorted.size());
+                assertInOrder(sorted, column, ascending);
+
+                // a small selection is sorted directly, it must agree with the walk
+                List<BoardGame> few = p.filter("name ~= golang", column, ascending).toList();
+                assertEquals(1, few.size());
+                p.reset();
+                List<BoardGame> some = p.filter("name ~= game 3", column, ascending).toList();
+                assertInOrder(some, column, ascending);
+                p.reset();
+            }
+        }
+    }
+
+    // Test selective numeric filters, which use the sorted column, match a scan
+    @Test
+    public void testRangeQueries() {
+        Set<BoardGame> many = new HashSet<>();
+        for (int i = 0; i < 500; i++) {
+            many.add(new BoardGame("Game " + i, i, 1 + i % 4, 4 + i % 3, 10 * (i % 5), 60,
+                    (i % 40) / 10.0, i + 1, 5.0 + (i % 9) / 2.0, 1990 + i % 11));
+        }
+        String[] filters = {"rank < 5", "rank <= 5", "rank > 495", "rank >= 495", "rank == 250",
+            "rank == 250.5", "rank < 0", "rank > 600", "rating == 9", "rating > 8.9",
+            "difficulty <= 0", "difficulty < 0.1", "year == 1995", "rank != 3"};
+        for (String filter : filters) {
+            Planner p = new Planner(many);
+            List<BoardGame> found = p.filter(filter).toList();
+            Set<BoardGame> expected = new HashSet<>();
+            for (BoardGame game : many) {
+                if (matches(game, filter)) {
+                    expected.add(game);
+                }
+            }
+            assertEquals(expected, new HashSet<>(found), filter);
+        }
+
+        // the index must still respect the games already filtered out
+        Planner p = new Planner(many);
+        p.filter("minplayers == 1");
+        List<BoardGame> found = p.filter("rank < 10").toList();
+        assertEquals(List.of(1, 5, 9), found.stream().map(BoardGame::getRank).sorted().toList());
+    }
+
+    // Test name contains searches answered by the trigram index match a scan
+    @Test
+    public void testNameContainsIndex() {
+        Set<BoardGame> many = new HashSet<>(games);
+        String[] words = {"Catan", "Pandemic", "Banana", "Ticket to Ride", "aaaa", "Go Go Go"};
+        for (int i = 0; i < 300; i++) {
+            many.add(new BoardGame(words[i % words.length] + " " + i, 100 + i, 2, 4, 30, 60, 2.0,
+                    i + 10, 7.0, 2000));
+        }
+        // "anaan" has all its trigrams in "banana" but is not in it
+        String[] needles = {"ana", "ANAN", "anaan", "aaa", "ticket to", "go go", "zzz", "12",
+            "a", "e 1", "o g", "17 d"};
+        for (String needle : needles) {
+            Planner p = new Planner(many);
+            Set<BoardGame> found = new HashSet<>(p.filter("name ~= " + needle).toList());
+            Set<BoardGame> expected = new HashSet<>();
+            for (BoardGame game : many) {
+                if (game.getName().toLowerCase().contains(needle.toLowerCase())) {
+                    expected.add(game);
+                }
+            }
+            assertEquals(expected, found, needle);
+        }
+
+        Planner p = new Planner(many);
+        p.filter("rank < 40");
+        List<BoardGame> found = p.filter("name ~= banana", GameData.RANK, true).toList();
+        assertEquals(List.of("Banana 2", "Banana 8", "Banana 14", "Banana 20", "Banana 26"),
+                found.stream().map(BoardGame::getName).toList());
+    }
+
+    // Test pages match the same slice of the fully sorted results
+    @Test
+    public void testFilterPage() {
+        Set<BoardGame> many = new HashSet<>(games);
+        for (int i = 0; i < 400; i++) {
+            many.add(new BoardGame("Game " + i, 100 + i, 1 + i % 4, 4 + i % 3, 10 * (i % 5), 60,
+                    1.0 + i % 3, 1000 - i, 5.0 + (i % 9) / 2.0, 1990 + i % 11));
+        }
+        // all games walk the sorted order, the 20 games with rank > 980 use the heap
+        for (String filter : new String[] {"", "name ~= 1", "rank > 980"}) {
+            for (GameData column : new GameData[] {GameData.RATING, GameData.NAME}) {
+                for (boolean ascending : new boolean[] {true, false}) {
+                    Planner p = new Planner(many);
+                    List<BoardGame> all = p.filter(filter, column, ascending).toList();
+                    for (int[] page : new int[][] {{0, 20}, {5, 10}, {3, 7}, {0, 0}, {30, 1000}}) {
+                        List<BoardGame> expected = all.subList(Math.min(page[0], all.size()),
+                                Math.min(page[0] + page[1], all.size()));
+                        assertEquals(expected,
+                                p.filter("", column, ascending, page[0], page[1]).toList(),
+                                filter + " " + column + " " + ascending + " " + page[0]);
+                    }
+                }
+            }
+        }
+
+        // top 2 by rating among the 2 player games, still progressive
+        planner.filter("minplayers <= 2");
+        List<BoardGame> top = planner.filter("maxplayers >= 2", GameData.RATING, false, 0, 2)
+                .toList();
+        assertEquals(List.of("Chess", "golang"), top.stream().map(BoardGame::getName).toList());
+        assertEquals(5, planner.filter("").toList().size());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> planner.filter("", GameData.NAME, true, -1, 5));
+        assertThrows(IllegalArgumentException.class,
+                () -> planner.filter("", GameData.NAME, true, 0, -5));
+    }
+
+    // Test many sessions over one catalog, filtering at the same time from many threads
+    @Test
+    public void testConcurrentSessions() throws Exception {
+        Set<BoardGame> many = new HashSet<>(games);
+        for (int i = 0; i < 3000; i++) {
+            many.add(new BoardGame("Game " + i, 100 + i, 1 + i % 4, 4 + i % 3, 10 * (i % 5), 60,
+                    1.0 + i % 3, 5000 - i, 5.0 + (i % 9) / 2.0, 1990 + i % 11));
+        }
+        GameCatalog catalog = new GameCatalog(many); // name orders not built yet
+        String[][] sessions = {{"minplayers <= 2", "rating > 7"}, {"name ~= 12", "year >= 1995"},
+            {"rank < 2100", "undo", "maxplayers == 5"}, {"difficulty > 1.5", "reset", "name ~= 9"}};
+        GameData[] sorts = {GameData.NAME, GameData.RATING, GameData.ID, GameData.YEAR};
+
+        List<List<String>> expected = new ArrayList<>();
+        for (int s = 0; s < sessions.length; s++) {
+            expected.add(runSession(new Planner(many), sessions[s], sorts[s]));
+        }
+
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int seed = t;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    int mismatches = 0;
+                    for (int i = 0; i < 200; i++) {
+                        int s = (seed + i) % sessions.length;
+                        List<String> found = runSession(new Planner(catalog), sessions[s],
+                                sorts[s]);
+                        if (!found.equals(expected.get(s))) {
+                            mismatches++;
+                        }
+                    }
+                    return mismatches;
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(0, result.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Test a batch gives the same results as running each filter on its own
+    @Test
+    public void testFilterBatch() {
+        Set<BoardGame> many = new HashSet<>(games);
+        for (int i = 0; i < 500; i++) {
+            many.add(new BoardGame("Game " + i, 100 + i, 1 + i % 4, 4 + i % 3, 10 * (i % 5), 60,
+                    1.0 + i % 3, 1000 - i, 5.0 + (i % 9) / 2.0, 1990 + i % 11));
+        }
+        GameCatalog catalog = new GameCatalog(many);
+        List<BatchQuery> queries = new ArrayList<>();
+        for (int players = 1; players <= 4; players++) {
+            for (int year = 1990; year <= 2000; year += 5) {
+                queries.add(new BatchQuery("minplayers == " + players + ", year >= " + year
+                        + ", rating > 6", GameData.RATING, false));
+            }
+        }
+        queries.add(new BatchQuery("", GameData.NAME, true));
+        queries.add(new BatchQuery("name ~= game 1, rank > 995", GameData.RANK, true));
+        queries.add(new BatchQuery("name ~= 3, name != game 3, bogus > 2", GameData.NAME, false));
+        queries.add(new BatchQuery("rating > 6", GameData.YEAR, true, 10, 5));
+
+        Planner batch = new Planner(catalog);
+        batch.filter("maxplayers >= 5");
+        List<Stream<BoardGame>> results = batch.filterBatch(queries);
+        assertEquals(queries.size(), results.size());
+        for (int q = 0; q < queries.size(); q++) {
+            BatchQuery query = queries.get(q);
+            Planner single = new Planner(catalog);
+            single.filter("maxplayers >= 5");
+            List<BoardGame> expected = single.filter(query.getFilter(), query.getSortOn(),
+                    query.isAscending(), query.getOffset(), query.getLimit()).toList();
+            assertEquals(expected, results.get(q).toList(), query.getFilter());
+        }
+
+        // the batch does not change the filter state
+        Planner single = new Planner(catalog);
+        assertEquals(single.filter("maxplayers >= 5").toList(), batch.filter("").toList());
+    }
+
+    // Test clauses are reordered so the cheap, selective ones run first
+    @Test
+    public void testClauseOrder() {
+        Set<BoardGame> many = new HashSet<>(games);
+        for (int i = 0; i < 1000; i++) {
+            many.add(new BoardGame((i % 100 == 0 ? "Catan " : "Game ") + i, 100 + i, 1 + i % 4,
+                    4 + i % 3, 10 * (i % 5), 60, 1.0 + i % 3, 2000 - i, 5.0 + (i % 9) / 2.0,
+                    1990 + i % 11));
+        }
+        Planner p = new Planner(many);
+        ColumnStats rank = p.getCatalog().stats(GameData.RANK);
+        assertEquals(many.size(), rank.getDistinctCount());
+        assertEquals(100, rank.getMin());
+        assertEquals(2000, rank.getMax());
+        assertEquals(0.5, rank.estimate(Operations.LESS_THAN, 1500), 0.05);
+        assertEquals(0, rank.estimate(Operations.GREATER_THAN, 2000));
+        assertEquals(1.0 / 3, p.getCatalog().stats(GameData.MAX_PLAYERS)
+                .estimate(Operations.EQUALS, 5), 0.05);
+        assertNull(p.getCatalog().stats(GameData.NAME));
+
+        FilterPlan plan = p.getPlan("minplayers > 0, year >= 1995, name ~= catan, rank < 150");
+        assertEquals(List.of("rank<150", "objectname~=catan", "yearpublished>=1995",
+                "minplayers>0"), plan.getClauses());
+        List<Double> estimates = plan.estimate(p.getCatalog());
+        assertTrue(estimates.get(0) < estimates.get(1));
+        assertTrue(estimates.get(1) < estimates.get(2));
+        assertEquals(1.0, estimates.get(3), 0.0001);
+
+        // the order does not change what is found
+        List<BoardGame> found = p.filter("minplayers > 0, year >= 1995, name ~= catan").toList();
+        p.reset();
+        assertEquals(found, p.filter("name ~= catan, year >= 1995, minplayers > 0").toList());
+        assertEquals(5, found.size());
+    }
+
+    @Test
+    public void testQueryProfile() {
+        Set<BoardGame> many = new HashSet<>(games);
+        for (int i = 0; i < 1000; i++) {
+            many.add(new BoardGame((i % 100 == 0 ? "Catan " : "Game ") + i, 100 + i, 1 + i % 4,
+                    4 + i % 3, 10 * (i % 5), 60, 1.0 + i % 3, 2000 - i, 5.0 + (i % 9) / 2.0,
+                    1990 + i % 11));
+        }
+        Planner p = new Planner(many);
+        List<BoardGame> expected = p.filter("name ~= catan, minplayers > 0", GameData.RATING,
+                false).toList();
+        p.reset();
+
+        QueryProfile profile = new QueryProfile();
+        List<BoardGame> found = p.filter("minplayers > 0, name ~= catan", GameData.RATING, false,
+                profile).toList();
+        assertEquals(expected, found);
+        assertEquals("objectname~=catan,minplayers>0", profile.getPlan());
+        assertEquals(many.size(), profile.getRowsIn());
+        assertEquals(found.size(), profile.getRowsOut());
+        assertEquals(2, profile.getClauses().size());
+        QueryProfile.ClauseProfile name = profile.getClauses().get(0);
+        assertEquals("objectname~=catan", name.clause());
+        assertEquals("trigram index", name.accessPath());
+        assertEquals(10, name.rowsOut());
+        assertEquals("scan", profile.getClauses().get(1).accessPath());
+        assertEquals(10, profile.getClauses().get(1).rowsOut());
+        assertEquals("sort selection", profile.getSortPath());
+        assertTrue(profile.getParseNanos() >= 0);
+        assertTrue(profile.getFilterNanos() >= 0);
+        assertTrue(profile.getSortNanos() >= 0);
+        assertEquals(-1, profile.getRenderNanos());
+        assertTrue(profile.toString().contains("trigram index"));
+
+        // a selective numeric range uses the range index
+        p.reset();
+        profile = new QueryProfile();
+        p.filter("rank < 150", GameData.NAME, true, profile);
+        assertEquals(many.size(), profile.getRowsIn());
+        assertEquals("range index", profile.getClauses().get(0).accessPath());
+    }
+
+    @Test
+    public void testBooleanFilters() {
+        List<BoardGame> either = planner.filter("minplayers == 1 | maxplayers == 2").toList();
+        assertEquals(2, either.size());
+        assertTrue(containsGameWithName(either, "17 days"));
+        assertTrue(containsGameWithName(either, "Chess"));
+        planner.reset();
+
+        List<BoardGame> notHeavy = planner.filter("minplayers == 1 | maxplayers == 2, "
+                + "!difficulty > 9.5").toList();
+        assertEquals(1, notHeavy.size());
+        assertEquals("17 days", notHeavy.get(0).getName());
+        planner.reset();
+
+        List<BoardGame> noGo = planner.filter("!(name ~= go)").toList();
+        assertEquals(4, noGo.size());
+        assertFalse(containsGameWithName(noGo, "golang"));
+        planner.reset();
+        assertEquals(4, planner.filter("!(!name ~= go)").toList().size());
+        planner.reset();
+
+        List<BoardGame> grouped = planner.filter("(minplayers >= 6 | name ~= fish), year < 2005")
+                .toList();
+        assertEquals(3, grouped.size());
+        assertTrue(containsGameWithName(grouped, "GoRami"));
+        assertTrue(containsGameWithName(grouped, "Tucano"));
+        assertTrue(containsGameWithName(grouped, "Go Fish"));
+        // still progressive
+        assertEquals(1, planner.filter("name ~= go | name ~= chess, rating > 8").toList()
+                .size());
+        planner.reset();
+
+        // a bad clause puts no constraint on the games, so neither does an or or a
+        // not with one in it
+        assertEquals(games.size(), planner.filter("maxplayers == 2 | bogus > 1").toList()
+                .size());
+        planner.reset();
+        assertEquals(games.size(), planner.filter("(bogus > 1)").toList().size());
+        planner.reset();
+        assertEquals(games.size(), planner.filter("!(bogus > 1)").toList().size());
+        planner.reset();
+        assertEquals(games.size(), planner.filter("!(maxplayers == 2 | rating > high)")
+                .toList().size());
+        planner.reset();
+        assertEquals(1, planner.filter("maxplayers == 2 | bogus > 1, maxplayers == 2").toList()
+                .size());
+        planner.reset();
+        assertEquals(List.of("unknown column bogus at 17", "| with an ignored part at 1"),
+                FilterPlan.compile("maxplayers==2 | bogus>1").getErrors());
+        assertEquals(List.of(), FilterPlan.compile("maxplayers==2 | bogus>1").getClauses());
+        assertEquals(List.of("unknown column bogus at 3", "! of an ignored part at 1"),
+                FilterPlan.compile("!(bogus>1)").getErrors());
+        assertEquals(List.of("minplayers>1"),
+                FilterPlan.compile("!(bogus>1), minplayers>1").getClauses());
+
+        FilterPlan plan = FilterPlan.compile("minplayers==1|maxplayers==2,!difficulty>9.5");
+        assertEquals(List.of("(minplayers==1|maxplayers==2)", "!avgweight>9.5"),
+                plan.getClauses());
+        assertEquals(plan.getClauses(), FilterPlan.compile(plan.toString()).getClauses());
+
+        List<Stream<BoardGame>> batch = new Planner(games).filterBatch(List.of(
+                new BatchQuery("!(name ~= go)", GameData.NAME, true),
+                new BatchQuery("minplayers == 1 | maxplayers == 2", GameData.NAME, true)));
+        assertEquals(noGo, batch.get(0).toList());
+        assertEquals(either, batch.get(1).toList());
+    }
+
+    @Test
+    public void testIntervalFilters() {
+        List<BoardGame> five = planner.filter("players == 5").toList();
+        assertEquals(4, five.size());
+        assertTrue(containsGameWithName(five, "17 days"));
+        assertTrue(containsGameWithName(five, "golang"));
+        planner.reset();
+        assertEquals(five, planner.filter("minplayers <= 5, maxplayers >= 5").toList());
+        planner.reset();
+
+        assertEquals(3, planner.filter("players == 6-8").toList().size());
+        planner.reset();
+        List<BoardGame> big = planner.filter("players overlaps 9-12").toList();
+        assertEquals(3, big.size());
+        assertTrue(containsGameWithName(big, "Tucano"));
+        planner.reset();
+
+        assertEquals(6, planner.filter("time overlaps 30-60").toList().size());
+        planner.reset();
+        assertEquals(6, planner.filter("timeoverlaps30-60").toList().size());
+        planner.reset();
+        List<BoardGame> slot = planner.filter("time == 45").toList();
+        assertEquals(2, slot.size());
+        assertTrue(containsGameWithName(slot, "Go Fish"));
+        assertTrue(containsGameWithName(slot, "Monopoly"));
+        planner.reset();
+
+        // a backwards range is ignored, like any bad clause
+        assertEquals(games.size(), planner.filter("players == 5-3").toList().size());
+        planner.reset();
+        assertEquals(List.of("players==5", "time overlaps 30-60"),
+                FilterPlan.compile("players==5, time overlaps 30 - 60").getClauses());
+
+        // small selections are scanned, large ones use the index, same answer
+        Set<BoardGame> many = new HashSet<>(games);
+        for (int i = 0; i < 1000; i++) {
+            many.add(new BoardGame("Game " + i, 100 + i, 1 + i % 4, 4 + i % 5, 10 * (i % 7),
+                    30 + 10 * (i % 9), 2.0, 2000 - i, 7.0, 2000));
+        }
+        Planner p = new Planner(many);
+        QueryProfile profile = new QueryProfile();
+        p.filter("players == 5", GameData.NAME, true, profile);
+        assertEquals("interval index", profile.getClauses().get(0).accessPath());
+        List<BoardGame> indexed = p.filter("rank < 1040").toList();
+        p.reset();
+        p.filter("rank < 1040");
+        profile = new QueryProfile();
+        List<BoardGame> scanned = p.filter("players == 5", GameData.NAME, true, profile).toList();
+        assertEquals("scan", profile.getClauses().get(0).accessPath());
+        assertEquals(indexed, scanned);
+        p.reset();
+        assertEquals(indexed, p.filter("rank < 1040, minplayers <= 5, maxplayers >= 5").toList());
+    }
+
+    @Test
+    public void testSimilarGames() {
+        List<BoardGame> similar = planner.similar("go", 3).toList();
+        assertEquals(3, similar.size());
+        assertFalse(containsGameWithName(similar, "Go"));
+        assertEquals(games.size() - 1, planner.similar("Go", 100).count());
+        assertEquals(0, planner.similar("Go", 0).count());
+        assertEquals(0, planner.similar("no such game", 5).count());
+        assertThrows(IllegalArgumentException.class, () -> planner.similar("Go", -1));
+
+        // only games that pass the filters, which are not changed
+        planner.filter("minplayers >= 6");
+        List<BoardGame> filtered = planner.similar("Go", 10).toList();
+        assertEquals(3, filtered.size());
+        assertTrue(filtered.stream().allMatch(game -> game.getMinPlayers() >= 6));
+        assertEquals(3, planner.filter("").count());
+
+        // the KD-tree finds the same games as comparing with every one
+        Random rnd = new Random(17);
+        Set<BoardGame> many = new HashSet<>();
+        for (int i = 0; i < 3000; i++) {
+            int minPlayers = 1 + rnd.nextInt(4);
+            int minTime = 10 * (1 + rnd.nextInt(12));
+            many.add(new BoardGame("Game " + i, i, minPlayers, minPlayers + rnd.nextInt(6),
+                    minTime, minTime + 10 * rnd.nextInt(10), 1 + rnd.nextInt(40) / 10.0, i + 1,
+                    5 + rnd.nextInt(50) / 10.0, 1990 + rnd.nextInt(35)));
+        }
+        GameCatalog catalog = new GameCatalog(many);
+        BitSet all = new BitSet();
+        all.set(0, catalog.size());
+        BitSet half = new BitSet();
+        for (int i = 0; i < catalog.size(); i += 2) {
+            half.set(i);
+        }
+        for (int target = 0; target < catalog.size(); target += 97) {
+            for (int k : new int[] {1, 5, 40}) {
+                assertArrayEquals(catalog.nearestByScan(target, k, all),
+                        catalog.nearest(target, k, all));
+                assertArrayEquals(catalog.nearestByScan(target, k, half),
+                        catalog.nearest(target, k, half));
+            }
+        }
+    }
+
+    @Test
+    public void testLazyResults() {
+        Stream<BoardGame> before = planner.filter("minplayers >= 2", GameData.RATING, false);
+        assertEquals(7, before.spliterator().getExactSizeIfKnown());
+        List<BoardGame> all = planner.filter("", GameData.RATING, false).toList();
+        assertEquals(7, planner.filter("").count());
+        assertEquals(all.get(0), planner.filter("", GameData.RATING, false).findFirst().get());
+        assertEquals(all.subList(0, 3), planner.filter("", GameData.RATING, false).limit(3)
+                .toList());
+        assertEquals(all.subList(2, 5), planner.filter("", GameData.RATING, false, 2, 3)
+                .toList());
+        assertEquals(3, planner.filter("", GameData.RATING, false, 2, 3).count());
+
+        // a stream keeps the games it was made for, even after more filters
+        Stream<BoardGame> earlier = planner.filter("", GameData.NAME, true);
+        planner.filter("name ~= go");
+        assertEquals(7, earlier.count());
+        assertEquals(4, planner.filter("").count());
+
+        // the same games whether the sorted order is walked or the selection sorted
+        Set<BoardGame> many = new HashSet<>(games);
+        for (int i = 0; i < 1000; i++) {
+            many.add(new BoardGame("Game " + i, 100 + i, 1 + i % 4, 4 + i % 3, 10 * (i % 5),
+                    60, 1.0 + i % 3, 2000 - i, 5.0 + (i % 9) / 2.0, 1990 + i % 11));
+        }
+        Planner p = new Planner(many);
+        for (String filter : new String[] {"", "rank < 1020", "rank < 1300"}) {
+            p.reset();
+            List<BoardGame> sorted = p.filter(filter, GameData.YEAR, false).toList();
+            List<BoardGame> expected = new ArrayList<>(sorted);
+            expected.sort(BoardGameSortStrategy.getComparatorForColumn(GameData.YEAR).reversed());
+            assertEquals(expected.stream().map(BoardGame::getYearPublished).toList(),
+                    sorted.stream().map(BoardGame::getYearPublished).toList());
+            assertEquals(sorted.size(), p.filter("").count());
+            assertEquals(sorted.subList(1, 4), p.filter("", GameData.YEAR, false).skip(1)
+                    .limit(3).toList());
+        }
+    }
+
+    private static List<String> runSession(Planner session, String[] steps, GameData sortOn) {
+        for (String step : steps) {
+            if (step.equals("undo")) {
+                session.undo();
+            } else if (step.equals("reset")) {
+                session.reset();
+            } else {
+                session.filter(step);
+            }
+        }
+        return session.filter("", sortOn, false).map(BoardGame::getName).toList();
+    }
+
+    private static boolean matches(BoardGame game, String filter) {
+        String[] parts = filter.split(" ");
+        double value = Double.parseDouble(parts[2]);
+        double actual = game.getNumericValue(GameData.fromString(parts[0]));
+        switch (parts[1]) {
+            case "<":
+                return actual < value;
+            case "<=":
+                return actual <= value;
+            case ">":
+                return actual > value;
+            case ">=":
+                return actual >= value;
+            case "==":
+                return actual == value;
+            default:
+                return actual != value;
+        }
+    }
+
+    private static void assertInOrder(List<BoardGame> sorted, GameData column, boolean ascending) {
+        Comparator<BoardGame> comparator = BoardGameSortStrategy.getComparatorForColumn(column);
+        for (int i = 1; i < sorted.size(); i++) {
+            int cmp = comparator.compare(sorted.get(i - 1), sorted.get(i));
+            assertTrue(ascending ? cmp <= 0 : cmp >= 0, column + " out of order at " + i);
+        }
+    }
+
+    @Test
+    public void testFilterLexer() {
+        assertEquals(List.of("objectname~=go fish", "minplayers>=2", "players==2-4",
+                "time overlaps 30-60"), FilterPlan.compile(
+                        " name ~= Go Fish , min_players>=2, players == 2 - 4, timeoverlaps30-60")
+                        .getClauses());
+        assertEquals(List.of("objectname==a<b", "average<=7.25", "avgweight>-1.5"),
+                FilterPlan.compile("name==a<b, rating<=7.25, difficulty>-1.5").getClauses());
+        assertEquals(List.of(), FilterPlan.compile("minplayers>=2, rating>1e0").getErrors());
+
+        FilterPlan plan = FilterPlan.compile("bogus>1, minplayers 2, rating>, rating>high, "
+                + "id==5, name overlaps 3, players==4-2, (rank<5) year>1");
+        assertEquals(List.of("rank<5"), plan.getClauses());
+        assertEquals(List.of("unknown column bogus at 1", "expected an operator at 21",
+                "expected a value at 31", "not a number at 40", "cannot filter on id at 46",
+                "overlaps is only for players and time at 58", "not a number or range at 79",
+                "expected , or | at 93"), plan.getErrors());
+
+        assertEquals(1, planner.filter("name ~= go fish").toList().size());
+        assertEquals(List.of(), planner.lastResult().getErrors());
+        planner.filter("bogus>1, minplayers>1");
+        assertEquals(List.of("unknown column bogus at 1"), planner.lastResult().getErrors());
+    }
+
+    @Test
+    public void testLastResult() {
+        List<BoardGame> shown = planner.filter("minplayers > 1", GameData.RATING, false, 0, 3)
+                .toList();
+        ResultSnapshot last = planner.lastResult();
+        List<BoardGame> all = planner.filter("", GameData.RATING, false).toList();
+        assertEquals(all.size(), last.size());
+        assertEquals(shown, last.range(0, 3));
+        assertEquals(all.get(all.size() - 1), last.get(all.size() - 1));
+        assertEquals(all.subList(2, all.size()), last.range(2, 100));
+
+        IGameList list = new GameList();
+        list.addToList("2", last);
+        assertEquals(List.of(all.get(1).getName()), list.getGameNames());
+        list.addToList("1-3", last);
+        assertEquals(3, list.count());
+        list.addToList("monopoly", last);
+        assertEquals(4, list.count());
+        list.addToList("id:" + all.get(4).getId() + ", " + all.get(5).getName(), last);
+        assertEquals(6, list.count());
+        assertThrows(IllegalArgumentException.class,
+                () -> list.addToList(Integer.toString(all.size() + 1), last));
+
+        // more filters leave the snapshot as it was
+        planner.filter("name == golang");
+        assertEquals(all.get(0), last.get(0));
+        assertEquals(1, planner.lastResult().size());
+        planner.reset();
+        assertEquals(games.size(), planner.lastResult().size());
+        assertEquals(planner.filter("").toList(), planner.lastResult().range(0, games.size()));
+    }
+
+    @Test
+    public void testNameFiltersIgnoreDefaultLocale() {
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            Set<BoardGame> named = new HashSet<>(games);
+            named.add(new BoardGame("INDIGO", 11, 2, 4, 30, 45, 2.0, 1100, 6.5, 2012));
+            IPlanner turkish = new Planner(named);
+            assertEquals(11, turkish.filter("name~=INDI").findFirst().get().getId());
+            turkish.reset();
+            assertEquals(11, turkish.filter("NAME == indigo").findFirst().get().getId());
+            turkish.reset();
+            assertEquals(1, turkish.filter("name ~= indi").count());
+
+            IGameList list = new GameList(new GameCatalog(named));
+            list.addToList("Indigo", turkish.filter("name ~= INDIGO"));
+            assertEquals(List.of("INDIGO"), list.getGameNames());
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void testGamesBuiltFromCatalog() {
+        GameCatalog catalog = new GameCatalog(games);
+        for (int i = 0; i < catalog.size(); i++) {
+            BoardGame game = catalog.game(i);
+            assertTrue(games.stream().anyMatch(g -> g.toString().equals(game.toString())));
+            assertEquals(game.getName(), catalog.name(i));
+        }
+
+        // names outside Latin-1 are packed as chars
+        Set<BoardGame> mixed = new HashSet<>(games);
+        mixed.add(new BoardGame("\u56f2\u7881", 9, 2, 2, 30, 90, 4.0, 900, 7.0, 1980));
+        mixed.add(new BoardGame("Caf\u00e9 Go", 10, 2, 4, 20, 30, 2.0, 1000, 6.0, 2010));
+        IPlanner packed = new Planner(mixed);
+        List<String> names = packed.filter("", GameData.NAME, true).map(BoardGame::getName)
+                .toList();
+        List<String> expected = mixed.stream().map(BoardGame::getName)
+                .sorted(String.CASE_INSENSITIVE_ORDER).toList();
+        assertEquals(expected, names);
+        assertEquals(9, packed.filter("name == \u56f2\u7881").findFirst().get().getId());
+        packed.reset();
+        assertEquals(2, packed.filter("name ~= caf\u00e9").findFirst().get().getMinPlayers());
+        packed.reset();
+        assertEquals(10, packed.filter("name ~= AF\u00c9 g").findFirst().get().getId());
+        packed.reset();
+        assertEquals(10, packed.filter("name == CAF\u00c9 GO").findFirst().get().getId());
+
+        // values that do not fit a narrow or fixed point column come back unchanged
+        Set<BoardGame> odd = new HashSet<>();
+        odd.add(new BoardGame("Wide", 1, -3, 1000, 0, 100000, 1.0 / 3, -5, Double.NaN, -3000));
+        odd.add(new BoardGame("Narrow", 2, 1, 2, 10, 20, 2.5, 7, 7.25, 2000));
+        odd.add(new BoardGame("Zero", 3, 1, 2, 10, 20, -0.0, 8, 1e-6, 2001));
+        GameCatalog oddCatalog = new GameCatalog(odd);
+        for (int i = 0; i < oddCatalog.size(); i++) {
+            BoardGame game = oddCatalog.game(i);
+            assertTrue(odd.stream().anyMatch(g -> g.toString().equals(game.toString())));
+        }
+        IPlanner oddPlanner = new Planner(odd);
+        assertEquals(List.of("Narrow", "Zero"), oddPlanner.filter("rating > 0", GameData.RATING,
+                false).map(BoardGame::getName).toList());
+        oddPlanner.reset();
+        assertEquals(List.of("Wide", "Narrow"), oddPlanner.filter("difficulty > 0",
+                GameData.DIFFICULTY, true).map(BoardGame::getName).toList());
+
+        // -0.0 keeps its sign, in a column that would otherwise be fixed point
+        Set<BoardGame> signed = new HashSet<>();
+        signed.add(new BoardGame("Minus", 1, 1, 2, 10, 20, -0.0, 1, -0.0, 2000));
+        signed.add(new BoardGame("Plus", 2, 1, 2, 10, 20, 2.5, 2, 7.25, 2000));
+        GameCatalog signedCatalog = new GameCatalog(signed);
+        for (int i = 0; i < signedCatalog.size(); i++) {
+            BoardGame game = signedCatalog.game(i);
+            if (game.getName().equals("Minus")) {
+                assertEquals(Double.NEGATIVE_INFINITY, 1 / game.getDifficulty());
+                assertEquals(Double.NEGATIVE_INFINITY, 1 / game.getRating());
+            }
+            assertTrue(signed.stream().anyMatch(g -> g.toString().equals(game.toString())));
+        }
+    }
+}
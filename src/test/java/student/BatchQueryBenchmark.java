@@ -0,0 +1,55 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares running a reporting job's queries one at a time with running them as
+ * one batch.
+ *
+ * The job is one query per player count and year band, each asking for the top
+ * 10 by rating, like a dashboard that is precomputed.
+ *
+ * Run with: gradle benchmark -Pbench=student.BatchQueryBenchmark
+ */
+public final class BatchQueryBenchmark {
+    private static final int SIZE = 1_000_000;
+    private static final int ROUNDS = 5;
+
+    private BatchQueryBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        GameCatalog catalog = new GameCatalog(CatalogFixtures.games(SIZE));
+        List<BatchQuery> queries = new ArrayList<>();
+        for (int players = 1; players <= 8; players++) {
+            for (int year = 1950; year < 2025; year += 5) {
+                queries.add(new BatchQuery("minplayers<=" + players + ",maxplayers>=" + players
+                        + ",year>=" + year + ",year<" + (year + 5), GameData.RATING, false, 0,
+                        10));
+            }
+        }
+
+        long sink = 0;
+        long singleBest = Long.MAX_VALUE;
+        long batchBest = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (BatchQuery query : queries) {
+                Planner session = new Planner(catalog);
+                sink += session.filter(query.getFilter(), query.getSortOn(), query.isAscending(),
+                        query.getOffset(), query.getLimit()).count();
+            }
+            singleBest = Math.min(singleBest, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (var result : new Planner(catalog).filterBatch(queries)) {
+                sink += result.count();
+            }
+            batchBest = Math.min(batchBest, System.nanoTime() - start);
+        }
+        System.out.printf("%,d games, %d queries: one at a time %.1f ms, batch %.1f ms (%.1fx)"
+                + " [%d]%n", SIZE, queries.size(), singleBest / 1e6, batchBest / 1e6,
+                (double) singleBest / batchBest, sink);
+    }
+}
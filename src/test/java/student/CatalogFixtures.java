@@ -0,0 +1,82 @@
+package student;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Builds large made up catalogs for the benchmarks.
+ *
+ * Values are drawn from ranges similar to the real collection, with a fixed seed
+ * so runs are comparable.
+ */
+public final class CatalogFixtures {
+    /** Header with the GameData columns mixed in with a few we do not use. */
+    private static final String HEADER = "objectname,objectid,rating,numplays,average,avgweight,"
+            + "rank,numowned,objecttype,minplayers,maxplayers,playingtime,maxplaytime,"
+            + "minplaytime,yearpublished,bggrecagerange,bgglanguagedependence";
+    /** Words used to build names. */
+    private static final String[] WORDS = {"Catan", "Pandemic", "Ticket", "Ride", "Wonders",
+        "Azul", "Go", "Chess", "Forest", "Dragon", "Castle", "Space", "Quest", "Legacy", "Island",
+        "Empire", "Harbor", "Train", "Mystery", "Garden"};
+
+    private CatalogFixtures() {
+    }
+
+    /**
+     * Makes up a set of games.
+     *
+     * @param count number of games
+     * @return the games
+     */
+    public static Set<BoardGame> games(int count) {
+        Random rnd = new Random(count);
+        Set<BoardGame> games = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            games.add(game(rnd, i));
+        }
+        return games;
+    }
+
+    /**
+     * Writes a made up collection csv.
+     *
+     * @param file  where to write the csv
+     * @param count number of games
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeCsv(Path file, int count) throws IOException {
+        Random rnd = new Random(count);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(HEADER);
+            out.write('\n');
+            for (int i = 0; i < count; i++) {
+                BoardGame g = game(rnd, i);
+                out.write(g.getName() + "," + g.getId() + ",0,0," + g.getRating() + ","
+                        + g.getDifficulty() + "," + g.getRank() + ",1234,thing,"
+                        + g.getMinPlayers() + "," + g.getMaxPlayers() + "," + g.getMaxPlayTime()
+                        + "," + g.getMaxPlayTime() + "," + g.getMinPlayTime() + ","
+                        + g.getYearPublished() + ",10+,No necessary in-game text\n");
+            }
+        }
+    }
+
+    private static BoardGame game(Random rnd, int i) {
+        String name = WORDS[rnd.nextInt(WORDS.length)] + " " + WORDS[rnd.nextInt(WORDS.length)]
+                + " " + i;
+        int minPlayers = 1 + rnd.nextInt(4);
+        int maxPlayers = minPlayers + rnd.nextInt(6);
+        int minTime = 10 + 5 * rnd.nextInt(24);
+        int maxTime = minTime + 5 * rnd.nextInt(24);
+        double difficulty = Math.round((1 + rnd.nextDouble() * 4) * 10000) / 10000.0;
+        double rating = Math.round((4 + rnd.nextDouble() * 5) * 100000) / 100000.0;
+        int year = 1950 + rnd.nextInt(75);
+        return new BoardGame(name, 100000 + i, minPlayers, maxPlayers, minTime, maxTime,
+                difficulty, i + 1, rating, year);
+    }
+}
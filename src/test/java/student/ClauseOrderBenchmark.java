@@ -0,0 +1,44 @@
+package student;
+
+import java.util.BitSet;
+
+/**
+ * Compares applying filters in the order they were typed with the order chosen
+ * from the catalog statistics.
+ *
+ * Run with: gradle benchmark -Pbench=student.ClauseOrderBenchmark
+ */
+public final class ClauseOrderBenchmark {
+    private static final String[] FILTERS = {"minplayers>0,maxplayers>=2,name~=catan",
+        "rating>4,difficulty<5,year==2001", "maxplaytime>=10,name~=an,rank<1000"};
+    private static final int SIZE = 1_000_000;
+    private static final int ROUNDS = 10;
+
+    private ClauseOrderBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        GameCatalog catalog = new GameCatalog(CatalogFixtures.games(SIZE));
+        BitSet all = catalog.allGames();
+        for (String filter : FILTERS) {
+            FilterPlan typed = FilterPlan.compile(filter);
+            FilterPlan ordered = typed.orderFor(catalog);
+
+            long sink = 0;
+            long typedBest = Long.MAX_VALUE;
+            long orderedBest = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                sink += typed.apply(catalog, all).cardinality();
+                typedBest = Math.min(typedBest, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                sink += ordered.apply(catalog, all).cardinality();
+                orderedBest = Math.min(orderedBest, System.nanoTime() - start);
+            }
+            System.out.printf("%s%n  typed   %8.2f ms%n  ordered %8.2f ms as %s (%.1fx) [%d]%n",
+                    filter, typedBest / 1e6, orderedBest / 1e6, ordered,
+                    (double) typedBest / orderedBest, sink);
+        }
+    }
+}
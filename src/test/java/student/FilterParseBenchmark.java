@@ -0,0 +1,130 @@
+package student;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures how fast filters are parsed, and how many bytes that allocates.
+ *
+ * Compares the previous approach (strip the spaces with replaceAll, split on
+ * commas, find each clause's operator with a chain of contains, then split the
+ * clause on it with a regex) with the FilterLexer. The lexer is measured on its
+ * own, reading every token and number without building clauses, and as part of
+ * FilterPlan.compile, which also builds the clauses and the plan. The thread
+ * allocation counter gives the bytes allocated per filter.
+ *
+ * Run with: gradle benchmark -Pbench=student.FilterParseBenchmark
+ */
+public final class FilterParseBenchmark {
+    private static final String[] FILTERS = {"minplayers>=2", "maxplayers <= 4, rating > 7.5",
+        "name~=catan", "year>=2015, difficulty<3, minplaytime>=30", "rank<500",
+        "minplayers == 1, maxplayers == 2, difficulty <= 3.25, name ~= the"};
+    private static final int WARMUP = 200_000;
+    private static final int ITERATIONS = 2_000_000;
+
+    private FilterParseBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            String filter = FILTERS[i % FILTERS.length];
+            sink += splitParse(filter) + lex(filter)
+                    + FilterPlan.compile(filter).getClauses().size();
+        }
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += splitParse(FILTERS[i % FILTERS.length]);
+        }
+        long splitTime = System.nanoTime() - start;
+        long splitBytes = threads.getCurrentThreadAllocatedBytes() - before;
+
+        before = threads.getCurrentThreadAllocatedBytes();
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += lex(FILTERS[i % FILTERS.length]);
+        }
+        long lexTime = System.nanoTime() - start;
+        long lexBytes = threads.getCurrentThreadAllocatedBytes() - before;
+
+        before = threads.getCurrentThreadAllocatedBytes();
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += FilterPlan.compile(FILTERS[i % FILTERS.length]).getClauses().size();
+        }
+        long compileTime = System.nanoTime() - start;
+        long compileBytes = threads.getCurrentThreadAllocatedBytes() - before;
+
+        System.out.printf("filters: %d, %d parses (checksum %d)%n", FILTERS.length, ITERATIONS,
+                sink);
+        print("split (previous)", splitTime, splitBytes);
+        print("lexer tokens", lexTime, lexBytes);
+        print("lexer + compile", compileTime, compileBytes);
+    }
+
+    private static void print(String label, long nanos, long bytes) {
+        System.out.printf("%-17s %8.1f ns/filter %8.1f bytes/filter %6.2f M filters/s%n",
+                label + ":", (double) nanos / ITERATIONS, (double) bytes / ITERATIONS,
+                ITERATIONS * 1e3 / nanos);
+    }
+
+    // Reads every token of a filter, and every number, without building anything
+    private static long lex(String filter) {
+        FilterLexer lexer = new FilterLexer(filter);
+        long sink = 0;
+        GameData column = null;
+        for (FilterLexer.Token token = lexer.next(); token != FilterLexer.Token.END;
+                token = lexer.next()) {
+            if (token == FilterLexer.Token.COLUMN) {
+                column = lexer.column();
+            } else if (token == FilterLexer.Token.VALUE && column != GameData.NAME) {
+                sink += (long) lexer.number();
+            }
+            sink += lexer.end();
+        }
+        return sink;
+    }
+
+    // How the console and planner parsed a filter before the lexer
+    private static long splitParse(String filter) {
+        long sink = 0;
+        for (String clause : filter.replaceAll("\\s", "").split(",")) {
+            Operations operator = operatorFromStr(clause);
+            if (operator == null) {
+                continue;
+            }
+            String[] parts = clause.split(operator.getOperator());
+            if (parts.length != 2) {
+                continue;
+            }
+            GameData column = GameData.fromString(parts[0].trim());
+            sink += column == GameData.NAME ? parts[1].length()
+                    : (long) Double.parseDouble(parts[1].trim());
+        }
+        return sink;
+    }
+
+    // Operations.getOperatorFromStr before it was made a single pass
+    private static Operations operatorFromStr(String str) {
+        if (str.contains(">=")) {
+            return Operations.GREATER_THAN_EQUALS;
+        } else if (str.contains("<=")) {
+            return Operations.LESS_THAN_EQUALS;
+        } else if (str.contains(">")) {
+            return Operations.GREATER_THAN;
+        } else if (str.contains("<")) {
+            return Operations.LESS_THAN;
+        } else if (str.contains("==")) {
+            return Operations.EQUALS;
+        } else if (str.contains("!=")) {
+            return Operations.NOT_EQUALS;
+        } else if (str.contains("~=")) {
+            return Operations.CONTAINS;
+        }
+        return null;
+    }
+}
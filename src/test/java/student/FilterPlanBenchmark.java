@@ -0,0 +1,61 @@
+package student;
+
+import java.util.BitSet;
+
+/**
+ * Compares compiling a filter on every call with reusing a cached plan.
+ *
+ * The "interpreted" numbers compile the filter every time, which is the same
+ * splitting and parsing the planner used to do on every call. The "cached"
+ * numbers go through a PlanCache, so only the first call compiles. Both apply
+ * the plan to the whole catalog, and the parse cost alone is also reported.
+ *
+ * Run with: gradle benchmark -Pbench=student.FilterPlanBenchmark
+ */
+public final class FilterPlanBenchmark {
+    private static final String[] FILTERS = {"minplayers>=2", "maxplayers<=4, rating>7.5",
+        "name~=catan", "year>=2015, difficulty<3, minplaytime>=30", "rank<500"};
+    private static final int[] SIZES = {1_000, 100_000};
+    private static final int ROUNDS = 5;
+
+    private FilterPlanBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        for (int size : SIZES) {
+            GameCatalog catalog = new GameCatalog(CatalogFixtures.games(size));
+            BitSet all = new BitSet(catalog.size());
+            all.set(0, catalog.size());
+            int iterations = Math.max(200, 20_000_000 / size);
+
+            long sink = 0;
+            double parseOnly = 0;
+            double interpreted = 0;
+            double cached = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                PlanCache cache = new PlanCache();
+
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    sink += FilterPlan.compile(FILTERS[i % FILTERS.length]).getClauses().size();
+                }
+                parseOnly = (System.nanoTime() - start) / (double) iterations;
+
+                start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    sink += FilterPlan.compile(FILTERS[i % FILTERS.length]).apply(catalog, all).cardinality();
+                }
+                interpreted = (System.nanoTime() - start) / (double) iterations;
+
+                start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    sink += cache.get(FILTERS[i % FILTERS.length]).apply(catalog, all).cardinality();
+                }
+                cached = (System.nanoTime() - start) / (double) iterations;
+            }
+            System.out.printf("%,d games: parse only %.0f ns, interpreted %.0f ns, cached %.0f ns"
+                    + " per query (%.2fx) [%d]%n", size, parseOnly, interpreted, cached,
+                    interpreted / cached, sink);
+        }
+    }
+}
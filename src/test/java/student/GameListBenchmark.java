@@ -0,0 +1,95 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Compares editing a large game list by position with the order-statistic tree
+ * GameList keeps, and with the previous hash set, which was copied and sorted on
+ * every remove and every time the names were listed.
+ *
+ * Each script adds every game, then runs a mix of single and range removes by
+ * position, listing the names after every tenth edit as list show would.
+ *
+ * Run with: gradle benchmark -Pbench=student.GameListBenchmark
+ */
+public final class GameListBenchmark {
+    private static final int[] SIZES = {1_000, 10_000, 50_000};
+    private static final int EDITS = 500;
+    private static final int ROUNDS = 5;
+
+    private GameListBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        for (int size : SIZES) {
+            List<BoardGame> games = new ArrayList<>(CatalogFixtures.games(size));
+            String[] script = script(size);
+            long sink = 0;
+            double previous = Double.MAX_VALUE;
+            double ranked = Double.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                sink += runPrevious(games, script);
+                previous = Math.min(previous, (System.nanoTime() - start) / 1e6);
+
+                start = System.nanoTime();
+                sink += runRanked(games, script);
+                ranked = Math.min(ranked, (System.nanoTime() - start) / 1e6);
+            }
+            System.out.printf("%,7d games, %d edits: hash set + sort %9.1f ms   ranked set %7.1f ms"
+                    + "  (checksum %d)%n", size, EDITS, previous, ranked, sink);
+        }
+    }
+
+    private static String[] script(int size) {
+        Random random = new Random(42);
+        String[] script = new String[EDITS];
+        int left = size;
+        for (int i = 0; i < EDITS; i++) {
+            int from = 1 + random.nextInt(Math.max(left - 10, 1));
+            int count = i % 5 == 0 ? 1 + random.nextInt(10) : 1;
+            script[i] = count == 1 ? Integer.toString(from) : from + "-" + (from + count - 1);
+            left -= count;
+        }
+        return script;
+    }
+
+    private static long runRanked(List<BoardGame> games, String[] script) {
+        GameList list = new GameList();
+        list.addToList(IGameList.ADD_ALL, games.stream());
+        long sink = 0;
+        for (int i = 0; i < script.length; i++) {
+            list.removeFromList(script[i]);
+            if (i % 10 == 0) {
+                sink += list.getGameNames().size();
+            }
+        }
+        return sink + list.count();
+    }
+
+    // How GameList kept its games before the ranked set
+    private static long runPrevious(List<BoardGame> games, String[] script) {
+        Set<BoardGame> set = new HashSet<>(games);
+        long sink = 0;
+        for (int i = 0; i < script.length; i++) {
+            List<BoardGame> sorted = new ArrayList<>(set);
+            sorted.sort(Comparator.comparing(BoardGame::getName));
+            String[] range = script[i].split("-");
+            int start = Integer.parseInt(range[0]) - 1;
+            int end = Math.min(Integer.parseInt(range[range.length - 1]) - 1, set.size() - 1);
+            for (int k = start; k <= end; k++) {
+                set.remove(sorted.get(k));
+            }
+            if (i % 10 == 0) {
+                sink += set.stream().map(BoardGame::getName)
+                        .sorted(String.CASE_INSENSITIVE_ORDER).toList().size();
+            }
+        }
+        return sink + set.size();
+    }
+}
@@ -0,0 +1,55 @@
+package student;
+
+import java.util.BitSet;
+
+/**
+ * Compares interval filters answered through the catalog's interval index with
+ * the same question asked as two clauses on the start and end columns, over the
+ * whole catalog.
+ *
+ * Run with: gradle benchmark -Pbench=student.IntervalQueryBenchmark
+ */
+public final class IntervalQueryBenchmark {
+    private static final String[][] FILTERS = {
+        {"players==1", "minplayers<=1,maxplayers>=1"},
+        {"players==7", "minplayers<=7,maxplayers>=7"},
+        {"players==2-4", "minplayers<=2,maxplayers>=4"},
+        {"time overlaps 30-45", "minplaytime<=45,maxplaytime>=30"},
+        {"time==200", "minplaytime<=200,maxplaytime>=200"}};
+    private static final int SIZE = 1_000_000;
+    private static final int ROUNDS = 5;
+    private static final int ITERATIONS = 20;
+
+    private IntervalQueryBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        GameCatalog catalog = new GameCatalog(CatalogFixtures.games(SIZE));
+        BitSet all = catalog.allGames();
+
+        for (String[] filter : FILTERS) {
+            FilterPlan interval = FilterPlan.compile(filter[0]).orderFor(catalog);
+            FilterPlan clauses = FilterPlan.compile(filter[1]).orderFor(catalog);
+
+            long sink = 0;
+            long indexBest = Long.MAX_VALUE;
+            long clausesBest = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    sink += interval.apply(catalog, all).cardinality();
+                }
+                indexBest = Math.min(indexBest, (System.nanoTime() - start) / ITERATIONS);
+
+                start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    sink += clauses.apply(catalog, all).cardinality();
+                }
+                clausesBest = Math.min(clausesBest, (System.nanoTime() - start) / ITERATIONS);
+            }
+            System.out.printf("%-20s %,9d matches: index %9.1f us, two clauses %9.1f us (%.1fx)"
+                    + " [%d]%n", filter[0], interval.apply(catalog, all).cardinality(),
+                    indexBest / 1e3, clausesBest / 1e3, (double) clausesBest / indexBest, sink);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package student;
+
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Compares consuming filter results lazily (count, findFirst, limit) with
+ * collecting the whole result first, the way callers used to.
+ *
+ * Run with: gradle benchmark -Pbench=student.LazyStreamBenchmark
+ */
+public final class LazyStreamBenchmark {
+    private static final String[] FILTERS = {"", "rating>7", "minplayers>=2,maxplayers<=4"};
+    private static final int SIZE = 1_000_000;
+    private static final int ROUNDS = 5;
+    private static final int ITERATIONS = 10;
+
+    private LazyStreamBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        GameCatalog catalog = new GameCatalog(CatalogFixtures.games(SIZE));
+        for (String filter : FILTERS) {
+            // the filter is applied every time, so it is timed on its own as well
+            report(catalog, filter, "filter only", s -> 0);
+            report(catalog, filter, "toList().size()", s -> s.toList().size());
+            report(catalog, filter, "count()", Stream::count);
+            report(catalog, filter, "findFirst()", s -> s.findFirst().isPresent() ? 1 : 0);
+            report(catalog, filter, "limit(10)", s -> s.limit(10).toList().size());
+        }
+    }
+
+    private static void report(GameCatalog catalog, String filter, String consumer,
+            ToLongFunction<Stream<BoardGame>> consume) {
+        long sink = 0;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                Planner planner = new Planner(catalog);
+                sink += consume.applyAsLong(planner.filter(filter, GameData.RATING, false));
+            }
+            best = Math.min(best, (System.nanoTime() - start) / ITERATIONS);
+        }
+        System.out.printf("%-28s %-16s %9.1f us [%d]%n", filter.isEmpty() ? "(none)" : filter,
+                consumer, best / 1e3, sink);
+    }
+}
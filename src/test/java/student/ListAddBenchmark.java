@@ -0,0 +1,64 @@
+package student;
+
+/**
+ * Compares adding games to a list by position from the planner's last result
+ * with the way the console used to do it: run an empty filter again and let the
+ * game list sort the stream by name to find the positions.
+ *
+ * Each add starts from a filtered, sorted result as the console shows it, and
+ * the first add from a new result pays for working out the sorted order up to
+ * the position, so both the first add and repeated adds are timed.
+ *
+ * Run with: gradle benchmark -Pbench=student.ListAddBenchmark
+ */
+public final class ListAddBenchmark {
+    private static final String[] ADDS = {"5", "1-200", "900-1000"};
+    private static final int SIZE = 100_000;
+    private static final int ROUNDS = 5;
+    private static final int ITERATIONS = 50;
+
+    private ListAddBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        GameCatalog catalog = new GameCatalog(CatalogFixtures.games(SIZE));
+        for (String add : ADDS) {
+            double refilter = Double.MAX_VALUE;
+            double first = Double.MAX_VALUE;
+            double repeat = Double.MAX_VALUE;
+            long sink = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                long refilterNanos = 0;
+                long firstNanos = 0;
+                long repeatNanos = 0;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    Planner planner = new Planner(catalog);
+                    sink += planner.filter("minplayers>=2", GameData.RATING, false, 0, 20)
+                            .count();
+
+                    GameList list = new GameList();
+                    long start = System.nanoTime();
+                    list.addToList(add, planner.filter(""));
+                    refilterNanos += System.nanoTime() - start;
+                    sink += list.count();
+
+                    planner.filter("", GameData.RATING, false, 0, 20).count();
+                    list = new GameList();
+                    start = System.nanoTime();
+                    list.addToList(add, planner.lastResult());
+                    firstNanos += System.nanoTime() - start;
+                    start = System.nanoTime();
+                    list.addToList(add, planner.lastResult());
+                    repeatNanos += System.nanoTime() - start;
+                    sink += list.count();
+                }
+                refilter = Math.min(refilter, refilterNanos / 1e3 / ITERATIONS);
+                first = Math.min(first, firstNanos / 1e3 / ITERATIONS);
+                repeat = Math.min(repeat, repeatNanos / 1e3 / ITERATIONS);
+            }
+            System.out.printf("list add %-8s refilter %10.1f us  snapshot first %8.1f us"
+                    + "  snapshot again %8.1f us  (checksum %d)%n", add, refilter, first, repeat,
+                    sink);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package student;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares saving and loading a large games list as text, one name a line, with
+ * the binary .bgl form of delta varint ids: the size of the file, and the time to
+ * save it and to load it back into a list (by name for text, by id for binary).
+ *
+ * The list is a random half of a made up catalog, so ids are spread out as a
+ * real list of picks would be.
+ *
+ * Run with: gradle benchmark -Pbench=student.ListExportBenchmark
+ */
+public final class ListExportBenchmark {
+    private static final int[] SIZES = {10_000, 100_000};
+    private static final int ROUNDS = 5;
+
+    private ListExportBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("list_export_bench");
+        for (int size : SIZES) {
+            GameCatalog catalog = new GameCatalog(CatalogFixtures.games(size * 2));
+            Random random = new Random(size);
+            List<BoardGame> picks = new ArrayList<>();
+            for (int i = 0; i < catalog.size(); i++) {
+                if (random.nextBoolean()) {
+                    picks.add(catalog.game(i));
+                }
+            }
+            GameList list = new GameList(catalog);
+            list.addToList(IGameList.ADD_ALL, picks.stream());
+            Path text = dir.resolve("list" + size + ".txt");
+            Path binary = dir.resolve("list" + size + ListExport.EXTENSION);
+
+            double saveText = Double.MAX_VALUE;
+            double saveBinary = Double.MAX_VALUE;
+            double loadText = Double.MAX_VALUE;
+            double loadBinary = Double.MAX_VALUE;
+            long sink = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                list.saveGame(text.toString());
+                saveText = Math.min(saveText, (System.nanoTime() - start) / 1e6);
+                start = System.nanoTime();
+                list.saveGame(binary.toString());
+                saveBinary = Math.min(saveBinary, (System.nanoTime() - start) / 1e6);
+
+                GameList loaded = new GameList(catalog);
+                start = System.nanoTime();
+                sink += loaded.loadGame(text.toString()) + loaded.count();
+                loadText = Math.min(loadText, (System.nanoTime() - start) / 1e6);
+                loaded = new GameList(catalog);
+                start = System.nanoTime();
+                sink += loaded.loadGame(binary.toString()) + loaded.count();
+                loadBinary = Math.min(loadBinary, (System.nanoTime() - start) / 1e6);
+            }
+            System.out.printf("%,7d games: text %,9d bytes, save %6.1f ms, load %6.1f ms"
+                    + "   bgl %,8d bytes, save %5.1f ms, load %5.1f ms  (checksum %d)%n",
+                    list.count(), Files.size(text), saveText, loadText, Files.size(binary),
+                    saveBinary, loadBinary, sink);
+        }
+    }
+}
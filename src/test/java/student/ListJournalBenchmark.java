@@ -0,0 +1,90 @@
+package student;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Compares keeping a large game list on disk by saving the whole list after
+ * every edit, as saveGame does, with appending each edit to a ListJournal. Also
+ * times opening the list again: reading the saved names and finding each game
+ * by name, against reading the journal's snapshot and replaying the journal.
+ *
+ * Each script removes a game by position and adds it back by id, one command at
+ * a time, so every command changes the list.
+ *
+ * Run with: gradle benchmark -Pbench=student.ListJournalBenchmark
+ */
+public final class ListJournalBenchmark {
+    private static final int[] SIZES = {1_000, 10_000, 50_000};
+    private static final int EDITS = 1_000;
+    private static final int ROUNDS = 5;
+
+    private ListJournalBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("list_journal_bench");
+        for (int size : SIZES) {
+            GameCatalog catalog = new GameCatalog(CatalogFixtures.games(size));
+            List<BoardGame> games = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                games.add(catalog.game(i));
+            }
+            double save = Double.MAX_VALUE;
+            double append = Double.MAX_VALUE;
+            double loadNames = Double.MAX_VALUE;
+            double replay = Double.MAX_VALUE;
+            long sink = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                Path names = dir.resolve("names" + round + ".txt");
+                GameList list = new GameList();
+                list.addToList(IGameList.ADD_ALL, games.stream());
+                long start = System.nanoTime();
+                for (int i = 0; i < EDITS; i++) {
+                    edit(list, games, i);
+                    list.saveGame(names.toString());
+                }
+                save = Math.min(save, (System.nanoTime() - start) / 1e6);
+
+                Path base = dir.resolve("journal" + round);
+                try (ListJournal journal = new ListJournal(base, catalog)) {
+                    list = new GameList(journal);
+                    list.addToList(IGameList.ADD_ALL, games.stream());
+                    start = System.nanoTime();
+                    for (int i = 0; i < EDITS; i++) {
+                        edit(list, games, i);
+                    }
+                    append = Math.min(append, (System.nanoTime() - start) / 1e6);
+                }
+
+                start = System.nanoTime();
+                GameList loaded = new GameList();
+                for (String name : Files.readAllLines(names)) {
+                    loaded.addToList(IGameList.ADD_ALL,
+                            Stream.of(catalog.game(catalog.ordinalOf(name))));
+                }
+                loadNames = Math.min(loadNames, (System.nanoTime() - start) / 1e6);
+                sink += loaded.count();
+
+                start = System.nanoTime();
+                try (ListJournal journal = new ListJournal(base, catalog)) {
+                    sink += new GameList(journal).count();
+                }
+                replay = Math.min(replay, (System.nanoTime() - start) / 1e6);
+            }
+            System.out.printf("%,7d games, %d edits: save each %9.1f ms  journal %7.1f ms"
+                    + "   open: names %7.1f ms  replay %6.1f ms  (checksum %d)%n", size, EDITS,
+                    save, append, loadNames, replay, sink);
+        }
+    }
+
+    private static void edit(GameList list, List<BoardGame> games, int i) {
+        BoardGame game = games.get((i * 7919) % games.size());
+        list.removeFromList("id:" + game.getId());
+        list.addToList("id:" + game.getId(), Stream.of(game));
+    }
+}
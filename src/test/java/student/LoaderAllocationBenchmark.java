@@ -0,0 +1,144 @@
+package student;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures how many bytes are allocated per csv row when turning it into a game.
+ *
+ * Compares the previous approach (decode the line to a String, split it on
+ * commas, parse the substrings) with the byte level CsvRowScanner. Both parse
+ * the rows of the bundled collection many times on the current thread, so the
+ * thread allocation counter gives the bytes allocated per row. The BoardGame and
+ * its name are allocated by both, so they are included in both numbers.
+ *
+ * Run with: gradle benchmark -Pbench=student.LoaderAllocationBenchmark
+ */
+public final class LoaderAllocationBenchmark {
+    private static final String COLLECTION = "/collection.csv";
+    private static final int WARMUP = 500;
+    private static final int ITERATIONS = 2000;
+
+    private LoaderAllocationBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        byte[] bytes;
+        try (InputStream is = GamesLoader.class.getResourceAsStream(COLLECTION)) {
+            bytes = is.readAllBytes();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int[] lineStarts = lineStarts(bytes);
+        int rows = lineStarts.length - 2; // the header, and the end marker
+        Map<GameData, Integer> columnMap = columnMap(
+                new String(bytes, 0, lineStarts[1] - 1, StandardCharsets.UTF_8));
+        CsvRowScanner scanner = new CsvRowScanner(columnMap);
+
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += splitRows(bytes, lineStarts, columnMap) + scanRows(buffer, lineStarts, scanner);
+        }
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += splitRows(bytes, lineStarts, columnMap);
+        }
+        long splitTime = System.nanoTime() - start;
+        long splitBytes = threads.getCurrentThreadAllocatedBytes() - before;
+
+        before = threads.getCurrentThreadAllocatedBytes();
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += scanRows(buffer, lineStarts, scanner);
+        }
+        long scanTime = System.nanoTime() - start;
+        long scanBytes = threads.getCurrentThreadAllocatedBytes() - before;
+
+        long total = (long) rows * ITERATIONS;
+        System.out.printf("rows: %d x %d passes (checksum %d)%n", rows, ITERATIONS, sink);
+        System.out.printf("split (previous): %8.1f bytes/row %8.1f ns/row%n",
+                (double) splitBytes / total, (double) splitTime / total);
+        System.out.printf("byte scanner:     %8.1f bytes/row %8.1f ns/row%n",
+                (double) scanBytes / total, (double) scanTime / total);
+    }
+
+    private static int[] lineStarts(byte[] bytes) {
+        int count = 1;
+        for (byte b : bytes) {
+            count += b == '\n' ? 1 : 0;
+        }
+        int[] starts = new int[count + 1];
+        int line = 1;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                starts[line++] = i + 1;
+            }
+        }
+        if (starts[line - 1] == bytes.length) {
+            line--; // no row after the final newline
+        }
+        starts[line] = bytes.length + 1;
+        return Arrays.copyOf(starts, line + 1);
+    }
+
+    private static Map<GameData, Integer> columnMap(String header) {
+        Map<GameData, Integer> columnMap = new HashMap<>();
+        String[] columns = header.split(",");
+        for (int i = 0; i < columns.length; i++) {
+            try {
+                columnMap.put(GameData.fromColumnName(columns[i]), i);
+            } catch (IllegalArgumentException e) {
+                // not a column we use
+            }
+        }
+        return columnMap;
+    }
+
+    private static long scanRows(ByteBuffer buffer, int[] lineStarts, CsvRowScanner scanner) {
+        long sink = 0;
+        for (int line = 1; line < lineStarts.length - 1; line++) {
+            BoardGame game = scanner.scan(buffer, lineStarts[line], lineStarts[line + 1] - 1);
+            sink += game == null ? 0 : game.getId();
+        }
+        return sink;
+    }
+
+    // How GamesLoader turned a row into a game before the byte scanner
+    private static long splitRows(byte[] bytes, int[] lineStarts, Map<GameData, Integer> columnMap) {
+        long sink = 0;
+        for (int line = 1; line < lineStarts.length - 1; line++) {
+            String row = new String(bytes, lineStarts[line],
+                    lineStarts[line + 1] - 1 - lineStarts[line], StandardCharsets.UTF_8);
+            String[] columns = row.split(",");
+            if (columns.length < columnMap.values().stream().max(Integer::compareTo).get()) {
+                continue;
+            }
+            try {
+                BoardGame game = new BoardGame(columns[columnMap.get(GameData.NAME)],
+                        Integer.parseInt(columns[columnMap.get(GameData.ID)]),
+                        Integer.parseInt(columns[columnMap.get(GameData.MIN_PLAYERS)]),
+                        Integer.parseInt(columns[columnMap.get(GameData.MAX_PLAYERS)]),
+                        Integer.parseInt(columns[columnMap.get(GameData.MIN_TIME)]),
+                        Integer.parseInt(columns[columnMap.get(GameData.MAX_TIME)]),
+                        Double.parseDouble(columns[columnMap.get(GameData.DIFFICULTY)]),
+                        Integer.parseInt(columns[columnMap.get(GameData.RANK)]),
+                        Double.parseDouble(columns[columnMap.get(GameData.RATING)]),
+                        Integer.parseInt(columns[columnMap.get(GameData.YEAR)]));
+                sink += game.getId();
+            } catch (NumberFormatException e) {
+                // skip if there is an issue
+            }
+        }
+        return sink;
+    }
+}
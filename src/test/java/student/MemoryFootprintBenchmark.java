@@ -0,0 +1,130 @@
+package student;
+
+import java.lang.ref.Reference;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Measures the heap held by each way of keeping a game collection in memory, in
+ * total and in bytes per game:
+ *
+ * <ul>
+ * <li>the games as BoardGame objects in a HashSet, plus the second HashSet the
+ * original Planner kept of the filtered games;</li>
+ * <li>the catalog, with its columns and indexes and no BoardGame objects;</li>
+ * <li>the parts of the catalog that replace the BoardGame fields: the name arena,
+ * and the numeric columns packed next to the same columns as full width int and
+ * double arrays;</li>
+ * <li>the trigram index of the names.</li>
+ * </ul>
+ *
+ * Each is measured as the used heap after a full collection with it held, less
+ * the used heap without it, so the numbers are close but not exact.
+ *
+ * Run with: gradle benchmark -Pbench=student.MemoryFootprintBenchmark
+ */
+public final class MemoryFootprintBenchmark {
+    private static final int[] SIZES = {100_000, 1_000_000};
+    private static final int GC_PASSES = 5;
+    private static final GameData[] NUMERIC = {GameData.RANK, GameData.MIN_PLAYERS,
+        GameData.MAX_PLAYERS, GameData.MIN_TIME, GameData.MAX_TIME, GameData.YEAR,
+        GameData.RATING, GameData.DIFFICULTY};
+
+    private MemoryFootprintBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        for (int size : SIZES) {
+            long sets = retained(() -> {
+                Set<BoardGame> games = CatalogFixtures.games(size);
+                return new Object[] {games, new HashSet<>(games)};
+            });
+            long catalogBytes = retained(() -> new GameCatalog(CatalogFixtures.games(size)));
+
+            GameCatalog catalog = new GameCatalog(CatalogFixtures.games(size));
+            String[] names = new String[size];
+            Arrays.setAll(names, catalog::name);
+            long arena = retained(() -> new NameArena(names));
+            NameArena packedNames = new NameArena(names);
+            long trigrams = retained(() -> new TrigramIndex(packedNames));
+            long packed = retained(() -> {
+                PackedColumn[] columns = new PackedColumn[NUMERIC.length];
+                for (int c = 0; c < NUMERIC.length; c++) {
+                    columns[c] = pack(catalog.column(NUMERIC[c]), size);
+                }
+                return columns;
+            });
+            long wide = retained(() -> {
+                Object[] columns = new Object[NUMERIC.length];
+                for (int c = 0; c < NUMERIC.length; c++) {
+                    PackedColumn values = catalog.column(NUMERIC[c]);
+                    if (values.isDecimal()) {
+                        double[] doubles = new double[size];
+                        Arrays.setAll(doubles, values::get);
+                        columns[c] = doubles;
+                    } else {
+                        int[] ints = new int[size];
+                        Arrays.setAll(ints, values::getInt);
+                        columns[c] = ints;
+                    }
+                }
+                return columns;
+            });
+
+            System.out.printf("%,9d games:%n", size);
+            report("BoardGame set + filtered copy", sets, size);
+            report("catalog", catalogBytes, size);
+            report("  name arena", arena, size);
+            report("  numeric columns, packed", packed, size);
+            report("  (numeric columns, full width)", wide, size);
+            report("  trigram index", trigrams, size);
+        }
+    }
+
+    /**
+     * Packs a copy of a column, the way the catalog does.
+     *
+     * @param values the column
+     * @param size   the number of games
+     * @return the packed copy
+     */
+    private static PackedColumn pack(PackedColumn values, int size) {
+        if (values.isDecimal()) {
+            double[] doubles = new double[size];
+            Arrays.setAll(doubles, values::get);
+            return PackedColumn.ofDecimals(doubles);
+        }
+        int[] ints = new int[size];
+        Arrays.setAll(ints, values::getInt);
+        return PackedColumn.ofInts(ints);
+    }
+
+    /**
+     * Measures the heap held by what a supplier builds.
+     *
+     * @param build builds the thing to measure
+     * @return the used heap with it held less the used heap before it was built
+     */
+    private static long retained(Supplier<Object> build) {
+        long before = usedHeap();
+        Object held = build.get();
+        long after = usedHeap();
+        Reference.reachabilityFence(held);
+        return after - before;
+    }
+
+    private static void report(String layout, long bytes, int size) {
+        System.out.printf("  %-32s %,15d bytes %8.1f B/game%n", layout, bytes,
+                (double) bytes / size);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < GC_PASSES; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
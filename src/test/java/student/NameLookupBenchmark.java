@@ -0,0 +1,87 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Compares adding games to a list by name or id: scanning the filtered stream
+ * once for each name as GameList used to, scanning it once for a whole batch,
+ * and looking each one up in the catalog's hash index through the planner's
+ * last result.
+ *
+ * Run with: gradle benchmark -Pbench=student.NameLookupBenchmark
+ */
+public final class NameLookupBenchmark {
+    private static final int[] BATCHES = {1, 10};
+    private static final int SIZE = 100_000;
+    private static final int ROUNDS = 5;
+    private static final int ITERATIONS = 20;
+
+    private NameLookupBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        GameCatalog catalog = new GameCatalog(CatalogFixtures.games(SIZE));
+        Planner planner = new Planner(catalog);
+        Random random = new Random(42);
+        for (int batch : BATCHES) {
+            List<String> keys = new ArrayList<>();
+            for (int i = 0; i < batch; i++) {
+                BoardGame game = catalog.game(random.nextInt(catalog.size()));
+                keys.add(i % 2 == 0 ? game.getName().toLowerCase() : "id:" + game.getId());
+            }
+            String typed = String.join(", ", keys);
+            double previous = Double.MAX_VALUE;
+            double onePass = Double.MAX_VALUE;
+            double hashed = Double.MAX_VALUE;
+            long sink = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                long previousNanos = 0;
+                long onePassNanos = 0;
+                long hashedNanos = 0;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    long start = System.nanoTime();
+                    sink += runPrevious(planner, keys);
+                    previousNanos += System.nanoTime() - start;
+
+                    GameList list = new GameList();
+                    start = System.nanoTime();
+                    list.addToList(typed, planner.filter(""));
+                    onePassNanos += System.nanoTime() - start;
+                    sink += list.count();
+
+                    list = new GameList();
+                    start = System.nanoTime();
+                    list.addToList(typed, planner.lastResult());
+                    hashedNanos += System.nanoTime() - start;
+                    sink += list.count();
+                }
+                previous = Math.min(previous, previousNanos / 1e3 / ITERATIONS);
+                onePass = Math.min(onePass, onePassNanos / 1e3 / ITERATIONS);
+                hashed = Math.min(hashed, hashedNanos / 1e3 / ITERATIONS);
+            }
+            System.out.printf("%2d keys: scan per key %10.1f us  one pass %10.1f us"
+                    + "  hash index %8.1f us  (checksum %d)%n", batch, previous, onePass, hashed,
+                    sink);
+        }
+    }
+
+    // How GameList found games by name before the hash index, one scan per key
+    private static long runPrevious(Planner planner, List<String> keys) {
+        Comparator<BoardGame> byName =
+                Comparator.comparing(BoardGame::getName, String.CASE_INSENSITIVE_ORDER);
+        GameList list = new GameList();
+        for (String key : keys) {
+            BoardGame game = key.startsWith("id:")
+                    ? planner.filter("").filter(g -> ("id:" + g.getId()).equals(key))
+                            .findFirst().orElseThrow()
+                    : planner.filter("").filter(g -> g.getName().equalsIgnoreCase(key))
+                            .min(byName).orElseThrow();
+            list.addToList(IGameList.ADD_ALL, Stream.of(game));
+        }
+        return list.count();
+    }
+}
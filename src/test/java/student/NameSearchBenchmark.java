@@ -0,0 +1,56 @@
+package student;
+
+import java.util.BitSet;
+
+/**
+ * Compares name contains searches through the trigram index with the old scan,
+ * which lower cased every name on every query.
+ *
+ * Also reports how long building the catalog (which builds the index) takes.
+ *
+ * Run with: gradle benchmark -Pbench=student.NameSearchBenchmark
+ */
+public final class NameSearchBenchmark {
+    private static final String[] NEEDLES = {"dragon castle", "catan", "12345", "legacy 9",
+        "an"};
+    private static final int SIZE = 1_000_000;
+    private static final int ROUNDS = 5;
+
+    private NameSearchBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+        GameCatalog catalog = new GameCatalog(CatalogFixtures.games(SIZE));
+        System.out.printf("%,d games, fixtures and catalog built in %.0f ms%n", SIZE,
+                (System.nanoTime() - start) / 1e6);
+        BitSet all = new BitSet(catalog.size());
+        all.set(0, catalog.size());
+
+        for (String needle : NEEDLES) {
+            FilterPlan plan = FilterPlan.compile("name~=" + needle);
+            long sink = 0;
+            long indexBest = Long.MAX_VALUE;
+            long scanBest = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                start = System.nanoTime();
+                sink += plan.apply(catalog, all).cardinality();
+                indexBest = Math.min(indexBest, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                BitSet matches = new BitSet(catalog.size());
+                String lower = needle.toLowerCase();
+                for (int game = 0; game < catalog.size(); game++) {
+                    if (catalog.name(game).toLowerCase().contains(lower)) {
+                        matches.set(game);
+                    }
+                }
+                sink += matches.cardinality();
+                scanBest = Math.min(scanBest, System.nanoTime() - start);
+            }
+            System.out.printf("%-14s %,9d matches: planner %9.2f ms, old scan %9.2f ms (%.1fx)"
+                    + " [%d]%n", "'" + needle + "'", plan.apply(catalog, all).cardinality(),
+                    indexBest / 1e6, scanBest / 1e6, (double) scanBest / indexBest, sink);
+        }
+    }
+}
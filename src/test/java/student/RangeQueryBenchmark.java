@@ -0,0 +1,82 @@
+package student;
+
+import java.util.BitSet;
+
+/**
+ * Compares selective numeric filters answered through the sorted column orders
+ * with a plain scan of the column, over the whole catalog.
+ *
+ * The scan is the same loop FilterClause runs when the index is not used.
+ *
+ * Run with: gradle benchmark -Pbench=student.RangeQueryBenchmark
+ */
+public final class RangeQueryBenchmark {
+    private static final String[] FILTERS = {"rank<500", "rating>8.99", "rank==123456",
+        "year>=2024", "rating>7.5"};
+    private static final int SIZE = 1_000_000;
+    private static final int ROUNDS = 5;
+    private static final int ITERATIONS = 20;
+
+    private RangeQueryBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        GameCatalog catalog = new GameCatalog(CatalogFixtures.games(SIZE));
+        BitSet all = new BitSet(catalog.size());
+        all.set(0, catalog.size());
+
+        for (String filter : FILTERS) {
+            FilterPlan plan = FilterPlan.compile(filter);
+            FilterClause clause = FilterClause.parse(filter);
+            PackedColumn values = catalog.column(clause.getColumn());
+            double value = Double.parseDouble(filter.split("[<>=]+")[1]);
+
+            long sink = 0;
+            long indexBest = Long.MAX_VALUE;
+            long scanBest = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    sink += plan.apply(catalog, all).cardinality();
+                }
+                indexBest = Math.min(indexBest, (System.nanoTime() - start) / ITERATIONS);
+
+                start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    sink += scan(all, values, clause.getOperator(), value).cardinality();
+                }
+                scanBest = Math.min(scanBest, (System.nanoTime() - start) / ITERATIONS);
+            }
+            System.out.printf("%-14s %,9d matches: planner %9.1f us, scan %9.1f us (%.1fx) [%d]%n",
+                    filter, plan.apply(catalog, all).cardinality(), indexBest / 1e3,
+                    scanBest / 1e3, (double) scanBest / indexBest, sink);
+        }
+    }
+
+    private static BitSet scan(BitSet games, PackedColumn values, Operations operator,
+            double value) {
+        BitSet matches = new BitSet(games.length());
+        for (int game = games.nextSetBit(0); game >= 0; game = games.nextSetBit(game + 1)) {
+            double found = values.get(game);
+            boolean match;
+            switch (operator) {
+                case LESS_THAN:
+                    match = found < value;
+                    break;
+                case GREATER_THAN:
+                    match = found > value;
+                    break;
+                case GREATER_THAN_EQUALS:
+                    match = found >= value;
+                    break;
+                default:
+                    match = found == value;
+                    break;
+            }
+            if (match) {
+                matches.set(game);
+            }
+        }
+        return matches;
+    }
+}
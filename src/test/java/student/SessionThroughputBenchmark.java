@@ -0,0 +1,73 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures how query throughput scales with threads, when every thread runs its
+ * own Planner sessions over one shared catalog.
+ *
+ * Each query is a new session that applies a filter and reads the top 20 by
+ * rating. Thread counts go up in powers of two to the number of cores.
+ *
+ * Run with: gradle benchmark -Pbench=student.SessionThroughputBenchmark
+ */
+public final class SessionThroughputBenchmark {
+    private static final String[] FILTERS = {"minplayers<=2,maxplayers>=2", "name~=catan",
+        "year>=2015,difficulty<3", "rank<5000", "rating>8.5,maxplaytime<=60"};
+    private static final int SIZE = 100_000;
+    private static final long MILLIS = 2_000;
+
+    private SessionThroughputBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        GameCatalog catalog = new GameCatalog(CatalogFixtures.games(SIZE));
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%,d games, %d cores%n", SIZE, cores);
+        run(catalog, 1); // warm up
+
+        double single = 0;
+        for (int threads = 1; threads <= cores; threads = threads == cores ? cores + 1
+                : Math.min(threads * 2, cores)) {
+            double perSecond = run(catalog, threads);
+            single = threads == 1 ? perSecond : single;
+            System.out.printf("%3d threads: %,12.0f queries/s (%.2fx)%n", threads, perSecond,
+                    perSecond / single);
+        }
+    }
+
+    private static double run(GameCatalog catalog, int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicBoolean stop = new AtomicBoolean();
+        try {
+            List<Future<Long>> counts = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int seed = t;
+                counts.add(pool.submit(() -> {
+                    long queries = 0;
+                    while (!stop.get()) {
+                        Planner session = new Planner(catalog);
+                        String filter = FILTERS[(int) ((seed + queries) % FILTERS.length)];
+                        session.filter(filter, GameData.RATING, false, 0, 20).count();
+                        queries++;
+                    }
+                    return queries;
+                }));
+            }
+            Thread.sleep(MILLIS);
+            stop.set(true);
+            long total = 0;
+            for (Future<Long> count : counts) {
+                total += count.get();
+            }
+            return total * 1000.0 / MILLIS;
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package student;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Compares k nearest neighbor searches through the catalog's KD-tree with
+ * working out the distance to every game, over the whole catalog and over a
+ * filtered half of it. Also reports how long the tree takes to build.
+ *
+ * Run with: gradle benchmark -Pbench=student.SimilarityBenchmark
+ */
+public final class SimilarityBenchmark {
+    private static final int SIZE = 1_000_000;
+    private static final int[] KS = {1, 10, 100};
+    private static final int TARGETS = 200;
+    /** The scan is slow, so it only runs for the first few targets. */
+    private static final int SCAN_TARGETS = 20;
+    private static final int ROUNDS = 3;
+
+    private SimilarityBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        GameCatalog catalog = new GameCatalog(CatalogFixtures.games(SIZE));
+        BitSet all = catalog.allGames();
+        BitSet players = catalog.findIntervals(GameData.MIN_PLAYERS, 2, 4, all);
+
+        long start = System.nanoTime();
+        new SimilarityIndex(catalog.size(), catalog.column(GameData.RATING)::get,
+                catalog.column(GameData.DIFFICULTY)::get,
+                catalog.column(GameData.MIN_PLAYERS)::get,
+                catalog.column(GameData.MAX_PLAYERS)::get,
+                catalog.column(GameData.MIN_TIME)::get,
+                catalog.column(GameData.MAX_TIME)::get,
+                catalog.column(GameData.YEAR)::get);
+        System.out.printf("build %,d games: %.1f ms%n", catalog.size(),
+                (System.nanoTime() - start) / 1e6);
+
+        Random rnd = new Random(7);
+        int[] targets = new int[TARGETS];
+        for (int i = 0; i < TARGETS; i++) {
+            targets[i] = rnd.nextInt(catalog.size());
+        }
+        run("all games", catalog, all, targets);
+        run("players 2-4", catalog, players, targets);
+    }
+
+    private static void run(String label, GameCatalog catalog, BitSet games, int[] targets) {
+        for (int k : KS) {
+            long sink = 0;
+            long treeBest = Long.MAX_VALUE;
+            long scanBest = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (int target : targets) {
+                    sink += catalog.nearest(target, k, games)[0];
+                }
+                treeBest = Math.min(treeBest, (System.nanoTime() - start) / targets.length);
+
+                start = System.nanoTime();
+                for (int i = 0; i < SCAN_TARGETS; i++) {
+                    sink += catalog.nearestByScan(targets[i], k, games)[0];
+                }
+                scanBest = Math.min(scanBest, (System.nanoTime() - start) / SCAN_TARGETS);
+            }
+            System.out.printf("%-12s k=%-4d %,9d games: tree %9.1f us, scan %9.1f us (%.0fx)"
+                    + " [%d]%n", label, k, games.cardinality(), treeBest / 1e3, scanBest / 1e3,
+                    (double) scanBest / treeBest, sink);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package student;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Compares loading a collection from csv with loading it from a binary snapshot.
+ *
+ * For each size a made up csv is written to a temp directory. The csv time is a
+ * full parse (GamesLoader's parallel loader), the snapshot time includes the
+ * checksum of the csv that decides whether the snapshot is current. Each load is
+ * repeated and the best time is reported.
+ *
+ * Run with: gradle benchmark -Pbench=student.SnapshotBenchmark
+ */
+public final class SnapshotBenchmark {
+    private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+    private static final int REPEATS = 5;
+
+    private SnapshotBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("snapshot-bench");
+        try {
+            System.out.printf("%10s %12s %12s %12s %9s%n", "games", "csv bytes", "csv ms",
+                    "snapshot ms", "speedup");
+            for (int size : SIZES) {
+                Path csv = dir.resolve("games" + size + ".csv");
+                Path snapshot = dir.resolve("games" + size + ".snapshot");
+                CatalogFixtures.writeCsv(csv, size);
+
+                long csvBest = Long.MAX_VALUE;
+                Set<BoardGame> fromCsv = null;
+                for (int i = 0; i < REPEATS; i++) {
+                    long start = System.nanoTime();
+                    fromCsv = GamesLoader.loadGamesFile(csv, new LoadTimings());
+                    csvBest = Math.min(csvBest, System.nanoTime() - start);
+                }
+
+                GamesLoader.loadGamesFile(csv, snapshot, new LoadTimings()); // writes it
+                long snapshotBest = Long.MAX_VALUE;
+                Set<BoardGame> fromSnapshot = null;
+                for (int i = 0; i < REPEATS; i++) {
+                    long start = System.nanoTime();
+                    fromSnapshot = GamesLoader.loadGamesFile(csv, snapshot, new LoadTimings());
+                    snapshotBest = Math.min(snapshotBest, System.nanoTime() - start);
+                }
+                if (!fromCsv.equals(fromSnapshot)) {
+                    throw new IllegalStateException("snapshot does not match csv at " + size);
+                }
+
+                System.out.printf("%10d %12d %12.1f %12.1f %8.1fx%n", size, Files.size(csv),
+                        csvBest / 1e6, snapshotBest / 1e6, (double) csvBest / snapshotBest);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package student;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Set;
+
+/**
+ * Compares sorting a filter result with a comparator against walking the
+ * catalog's presorted order, for the common "sort on rating desc" query.
+ *
+ * Both are measured on every game and on roughly half of them (rating > 6.5).
+ *
+ * Run with: gradle benchmark -Pbench=student.SortBenchmark
+ */
+public final class SortBenchmark {
+    private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+    private static final int ROUNDS = 5;
+
+    private SortBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        for (int size : SIZES) {
+            Set<BoardGame> games = CatalogFixtures.games(size);
+            for (String filter : new String[] {"", "rating > 6.5"}) {
+                Planner planner = new Planner(games);
+                planner.filter(filter);
+                BoardGame[] selected = planner.filter("").toArray(BoardGame[]::new);
+                Comparator<BoardGame> comparator =
+                        BoardGameSortStrategy.getComparatorForColumn(GameData.RATING).reversed();
+
+                long sink = 0;
+                long comparatorBest = Long.MAX_VALUE;
+                long walkBest = Long.MAX_VALUE;
+                for (int round = 0; round < ROUNDS; round++) {
+                    long start = System.nanoTime();
+                    BoardGame[] copy = selected.clone();
+                    Arrays.sort(copy, comparator);
+                    sink += copy[0].getId();
+                    comparatorBest = Math.min(comparatorBest, System.nanoTime() - start);
+
+                    start = System.nanoTime();
+                    sink += planner.filter("", GameData.RATING, false).findFirst().get().getId();
+                    walkBest = Math.min(walkBest, System.nanoTime() - start);
+                }
+                System.out.printf("%,9d games, %-14s %,9d selected: comparator %8.1f ms,"
+                        + " presorted %8.1f ms (%.1fx) [%d]%n", size, "'" + filter + "'",
+                        selected.length, comparatorBest / 1e6, walkBest / 1e6,
+                        (double) comparatorBest / walkBest, sink);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package student;
+
+import java.util.Set;
+
+/**
+ * Compares getting the top 20 games by rating from the whole sorted result with
+ * asking the planner for just that page.
+ *
+ * The filters pick about half the games (2 player games) and a few hundred of them,
+ * so both the walk of the sorted order and the bounded heap are measured.
+ *
+ * Run with: gradle benchmark -Pbench=student.TopKBenchmark
+ */
+public final class TopKBenchmark {
+    private static final String[] FILTERS = {"minplayers<=2,maxplayers>=2",
+        "minplayers<=2,maxplayers>=2,name~=dragon castle 1"};
+    private static final int SIZE = 1_000_000;
+    private static final int TOP = 20;
+    private static final int ROUNDS = 200;
+
+    private TopKBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        Set<BoardGame> games = CatalogFixtures.games(SIZE);
+        Planner planner = new Planner(games);
+        for (String filter : FILTERS) {
+            planner.reset();
+            planner.filter(filter);
+            long count = planner.filter("").count();
+
+            long sink = 0;
+            long fullBest = Long.MAX_VALUE;
+            long pageBest = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                sink += planner.filter("", GameData.RATING, false).limit(TOP).count();
+                fullBest = Math.min(fullBest, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                sink += planner.filter("", GameData.RATING, false, 0, TOP).count();
+                pageBest = Math.min(pageBest, System.nanoTime() - start);
+            }
+            System.out.printf("%,9d selected: full sort %10.1f us, page %8.1f us (%.0fx) [%d]%n",
+                    count, fullBest / 1e3, pageBest / 1e3, (double) fullBest / pageBest, sink);
+        }
+    }
+}